@@ -61,6 +61,9 @@ dependencies {
     implementation("org.mapstruct:mapstruct:1.5.5.Final")
     annotationProcessor("org.mapstruct:mapstruct-processor:1.5.5.Final")
 
+    // Cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
     // Monitoring
     runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 
@@ -85,6 +88,7 @@ dependencies {
     testImplementation("org.testcontainers:junit-jupiter")
     testImplementation("org.testcontainers:kafka")
     testImplementation("org.testcontainers:postgresql")
+    testRuntimeOnly("com.h2database:h2")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
@@ -164,4 +168,125 @@ tasks.named("compileJava") {
 // Используем JUnit Platform для тестов
 tasks.withType<Test> {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+/*
+──────────────────────────────────────────────────────
+================ Stress harnesses ====================
+──────────────────────────────────────────────────────
+*/
+val stress: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[stress.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[stress.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+// Встречные переводы против локального Postgres: ./gradlew lockStress -PjdbcUrl=... -Ptransfers=20000
+tasks.register<JavaExec>("lockStress") {
+    group = "verification"
+    description = "Runs criss-crossing transfers and compares naive vs ordered wallet locking"
+    classpath = stress.runtimeClasspath
+    mainClass.set("org.example.transactionapp.stress.WalletLockStressHarness")
+    args = listOf("jdbcUrl", "user", "password", "wallets", "transfers", "threads", "mode")
+        .mapNotNull { key -> project.findProperty(key)?.let { "--$key=$it" } }
+}
+
+// Вставка 10M строк с ключами v4 и v7, размер индекса: ./gradlew idLocality -PjdbcUrl=... -Prows=10000000
+tasks.register<JavaExec>("idLocality") {
+    group = "verification"
+    description = "Compares insert throughput and primary-key index size for random vs time-ordered UUIDs"
+    classpath = stress.runtimeClasspath
+    mainClass.set("org.example.transactionapp.stress.IdLocalityHarness")
+    args = listOf("jdbcUrl", "user", "password", "rows", "batch", "kind")
+        .mapNotNull { key -> project.findProperty(key)?.let { "--$key=$it" } }
+}
+
+// Перенос строк при смене раскладки шардов (модульная → кольцо, расширение кольца), см. ShardRebalanceTool
+tasks.register<JavaExec>("rebalanceShards") {
+    group = "application"
+    description = "Copies rows whose shard changes under the new sharding layout"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.example.transactionapp.sharding.ShardRebalanceTool")
+    args = project.findProperty("rebalance.args")?.toString()?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+// Выгрузка транзакций за период в NDJSON/CSV напрямую из шардов, см. TransactionExportTool
+tasks.register<JavaExec>("exportTransactions") {
+    group = "application"
+    description = "Streams transactions for a period from all shards into an NDJSON or CSV file"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.example.transactionapp.export.TransactionExportTool")
+    args = project.findProperty("export.args")?.toString()?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+/*
+──────────────────────────────────────────────────────
+=================== JMH benchmarks ===================
+──────────────────────────────────────────────────────
+*/
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+// ./gradlew jmh -Pjmh.includes=MoneyBenchmark
+// Результаты в JSON: build/reports/jmh/results-<version>.json — для сравнения между релизами
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs JMH benchmarks from src/jmh"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
+    outputs.file(resultsFile)
+    outputs.upToDateWhen { false }
+    doFirst {
+        resultsFile.get().asFile.parentFile.mkdirs()
+    }
+    args = (project.findProperty("jmh.includes")?.toString()?.split(" ") ?: emptyList()) +
+        listOf("-rf", "json", "-rff", resultsFile.get().asFile.absolutePath)
+}
+
+/*
+──────────────────────────────────────────────────────
+================= End-to-end load test ===============
+──────────────────────────────────────────────────────
+*/
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "loadTestImplementation"("org.testcontainers:kafka")
+    "loadTestImplementation"("org.testcontainers:postgresql")
+    "loadTestImplementation"("org.hdrhistogram:HdrHistogram:2.2.2")
+}
+
+// Нужен Docker: ./gradlew loadTest -Prate=200 -Pduration=60s -Pwallets=1000
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs open-loop deposit load against two Postgres shards and Kafka in Testcontainers"
+    classpath = loadTest.runtimeClasspath
+    mainClass.set("org.example.transactionapp.loadtest.LoadHarness")
+    args = listOf("rate", "steps", "duration", "wallets", "drain", "ids", "status-lookups", "virtual-threads", "slo")
+        .mapNotNull { key -> project.findProperty(key)?.let { "--$key=$it" } }
+}
+
+tasks.register<JavaExec>("bulkConfirmLoad") {
+    group = "verification"
+    description = "Compares single and bulk transfer confirm throughput against two Postgres shards"
+    classpath = loadTest.runtimeClasspath
+    mainClass.set("org.example.transactionapp.loadtest.BulkConfirmHarness")
+    args = listOf("clients", "duration", "wallets", "bulk-size")
+        .mapNotNull { key -> project.findProperty(key)?.let { "--$key=$it" } }
+}
@@ -0,0 +1,63 @@
+package org.example.transactionapp.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.example.transactionapp.metrics.Loggable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прежняя реализация LoggingAspect — точка отсчёта в {@link LoggingAspectBenchmark}:
+ * поиск метров в реестре на каждый вызов, currentTimeMillis и аргументы в INFO каждого вызова.
+ */
+class LegacyLoggingAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(LegacyLoggingAspect.class);
+
+    private final MeterRegistry meterRegistry;
+
+    LegacyLoggingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    Object around(ProceedingJoinPoint joinPoint, Loggable loggable) throws Throwable {
+
+        String operation = loggable.value();
+        long start = System.currentTimeMillis();
+        log.info("Operation START name={} args={}", operation, Arrays.toString(joinPoint.getArgs()));
+
+        try {
+            Object result = joinPoint.proceed();
+
+            long duration = System.currentTimeMillis() - start;
+
+            meterRegistry.timer("operation.latency", "operation", operation, "status", "SUCCESS"
+            ).record(duration, TimeUnit.MILLISECONDS);
+
+            meterRegistry.counter("operation.count", "operation", operation, "status", "SUCCESS"
+            ).increment();
+
+            log.info("Operation SUCCESS name={} durationMs={}", operation, duration);
+
+            return result;
+
+        } catch (Throwable ex) {
+
+            long duration = System.currentTimeMillis() - start;
+
+            meterRegistry.timer("operation.latency", "operation", operation, "status", "ERROR"
+            ).record(duration, TimeUnit.MILLISECONDS);
+
+            meterRegistry.counter("operation.count", "operation", operation, "status", "ERROR",
+                    "exception", ex.getClass().getSimpleName()
+            ).increment();
+
+            log.error("Operation ERROR name={} durationMs={} error={}", operation, duration, ex.getMessage(), ex);
+
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.transactionapp.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.example.transactionapp.metrics.Loggable;
+import org.example.transactionapp.metrics.LoggableProperties;
+import org.example.transactionapp.metrics.LoggingAspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы {@link LoggingAspect#around} относительно прямого вызова и прежней реализации
+ * ({@link LegacyLoggingAspect}). {@code throughAspect} — настройки по умолчанию (аргументы в логе у 1% вызовов),
+ * {@code throughAspectSampled} — аргументы каждого вызова с маскированием.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+    private static final Object RESULT = new Object();
+
+    private LegacyLoggingAspect legacyAspect;
+    private LoggingAspect aspect;
+    private LoggingAspect sampledAspect;
+    private ProceedingJoinPoint joinPoint;
+    private Loggable loggable;
+
+    @Loggable("benchmark.operation")
+    public Object operation() {
+        return RESULT;
+    }
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        legacyAspect = new LegacyLoggingAspect(new SimpleMeterRegistry());
+        aspect = new LoggingAspect(new SimpleMeterRegistry(), new LoggableProperties(0.01, List.of("userUid"), 512));
+        sampledAspect = new LoggingAspect(new SimpleMeterRegistry(), new LoggableProperties(1, List.of("userUid"), 512));
+        loggable = LoggingAspectBenchmark.class.getMethod("operation").getAnnotation(Loggable.class);
+        Object[] args = {"transfer", UUID.randomUUID()};
+        MethodSignature signature = Stubs.stub(MethodSignature.class, Map.of(
+                "getParameterNames", ignored -> new String[]{"type", "userUid"}));
+        joinPoint = Stubs.stub(ProceedingJoinPoint.class, Map.of(
+                "getArgs", ignored -> args,
+                "getSignature", ignored -> signature,
+                "proceed", ignored -> operation()));
+    }
+
+    @Benchmark
+    public Object direct() {
+        return operation();
+    }
+
+    @Benchmark
+    public Object legacyAspect() throws Throwable {
+        return legacyAspect.around(joinPoint, loggable);
+    }
+
+    @Benchmark
+    public Object throughAspect() throws Throwable {
+        return aspect.around(joinPoint, loggable);
+    }
+
+    @Benchmark
+    public Object throughAspectSampled() throws Throwable {
+        return sampledAspect.around(joinPoint, loggable);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.transactionapp.benchmark;
+
+import org.example.transactionapp.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт комиссии, итоговой суммы и проверка достаточности средств:
+ * прежний путь на BigDecimal против {@link Money}.
+ * Аллокации смотреть с профайлером: {@code -Pjmh.includes="MoneyBenchmark -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private BigDecimal bigAmount;
+    private BigDecimal bigBalance;
+    private Money amount;
+    private Money balance;
+
+    @Setup
+    public void setUp() {
+        bigAmount = new BigDecimal("1234.56");
+        bigBalance = new BigDecimal("100000.0000");
+        amount = Money.of(bigAmount);
+        balance = Money.of(bigBalance);
+    }
+
+    @Benchmark
+    public boolean bigDecimalPath() {
+        BigDecimal fee = bigAmount.multiply(BigDecimal.valueOf(0.015));
+        BigDecimal total = bigAmount.add(fee);
+        return bigBalance.compareTo(total) >= 0;
+    }
+
+    @Benchmark
+    public boolean moneyPath() {
+        Money fee = amount.partPerMillion(15_000, 2, RoundingMode.HALF_UP);
+        Money total = amount.plus(fee);
+        return balance.compareTo(total) >= 0;
+    }
+}
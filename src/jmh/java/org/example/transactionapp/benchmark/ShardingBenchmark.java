@@ -0,0 +1,91 @@
+package org.example.transactionapp.benchmark;
+
+import org.apache.shardingsphere.infra.datanode.DataNodeInfo;
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
+import org.example.transactionapp.sharding.ConsistentHashShardingAlgorithm;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.example.transactionapp.sharding.UserOrIdShardingAlgorithm;
+import org.example.transactionapp.sharding.UuidModShardingAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маршрутизация по user_uid: остаток от деления против кольца с виртуальными узлами.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardingBenchmark {
+
+    private static final int KEYS = 1024;
+
+    private UuidModShardingAlgorithm algorithm;
+    private ConsistentHashShardingAlgorithm consistentHash;
+    private UserOrIdShardingAlgorithm userOrId;
+    private ComplexKeysShardingValue<Comparable<?>>[] byTransactionId;
+    private Collection<String> targets;
+    private PreciseShardingValue<Comparable<?>>[] values;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        algorithm = new UuidModShardingAlgorithm();
+        Properties properties = new Properties();
+        properties.setProperty("sharding-count", "2");
+        algorithm.init(properties);
+        targets = List.of("ds0", "ds1");
+
+        consistentHash = new ConsistentHashShardingAlgorithm();
+        consistentHash.init(new Properties());
+        userOrId = new UserOrIdShardingAlgorithm();
+        userOrId.init(new Properties());
+
+        DataNodeInfo dataNodeInfo = new DataNodeInfo("ds", 1, '0');
+        values = new PreciseShardingValue[KEYS];
+        byTransactionId = new ComplexKeysShardingValue[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            UUID userUid = UUID.randomUUID();
+            values[i] = new PreciseShardingValue<>("wallets", "user_uid", dataNodeInfo, userUid);
+            byTransactionId[i] = new ComplexKeysShardingValue<>("transactions",
+                    Map.of("uid", List.of(TransactionIds.forUser(userUid))), Map.of());
+        }
+    }
+
+    @Benchmark
+    public String doSharding() {
+        next = (next + 1) & (KEYS - 1);
+        return algorithm.doSharding(targets, values[next]);
+    }
+
+    @Benchmark
+    public String consistentHash() {
+        next = (next + 1) & (KEYS - 1);
+        return consistentHash.doSharding(targets, values[next]);
+    }
+
+    @Benchmark
+    public Collection<String> userOrIdByTransactionId() {
+        next = (next + 1) & (KEYS - 1);
+        return userOrId.doSharding(targets, byTransactionId[next]);
+    }
+}
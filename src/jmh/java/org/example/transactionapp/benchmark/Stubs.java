@@ -0,0 +1,23 @@
+package org.example.transactionapp.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Заглушки интерфейсов (репозитории, join point) без Spring и БД:
+ * вызов метода из {@code answers} возвращает результат функции от аргументов, остальные — null.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            return answer == null ? null : answer.apply(args);
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.transactionapp.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.dto.TransactionConfirmResponse;
+import org.example.transactionapp.dto.TransactionInitResponse;
+import org.example.transactionapp.dto.TransactionStatusResponse;
+import org.example.transactionapp.dto.TransferInitRequest;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.WalletType;
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.fee.FeeRule;
+import org.example.transactionapp.fee.FeeScheduleService;
+import org.example.transactionapp.ledger.WalletBalance;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.money.FeeRoundingProperties;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.repository.FeeRuleRepository;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.repository.WalletTypeRepository;
+import org.example.transactionapp.service.HasAmount;
+import org.example.transactionapp.service.StatusCacheProperties;
+import org.example.transactionapp.service.TransactionServiceImpl;
+import org.example.transactionapp.service.TransactionStatusCache;
+import org.example.transactionapp.service.WalletCacheProperties;
+import org.example.transactionapp.service.WalletLockService;
+import org.example.transactionapp.service.WalletTypeCatalog;
+import org.example.transactionapp.service.WalletViewCache;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * init() — расчёт комиссии по снимку тарифов для валюты и тарифа типа кошелька; confirm() — сборка
+ * Transaction и ответа для перевода. Репозитории — заглушки, поэтому измеряется только код сервиса.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionServiceBenchmark {
+
+    private TransactionServiceImpl service;
+    private HasAmount initRequest;
+    private TransactionConfirmRequest confirmRequest;
+
+    @Setup
+    public void setUp() {
+        FeeRuleRepository feeRules = new FeeRuleRepository(null) {
+            @Override
+            public Optional<Long> findLatestVersion() {
+                return Optional.of(1L);
+            }
+
+            @Override
+            public List<FeeRule> findByVersion(long version) {
+                return List.of(
+                        new FeeRule(PaymentType.DEPOSIT, null, null, 10_000, Money.ZERO, null, null),
+                        new FeeRule(PaymentType.WITHDRAWAL, null, null, 20_000, Money.ZERO, null, null),
+                        new FeeRule(PaymentType.TRANSFER, null, null, 15_000, Money.ZERO, null, null),
+                        new FeeRule(PaymentType.TRANSFER, "EUR", "PREMIUM", 5_000, Money.ZERO, null, null));
+            }
+        };
+        FeeScheduleService feeScheduleService = new FeeScheduleService(feeRules,
+                new FeeRoundingProperties(2, RoundingMode.HALF_UP));
+        feeScheduleService.refresh();
+
+        TransactionRepository transactions = Stubs.stub(TransactionRepository.class,
+                Map.of("save", args -> args[0]));
+        UUID owner = UUID.randomUUID();
+        WalletType walletType = WalletType.builder()
+                .name("EUR").currencyCode("EUR").status(WalletTypeStatus.ACTIVE).userType("PREMIUM").build();
+        walletType.setId(UUID.randomUUID());
+        WalletTypeCatalog walletTypeCatalog = new WalletTypeCatalog(Stubs.stub(WalletTypeRepository.class,
+                Map.of("findAll", args -> List.of(walletType))));
+        walletTypeCatalog.refresh();
+        WalletRepository wallets = Stubs.stub(WalletRepository.class, Map.of(
+                "findWalletTypeId", args -> Optional.of(walletType.getId()),
+                "lockForDebit", args -> Optional.of(new WalletBalance((UUID) args[0], owner, Money.of(BigDecimal.TEN.pow(6)))),
+                "lockForCredit", args -> Map.of(((Collection<?>) args[0]).iterator().next(), owner)));
+
+        MetricsFacade metrics = new MetricsFacade(new SimpleMeterRegistry());
+        TransactionStatusCache statusCache = new TransactionStatusCache(
+                new StatusCacheProperties(100_000, Duration.ofMinutes(10), Duration.ofSeconds(2)), metrics, event -> {
+                });
+        WalletViewCache walletViewCache = new WalletViewCache(
+                new WalletCacheProperties(true, 50_000, Duration.ofSeconds(5)), metrics);
+
+        service = new TransactionServiceImpl(transactions, wallets, null, feeScheduleService,
+                statusCache, walletViewCache, walletTypeCatalog, new WalletLockService(wallets));
+
+        BigDecimal amount = new BigDecimal("1234.56");
+        TransferInitRequest transferInit = new TransferInitRequest();
+        transferInit.setUserUid(owner);
+        transferInit.setWalletUid(UUID.randomUUID());
+        transferInit.setTargetWalletUid(UUID.randomUUID());
+        transferInit.setAmount(amount);
+        initRequest = transferInit;
+
+        confirmRequest = new TransactionConfirmRequest();
+        UUID userUid = UUID.randomUUID();
+        confirmRequest.setTransactionId(TransactionIds.forUser(userUid));
+        confirmRequest.setUserUid(userUid);
+        confirmRequest.setWalletUid(UUID.randomUUID());
+        confirmRequest.setTargetWalletUid(UUID.randomUUID());
+        confirmRequest.setAmount(amount);
+        confirmRequest.setFee(new BigDecimal("6.17"));
+        confirmRequest.setFeeScheduleVersion(1L);
+        service.confirm("transfer", confirmRequest);
+    }
+
+    @Benchmark
+    public TransactionInitResponse initFee() {
+        return service.init("transfer", initRequest);
+    }
+
+    @Benchmark
+    public TransactionConfirmResponse confirmTransfer() {
+        return service.confirm("transfer", confirmRequest);
+    }
+
+    // Опрос статуса после confirm(): ответ из кеша, без репозитория
+    @Benchmark
+    public TransactionStatusResponse statusCached() {
+        return service.status(confirmRequest.getTransactionId());
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.transactionapp.loadtest;
+
+import org.example.transactionapp.sharding.TransactionIds;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускная способность переводов: по одному через /transfer/confirm против пакетов через
+ * /transfer/confirm/bulk. Закрытый цикл, одинаковое число клиентов, одни и те же кошельки.
+ * <pre>
+ * ./gradlew bulkConfirmLoad -Pclients=16 -Pduration=30s -Pbulk-size=100
+ * </pre>
+ */
+public class BulkConfirmHarness {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadHarness.parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "16"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s").toUpperCase());
+        int walletCount = Integer.parseInt(options.getOrDefault("wallets", "1000"));
+        int bulkSize = Integer.parseInt(options.getOrDefault("bulk-size", "100"));
+
+        try (ShardedEnvironment environment = new ShardedEnvironment()) {
+            environment.start();
+            environment.seedReferenceData(LoadHarness.WALLET_TYPE_ID, LoadHarness.SYSTEM_WALLET_ID);
+
+            try (ConfigurableApplicationContext context = LoadHarness.startApplication(environment, false)) {
+                DataSource dataSource = context.getBean(DataSource.class);
+                List<UUID[]> wallets = LoadHarness.seedWallets(new JdbcTemplate(dataSource), walletCount,
+                        new BigDecimal("1000000000"));
+                String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                        + "/api/api/v1/transactions/transactions/transfer/";
+                HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+                System.out.printf("clients=%d duration=%s wallets=%d bulk-size=%d%n",
+                        clients, duration, walletCount, bulkSize);
+                run("single", clients, duration, () -> {
+                    send(client, URI.create(baseUri + "confirm"), transfer(wallets));
+                    return 1;
+                });
+                run("bulk", clients, duration, () -> {
+                    List<String> items = new ArrayList<>(bulkSize);
+                    for (int i = 0; i < bulkSize; i++) {
+                        items.add(transfer(wallets));
+                    }
+                    send(client, URI.create(baseUri + "confirm/bulk"), "{\"items\":[" + String.join(",", items) + "]}");
+                    return bulkSize;
+                });
+            }
+        }
+    }
+
+    private interface Round {
+        int call() throws Exception;
+    }
+
+    private static void run(String name, int clients, Duration duration, Round round) throws Exception {
+        AtomicLong transfers = new AtomicLong();
+        AtomicLong requests = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<>(clients);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            futures.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    transfers.addAndGet(round.call());
+                    requests.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%-6s transfers/s=%.0f requests/s=%.0f%n", name,
+                transfers.get() / seconds, requests.get() / seconds);
+    }
+
+    private static String transfer(List<UUID[]> wallets) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID[] from = wallets.get(random.nextInt(wallets.size()));
+        UUID[] to = wallets.get(random.nextInt(wallets.size()));
+        // Комиссия перевода по тарифам версии 1 из V7__fee_rules.sql: 1.5% от 1.00 с округлением HALF_UP
+        return """
+                {"transactionId":"%s","userUid":"%s","walletUid":"%s","targetWalletUid":"%s","amount":1.00,"fee":0.02,\
+                "feeScheduleVersion":1}"""
+                .formatted(TransactionIds.forUser(from[1]), from[1], from[0], to[0]);
+    }
+
+    private static void send(HttpClient client, URI uri, String body) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.transactionapp.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.example.transactionapp.TransactionAppApplication;
+import org.example.transactionapp.id.TimeOrderedUuids;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Сквозной прогон confirm → outbox → Kafka → провайдер → листенер на двух шардах Postgres.
+ * Нагрузка открытая: запросы уходят по расписанию независимо от ответов, поэтому очередь
+ * перед сервисом видна в задержках, а не прячется за медленным клиентом.
+ *
+ * <pre>
+ * ./gradlew loadTest -Prate=200 -Pduration=60s -Pwallets=1000
+ * ./gradlew loadTest -Psteps=100,200,400,800 -Pvirtual-threads=true
+ * </pre>
+ * С {@code -Psteps} нагрузка повышается ступенями; для каждой печатаются задержки, пик запросов в полёте,
+ * прирост RSS на запрос в полёте и число платформенных потоков — для сравнения режимов потоков.
+ * После прогона идёт серия GET /status по завершённым транзакциям. С {@code -Pids=random}
+ * id генерируются как UUID v4 и ищутся во всех шардах — база для сравнения с {@code -Pids=encoded}.
+ */
+public class LoadHarness {
+
+    static final UUID WALLET_TYPE_ID = UUID.fromString("00000000-0000-0000-0000-0000000000aa");
+    static final UUID SYSTEM_WALLET_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final int COMPLETION_CHUNK = 500;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        List<Integer> rates = Arrays.stream(options.getOrDefault("steps", options.getOrDefault("rate", "200")).split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "60s").toUpperCase());
+        int walletCount = Integer.parseInt(options.getOrDefault("wallets", "1000"));
+        Duration drainTimeout = Duration.parse("PT" + options.getOrDefault("drain", "30s").toUpperCase());
+        boolean encodedIds = !"random".equals(options.getOrDefault("ids", "encoded"));
+        int statusLookups = Integer.parseInt(options.getOrDefault("status-lookups", "5000"));
+        boolean virtualThreads = Boolean.parseBoolean(options.getOrDefault("virtual-threads", "false"));
+        Duration slo = Duration.parse("PT" + options.getOrDefault("slo", "1s").toUpperCase());
+
+        StageRecorder recorder = new StageRecorder();
+        try (ShardedEnvironment environment = new ShardedEnvironment()) {
+            environment.start();
+            environment.seedReferenceData(WALLET_TYPE_ID, SYSTEM_WALLET_ID);
+
+            try (ConfigurableApplicationContext context = startApplication(environment, virtualThreads);
+                 PaymentProviderStub provider = new PaymentProviderStub(environment.kafkaBootstrapServers(), recorder)) {
+                provider.start();
+
+                DataSource dataSource = context.getBean(DataSource.class);
+                List<UUID[]> wallets = seedWallets(new JdbcTemplate(dataSource), walletCount, BigDecimal.ZERO);
+                String port = context.getEnvironment().getProperty("local.server.port");
+                String baseUri = "http://localhost:" + port + "/api/api/v1/transactions/transactions/";
+
+                ScheduledExecutorService completionPoller = Executors.newSingleThreadScheduledExecutor();
+                NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+                completionPoller.scheduleWithFixedDelay(() -> pollCompleted(jdbc, recorder), 10, 10, TimeUnit.MILLISECONDS);
+                HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+                System.out.printf("duration=%s wallets=%d ids=%s threads=%s%n", duration, walletCount,
+                        encodedIds ? "encoded" : "random", virtualThreads ? "virtual" : "platform");
+                Integer sustained = null;
+                for (int rate : rates) {
+                    recorder.reset();
+                    ResourceSampler sampler = ResourceSampler.start();
+                    long start = System.nanoTime();
+                    drive(client, URI.create(baseUri + "deposit/confirm"), wallets, rate, duration, encodedIds, recorder);
+
+                    long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+                    while (!recorder.pending().isEmpty() && System.nanoTime() < drainDeadline) {
+                        Thread.sleep(50);
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    sampler.stop();
+
+                    System.out.printf("%nrate=%d/s%n", rate);
+                    recorder.print(System.out, elapsed);
+                    sampler.print(System.out, recorder.peakInFlight());
+                    if (recorder.sustained(slo.toNanos())) {
+                        sustained = rate;
+                    }
+                }
+                completionPoller.shutdownNow();
+
+                if (rates.size() > 1) {
+                    System.out.printf("%nmax sustainable rate (total p99 < %s, no errors): %s%n",
+                            slo, sustained == null ? "none" : sustained + "/s");
+                }
+                measureStatusLookups(client, baseUri, recorder.completedIds(), statusLookups);
+            }
+        }
+    }
+
+    static ConfigurableApplicationContext startApplication(ShardedEnvironment environment, boolean virtualThreads) {
+        return new SpringApplicationBuilder(TransactionAppApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.driver-class-name=org.apache.shardingsphere.driver.ShardingSphereDriver",
+                        "spring.datasource.url=" + environment.shardingJdbcUrl(),
+                        "spring.flyway.enabled=false",
+                        "spring.kafka.bootstrap-servers=" + environment.kafkaBootstrapServers(),
+                        "spring.kafka.consumer.auto-offset-reset=earliest",
+                        "otel.sdk.disabled=true",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    // Кошельки вставляются через ShardingSphere, чтобы попасть в шард по user_uid
+    static List<UUID[]> seedWallets(JdbcTemplate jdbc, int count, BigDecimal balance) {
+        List<UUID[]> wallets = new ArrayList<>(count);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID walletId = UUID.randomUUID();
+            UUID userId = UUID.randomUUID();
+            wallets.add(new UUID[]{walletId, userId});
+            rows.add(new Object[]{walletId, "LOADTEST-" + i, WALLET_TYPE_ID, userId, balance});
+        }
+        jdbc.batchUpdate("""
+                insert into wallets (uid, created_at, name, wallet_type_uid, user_uid, status, balance)
+                values (?, now(), ?, ?, ?, 'ACTIVE', ?)""", rows);
+        return wallets;
+    }
+
+    private static void drive(HttpClient client, URI uri, List<UUID[]> wallets, int rate,
+                              Duration duration, boolean encodedIds, StageRecorder recorder) {
+        long period = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long intended = start; intended < end; intended += period) {
+            long now = System.nanoTime();
+            if (intended > now) {
+                LockSupport.parkNanos(intended - now);
+            }
+            UUID[] wallet = wallets.get(ThreadLocalRandom.current().nextInt(wallets.size()));
+            UUID transactionId = encodedIds ? TransactionIds.forUser(wallet[1]) : TimeOrderedUuids.next();
+            // Комиссия депозита по тарифам версии 1 из V7__fee_rules.sql: 1% от 100.00
+            String body = """
+                    {"transactionId":"%s","userUid":"%s","walletUid":"%s","amount":100.00,"fee":1.00,\
+                    "feeScheduleVersion":1}"""
+                    .formatted(transactionId, wallet[1], wallet[0]);
+
+            recorder.scheduled(transactionId, intended);
+            client.sendAsync(HttpRequest.newBuilder(uri)
+                                    .header("Content-Type", "application/json")
+                                    .timeout(Duration.ofSeconds(30))
+                                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                                    .build(),
+                            HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            recorder.failed(transactionId);
+                        } else {
+                            recorder.accepted(transactionId, System.nanoTime());
+                        }
+                    });
+        }
+    }
+
+    // Закрытый цикл, по одному запросу: важна стоимость поиска, а не пропускная способность
+    private static void measureStatusLookups(HttpClient client, String baseUri, List<UUID> ids, int lookups)
+            throws Exception {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Histogram histogram = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        for (int i = 0; i < lookups; i++) {
+            UUID id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + id + "/status")).GET().build();
+            long start = System.nanoTime();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+            histogram.recordValue(System.nanoTime() - start);
+        }
+        System.out.printf("status lookups=%d p50=%.2f ms p99=%.2f ms max=%.2f ms%n", lookups,
+                histogram.getValueAtPercentile(50) / 1_000_000.0,
+                histogram.getValueAtPercentile(99) / 1_000_000.0,
+                histogram.getMaxValue() / 1_000_000.0);
+    }
+
+    // Зачисление видно по статусу COMPLETED, который листенер ставит в той же транзакции
+    private static void pollCompleted(NamedParameterJdbcTemplate jdbc, StageRecorder recorder) {
+        List<UUID> pending = new ArrayList<>(recorder.pending());
+        for (int from = 0; from < pending.size(); from += COMPLETION_CHUNK) {
+            List<UUID> chunk = pending.subList(from, Math.min(from + COMPLETION_CHUNK, pending.size()));
+            List<UUID> completed = jdbc.queryForList(
+                    "select uid from transactions where status = 'COMPLETED' and uid in (:ids)",
+                    Map.of("ids", chunk), UUID.class);
+            long now = System.nanoTime();
+            completed.forEach(id -> recorder.credited(id, now));
+        }
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.transactionapp.loadtest;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.example.transactionapp.dto.DepositCompletedEvent;
+import org.example.transactionapp.dto.DepositRequestedEvent;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Заглушка платёжного провайдера: на каждый deposit.requested сразу отвечает deposit.completed.
+ * Время получения запроса отмечается в {@link StageRecorder} как конец этапа RELAY.
+ */
+class PaymentProviderStub implements AutoCloseable {
+
+    private static final String DEPOSIT_REQUESTED = "deposit.requested";
+    private static final String DEPOSIT_COMPLETED = "deposit.completed";
+
+    private final KafkaConsumer<String, DepositRequestedEvent> consumer;
+    private final KafkaProducer<String, DepositCompletedEvent> producer;
+    private final StageRecorder recorder;
+    private final Thread worker;
+
+    PaymentProviderStub(String bootstrapServers, StageRecorder recorder) {
+        this.recorder = recorder;
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.GROUP_ID_CONFIG, "payment-provider-stub",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"),
+                new StringDeserializer(),
+                new JsonDeserializer<>(DepositRequestedEvent.class, false));
+        this.producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.LINGER_MS_CONFIG, 1),
+                new StringSerializer(),
+                new JsonSerializer<>());
+        this.worker = new Thread(this::run, "payment-provider-stub");
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    private void run() {
+        consumer.subscribe(List.of(DEPOSIT_REQUESTED));
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (ConsumerRecord<String, DepositRequestedEvent> record : consumer.poll(Duration.ofMillis(50))) {
+                    DepositRequestedEvent requested = record.value();
+                    recorder.relayed(requested.getTransactionId(), System.nanoTime());
+
+                    DepositCompletedEvent completed = new DepositCompletedEvent();
+                    completed.setTransactionId(requested.getTransactionId());
+                    completed.setAmount(requested.getAmount());
+                    completed.setTimestamp(OffsetDateTime.now());
+                    producer.send(new ProducerRecord<>(DEPOSIT_COMPLETED, requested.getTransactionId().toString(), completed));
+                }
+            }
+        } catch (WakeupException ignored) {
+            // остановка
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        consumer.wakeup();
+        worker.join();
+        producer.close();
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.transactionapp.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пиковые RSS процесса и число платформенных потоков за ступень нагрузки.
+ * Приложение работает в том же JVM, поэтому RSS включает стеки потоков Tomcat и пулов.
+ */
+class ResourceSampler {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final long baselineRss = rssBytes();
+    private volatile long peakRss = baselineRss;
+    private volatile int peakThreads = threads.getThreadCount();
+
+    static ResourceSampler start() {
+        ResourceSampler sampler = new ResourceSampler();
+        sampler.scheduler.scheduleAtFixedRate(sampler::sample, 0, 100, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+
+    private void sample() {
+        peakRss = Math.max(peakRss, rssBytes());
+        peakThreads = Math.max(peakThreads, threads.getThreadCount());
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    void print(PrintStream out, int peakInFlight) {
+        long delta = Math.max(0, peakRss - baselineRss);
+        out.printf("peak in-flight=%d platform threads=%d rss +%,d KB (%,d KB per in-flight request)%n",
+                peakInFlight, peakThreads, delta >> 10, peakInFlight == 0 ? 0 : (delta >> 10) / peakInFlight);
+    }
+
+    // VmRSS есть только в Linux; в других ОС колонка RSS будет нулевой
+    private static long rssBytes() {
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) << 10;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // нет procfs
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.transactionapp.loadtest;
+
+import org.flywaydb.core.Flyway;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.kafka.ConfluentKafkaContainer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Два Postgres-шарда и Kafka в Testcontainers. Схема накатывается Flyway на каждый шард напрямую,
+ * приложение ходит в них через ShardingSphere-JDBC по сгенерированному yaml.
+ */
+class ShardedEnvironment implements AutoCloseable {
+
+    private static final String POSTGRES_IMAGE = "postgres:15-alpine";
+    private static final String KAFKA_IMAGE = "confluentinc/cp-kafka:7.5.0";
+
+    private final List<PostgreSQLContainer<?>> shards = List.of(
+            new PostgreSQLContainer<>(POSTGRES_IMAGE).withDatabaseName("transaction_ds0"),
+            new PostgreSQLContainer<>(POSTGRES_IMAGE).withDatabaseName("transaction_ds1"));
+    private final ConfluentKafkaContainer kafka = new ConfluentKafkaContainer(KAFKA_IMAGE);
+
+    private Path shardingConfig;
+
+    void start() throws IOException {
+        shards.parallelStream().forEach(PostgreSQLContainer::start);
+        kafka.start();
+
+        for (PostgreSQLContainer<?> shard : shards) {
+            Flyway.configure()
+                    .dataSource(shard.getJdbcUrl(), shard.getUsername(), shard.getPassword())
+                    .locations("classpath:db/migration")
+                    .load()
+                    .migrate();
+        }
+        shardingConfig = writeShardingConfig();
+    }
+
+    /**
+     * Справочники и системный кошелёк кладутся напрямую в каждый шард до старта приложения:
+     * wallet_types — broadcast-таблица, а SystemWalletInitial ищет кошелёк по uid во всех шардах.
+     */
+    void seedReferenceData(UUID walletTypeId, UUID systemWalletId) throws SQLException {
+        for (int i = 0; i < shards.size(); i++) {
+            PostgreSQLContainer<?> shard = shards.get(i);
+            try (Connection connection = DriverManager.getConnection(shard.getJdbcUrl(), shard.getUsername(), shard.getPassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("""
+                        insert into wallet_types (uid, name, currency_code, status, user_type)
+                        values ('%s', 'LOADTEST', 'RUB', 'ACTIVE', 'INDIVIDUAL')""".formatted(walletTypeId));
+                if (i == 0) {
+                    statement.execute("""
+                            insert into wallets_0 (uid, created_at, name, wallet_type_uid, user_uid, status, balance)
+                            values ('%s', now(), 'SYSTEM', '%s', '%s', 'ACTIVE', 0)"""
+                            .formatted(systemWalletId, walletTypeId, systemWalletId));
+                }
+            }
+        }
+    }
+
+    String kafkaBootstrapServers() {
+        return kafka.getBootstrapServers();
+    }
+
+    String shardingJdbcUrl() {
+        return "jdbc:shardingsphere:absolutepath:" + shardingConfig.toAbsolutePath();
+    }
+
+    private Path writeShardingConfig() throws IOException {
+        String template;
+        try (InputStream in = getClass().getResourceAsStream("/loadtest-sharding.yaml")) {
+            template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String yaml = template
+                .replace("@DS0_URL@", shards.get(0).getJdbcUrl())
+                .replace("@DS1_URL@", shards.get(1).getJdbcUrl())
+                .replace("@DB_USER@", shards.get(0).getUsername())
+                .replace("@DB_PASSWORD@", shards.get(0).getPassword());
+        Path file = Files.createTempFile("loadtest-sharding", ".yaml");
+        Files.writeString(file, yaml);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    @Override
+    public void close() {
+        kafka.stop();
+        shards.forEach(PostgreSQLContainer::stop);
+    }
+}
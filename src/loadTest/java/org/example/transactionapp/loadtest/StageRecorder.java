@@ -0,0 +1,136 @@
+package org.example.transactionapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отметки времени каждой транзакции по этапам и гистограммы задержек между ними.
+ * Время отсчитывается от запланированного момента отправки, а не фактического,
+ * поэтому задержки не занижаются при перегрузке (coordinated omission).
+ */
+class StageRecorder {
+
+    enum Stage {
+        /** Запланированная отправка POST /confirm → ответ HTTP. */
+        ACCEPT,
+        /** Ответ HTTP → deposit.requested получен провайдером (outbox relay). */
+        RELAY,
+        /** deposit.requested → кошелёк зачислен (провайдер, deposit.completed, листенер). */
+        SETTLE,
+        /** Запланированная отправка → кошелёк зачислен. */
+        TOTAL
+    }
+
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<UUID, long[]> timestamps = new ConcurrentHashMap<>();
+    private final Map<Stage, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Queue<UUID> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    StageRecorder() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 3));
+        }
+    }
+
+    void scheduled(UUID transactionId, long nanos) {
+        timestamps.put(transactionId, new long[]{nanos, 0, 0});
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    void accepted(UUID transactionId, long nanos) {
+        inFlight.decrementAndGet();
+        long[] marks = timestamps.get(transactionId);
+        marks[1] = nanos;
+        histograms.get(Stage.ACCEPT).recordValue(nanos - marks[0]);
+    }
+
+    void relayed(UUID transactionId, long nanos) {
+        long[] marks = timestamps.get(transactionId);
+        if (marks == null || marks[1] == 0) {
+            return;
+        }
+        marks[2] = nanos;
+        histograms.get(Stage.RELAY).recordValue(Math.max(0, nanos - marks[1]));
+    }
+
+    void credited(UUID transactionId, long nanos) {
+        long[] marks = timestamps.remove(transactionId);
+        if (marks == null) {
+            return;
+        }
+        if (marks[2] != 0) {
+            histograms.get(Stage.SETTLE).recordValue(Math.max(0, nanos - marks[2]));
+        }
+        histograms.get(Stage.TOTAL).recordValue(nanos - marks[0]);
+        completed.add(transactionId);
+    }
+
+    void failed(UUID transactionId) {
+        inFlight.decrementAndGet();
+        timestamps.remove(transactionId);
+        errors.incrementAndGet();
+    }
+
+    Set<UUID> pending() {
+        return timestamps.keySet();
+    }
+
+    int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    // Ступень выдержана: всё зачислено, без ошибок, p99 полного пути в пределах SLO
+    boolean sustained(long sloNanos) {
+        return errors.get() == 0 && timestamps.isEmpty()
+                && histograms.get(Stage.TOTAL).getValueAtPercentile(99) <= sloNanos;
+    }
+
+    // Между ступенями: гистограммы и счётчики заново, id завершённых сохраняются для опроса статуса
+    void reset() {
+        timestamps.clear();
+        histograms.values().forEach(Histogram::reset);
+        errors.set(0);
+        inFlight.set(0);
+        peakInFlight.set(0);
+    }
+
+    List<UUID> completedIds() {
+        return List.copyOf(completed);
+    }
+
+    void print(PrintStream out, long elapsedNanos) {
+        long completed = histograms.get(Stage.TOTAL).getTotalCount();
+        out.printf("completed=%d errors=%d pending=%d throughput=%.1f tx/s%n",
+                completed, errors.get(), timestamps.size(), completed / (elapsedNanos / 1_000_000_000.0));
+        out.printf("%-7s %10s %10s %10s %10s %10s%n", "stage", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = histograms.get(stage);
+            out.printf("%-7s %10.2f %10.2f %10.2f %10.2f %10.2f%n", stage,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
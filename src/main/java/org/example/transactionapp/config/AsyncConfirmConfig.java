@@ -0,0 +1,70 @@
+package org.example.transactionapp.config;
+
+import org.example.transactionapp.service.AsyncConfirmProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Semaphore;
+
+@Configuration
+public class AsyncConfirmConfig {
+
+    // Ограниченная очередь: при переполнении запрос получает 503, а не копится в памяти
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor confirmExecutor(AsyncConfirmProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("confirm-");
+        executor.setCorePoolSize(properties.corePoolSize());
+        executor.setMaxPoolSize(properties.maxPoolSize());
+        executor.setQueueCapacity(properties.queueCapacity());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Виртуальный поток на задачу; тот же предел задач в работе, что у пула с очередью, и тот же 503 сверх него
+    @Bean(name = "confirmExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualConfirmExecutor(AsyncConfirmProperties properties) {
+        SimpleAsyncTaskExecutor executor = new BoundedVirtualExecutor(properties.maxPoolSize() + properties.queueCapacity());
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+
+    // Встроенный concurrencyLimit блокирует вызывающий поток, а нужен немедленный отказ
+    static class BoundedVirtualExecutor extends SimpleAsyncTaskExecutor {
+
+        private final Semaphore permits;
+
+        BoundedVirtualExecutor(int limit) {
+            super("confirm-vt-");
+            this.permits = new Semaphore(limit);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                throw new TaskRejectedException("Достигнут предел асинхронных подтверждений");
+            }
+            try {
+                super.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.transactionapp.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.example.transactionapp.kafka.BatchListenerProperties;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.util.Properties;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            BatchListenerProperties properties,
+            KafkaTemplate<String, Object> kafkaTemplate) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(properties.concurrency());
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(properties.maxPollRecords()));
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        factory.getContainerProperties().setAckMode(properties.ackMode());
+        factory.getContainerProperties().setPollTimeout(properties.pollTimeout().toMillis());
+        factory.setCommonErrorHandler(errorHandler(properties, kafkaTemplate));
+        return factory;
+    }
+
+    // BatchListenerFailedException из листенера: оффсеты до упавшей записи коммитятся, она и хвост пачки
+    // перечитываются с паузой, после последней попытки запись уходит в DLT
+    private static DefaultErrorHandler errorHandler(BatchListenerProperties properties,
+                                                    KafkaTemplate<String, Object> kafkaTemplate) {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + properties.deadLetterSuffix(), -1));
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(properties.retryAttempts());
+        backOff.setInitialInterval(properties.retryInitialInterval().toMillis());
+        backOff.setMaxInterval(properties.retryMaxInterval().toMillis());
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
+}
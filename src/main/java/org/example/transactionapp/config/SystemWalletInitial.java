@@ -2,12 +2,12 @@ package org.example.transactionapp.config;
 
 import lombok.RequiredArgsConstructor;
 import org.example.transactionapp.entity.Wallet;
+import org.example.transactionapp.money.Money;
 import org.example.transactionapp.repository.WalletRepository;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.math.BigDecimal;
 import java.util.UUID;
 
 @Configuration
@@ -23,7 +23,7 @@ public class SystemWalletInitial {
 
             if (!walletRepository.existsById(systemWalletId)){
                 Wallet systemWallet = Wallet.builder()
-                        .balance(BigDecimal.ZERO)
+                        .balance(Money.ZERO)
                         .build();
                 walletRepository.save(systemWallet);
             }
@@ -4,6 +4,8 @@ import org.example.transactionapp.entity.Transaction;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
 public record TransactionResponse
@@ -18,11 +20,11 @@ public record TransactionResponse
     public static TransactionResponse from(Transaction tx) {
         return new TransactionResponse(
                 tx.getId(),
-                tx.getAmount(),
-                tx.getFee(),
+                tx.getAmount().toBigDecimal(),
+                tx.getFee().toBigDecimal(),
                 tx.getType().name(),
                 tx.getStatus().name(),
-                tx.getUpdated()
+                Optional.ofNullable(tx.getModifiedAt()).map(OffsetDateTime::toInstant).orElse(null)
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package org.example.transactionapp.dto;
+
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.money.Money;
+
+import java.util.UUID;
+
+/**
+ * Плоское представление кошелька для чтения: тип кошелька подтягивается тем же запросом.
+ */
+public record WalletView
+        (
+                UUID walletUid,
+                UUID userUid,
+                String name,
+                WalletTypeStatus status,
+                Money balance,
+                String currencyCode,
+                String walletTypeName
+        ) {
+
+    public WalletView withBalance(Money newBalance) {
+        return new WalletView(walletUid, userUid, name, status, newBalance, currencyCode, walletTypeName);
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.transactionapp.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "uid")
+    private UUID id;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    // Ключ шардирования — событие пишется в ту же БД, что и транзакция
+    @Column(name = "user_uid", nullable = false)
+    private UUID userUid;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+
+    @Column(name = "topic", length = 128, nullable = false)
+    private String topic;
+
+    @Column(name = "message_key", length = 64)
+    private String messageKey;
+
+    @Column(name = "payload_type", nullable = false)
+    private String payloadType;
+
+    @Column(name = "payload", nullable = false)
+    private String payload;
+}
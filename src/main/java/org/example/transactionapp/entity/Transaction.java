@@ -1,11 +1,14 @@
 package org.example.transactionapp.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.transactionapp.id.TimeOrderedId;
+import org.example.transactionapp.money.Money;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.UUID;
@@ -17,15 +20,18 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "transactions")
-public class Transaction {
+public class Transaction implements Persistable<UUID> {
 
+    // Обычно id приходит из init() (TransactionIds), генератор — только для записей без него
     @Id
+    @TimeOrderedId
     @Column(name = "uid")
     private UUID id;
 
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
 
+    @UpdateTimestamp
     @Column(name = "modified_at")
     private OffsetDateTime modifiedAt;
 
@@ -36,10 +42,10 @@ public class Transaction {
     private UUID walletUid;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(nullable = false)
-    private BigDecimal fee;
+    private Money fee;
 
     @Enumerated(EnumType.STRING)
     private PaymentType type;
@@ -53,4 +59,22 @@ public class Transaction {
     @Column(name = "failure_reason")
     private String failureReason;
 
+    // id присвоен заранее, поэтому новизну сообщаем сами: иначе save() уходит в merge с SELECT перед INSERT
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
 }
@@ -2,8 +2,8 @@ package org.example.transactionapp.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.transactionapp.money.Money;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -32,6 +32,11 @@ public class Wallet extends AuditableEntity {
 
     @Builder.Default
     @Column(name = "balance", precision = 19, scale = 4, nullable = false)
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
+
+    // Последняя проводка ledger_entries, учтённая в balance
+    @Builder.Default
+    @Column(name = "snapshot_seq", nullable = false)
+    private long snapshotSeq = 0;
 
 }
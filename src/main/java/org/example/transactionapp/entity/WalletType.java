@@ -2,6 +2,7 @@ package org.example.transactionapp.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.transactionapp.service.WalletTypeChangeListener;
 
 import java.io.Serializable;
 
@@ -13,6 +14,7 @@ import java.io.Serializable;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "wallet_types")
+@EntityListeners(WalletTypeChangeListener.class)
 public class WalletType extends AuditableEntity {
 
     @Column(name = "name", length = 32, nullable = false)
@@ -2,6 +2,8 @@ package org.example.transactionapp.exceptions;
 
 
 import org.example.transactionapp.dto.ErrorResponse;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -23,6 +25,10 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex);
     }
+    @ExceptionHandler(ArithmeticException.class)
+    public ResponseEntity<ErrorResponse> handleArithmeticException(ArithmeticException ex) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, ex);
+    }
     @ExceptionHandler(InsufficientFundsException.class)
     public ResponseEntity<ErrorResponse> handleInsufficientFundsException(InsufficientFundsException ex) {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex);
@@ -33,6 +39,17 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex);
     }
 
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleTaskRejectedException(TaskRejectedException ex) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex);
+    }
+
+    // Повторный confirm того же id упирается в ключ (uid, created_at)
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        return buildErrorResponse(HttpStatus.CONFLICT, ex);
+    }
+
     private ResponseEntity<ErrorResponse> buildErrorResponse(HttpStatus status, Exception ex) {
         var errorResponse = new ErrorResponse();
         errorResponse.setTimestamp(OffsetDateTime.now());
@@ -0,0 +1,131 @@
+package org.example.transactionapp.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        RowWriter open(OutputStream out) throws IOException {
+            JsonGenerator generator = JSON.createGenerator(out);
+            generator.setRootValueSeparator(null);
+            return new RowWriter() {
+                @Override
+                public void write(ExportRow row) throws IOException {
+                    generator.writeStartObject();
+                    generator.writeStringField("transactionId", row.uid().toString());
+                    generator.writeStringField("createdAt", row.createdAt().atOffset(ZoneOffset.UTC).toString());
+                    generator.writeStringField("userUid", row.userUid().toString());
+                    generator.writeStringField("walletUid", row.walletUid().toString());
+                    generator.writeStringField("targetWalletUid", text(row.targetWalletUid()));
+                    generator.writeStringField("type", row.type());
+                    generator.writeStringField("status", row.status());
+                    generator.writeNumberField("amount", row.amount());
+                    generator.writeNumberField("fee", row.fee());
+                    generator.writeStringField("failureReason", row.failureReason());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    generator.flush();
+                }
+            };
+        }
+    },
+
+    CSV("text/csv") {
+        @Override
+        RowWriter open(OutputStream out) throws IOException {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write("transaction_id,created_at,user_uid,wallet_uid,target_wallet_uid,type,status,amount,fee,failure_reason\n");
+            return new RowWriter() {
+                @Override
+                public void write(ExportRow row) throws IOException {
+                    writer.write(row.uid().toString());
+                    writer.write(',');
+                    writer.write(row.createdAt().atOffset(ZoneOffset.UTC).toString());
+                    writer.write(',');
+                    writer.write(row.userUid().toString());
+                    writer.write(',');
+                    writer.write(row.walletUid().toString());
+                    writer.write(',');
+                    writer.write(nullToEmpty(text(row.targetWalletUid())));
+                    writer.write(',');
+                    writer.write(row.type());
+                    writer.write(',');
+                    writer.write(row.status());
+                    writer.write(',');
+                    writer.write(row.amount().toPlainString());
+                    writer.write(',');
+                    writer.write(row.fee() == null ? "" : row.fee().toPlainString());
+                    writer.write(',');
+                    writer.write(escape(row.failureReason()));
+                    writer.write('\n');
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    };
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return name().toLowerCase();
+    }
+
+    public static ExportFormat of(String value) {
+        return valueOf(value.toUpperCase());
+    }
+
+    abstract RowWriter open(OutputStream out) throws IOException;
+
+    interface RowWriter {
+
+        void write(ExportRow row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    // RFC 4180: кавычки только для полей с разделителем, кавычкой или переводом строки
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
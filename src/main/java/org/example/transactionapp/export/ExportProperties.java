@@ -0,0 +1,12 @@
+package org.example.transactionapp.export;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "transaction.export")
+public record ExportProperties(
+        @DefaultValue("1000") int fetchSize,
+        @DefaultValue("2000") int queueCapacity,
+        @DefaultValue("4") int maxConnectionsPerShard
+) {
+}
@@ -0,0 +1,31 @@
+package org.example.transactionapp.export;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Строка выгрузки прямо из ResultSet, без сущности и контекста Hibernate.
+ */
+record ExportRow(UUID uid, LocalDateTime createdAt, UUID userUid, UUID walletUid, UUID targetWalletUid,
+                 String type, String status, BigDecimal amount, BigDecimal fee, String failureReason) {
+
+    static final String COLUMNS =
+            "uid, created_at, user_uid, wallet_uid, target_wallet_uid, type, status, amount, fee, failure_reason";
+
+    static ExportRow read(ResultSet rs) throws SQLException {
+        return new ExportRow(
+                rs.getObject(1, UUID.class),
+                rs.getObject(2, LocalDateTime.class),
+                rs.getObject(3, UUID.class),
+                rs.getObject(4, UUID.class),
+                rs.getObject(5, UUID.class),
+                rs.getString(6),
+                rs.getString(7),
+                rs.getBigDecimal(8),
+                rs.getBigDecimal(9),
+                rs.getString(10));
+    }
+}
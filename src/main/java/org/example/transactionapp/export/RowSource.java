@@ -0,0 +1,17 @@
+package org.example.transactionapp.export;
+
+import java.io.IOException;
+
+/**
+ * Упорядоченный по (created_at, uid) источник строк для слияния: таблица шарда или архив секции.
+ */
+interface RowSource extends AutoCloseable {
+
+    /**
+     * Следующая строка или null, если источник исчерпан.
+     */
+    ExportRow next() throws IOException, InterruptedException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,115 @@
+package org.example.transactionapp.export;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение одной физической таблицы серверным курсором в своём потоке.
+ * Между потоком и слиянием — ограниченная очередь: курсор ждёт, пока слияние не заберёт строки,
+ * поэтому в памяти не больше queueCapacity строк на таблицу при любом объёме выгрузки.
+ */
+@Slf4j
+class ShardCursor implements RowSource, Runnable {
+
+    private static final Object END = new Object();
+
+    private final String name;
+    private final DataSource dataSource;
+    private final String table;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int fetchSize;
+    private final BlockingQueue<Object> queue;
+
+    private volatile boolean cancelled;
+    private volatile PreparedStatement statement;
+
+    ShardCursor(String shard, DataSource dataSource, String table, LocalDateTime from, LocalDateTime to,
+                int fetchSize, int queueCapacity) {
+        this.name = shard + "." + table;
+        this.dataSource = dataSource;
+        this.table = table;
+        this.from = from;
+        this.to = to;
+        this.fetchSize = fetchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public void run() {
+        // Курсор Postgres работает только вне autocommit, иначе драйвер читает весь результат сразу
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement ps = connection.prepareStatement("select " + ExportRow.COLUMNS + " from " + table
+                    + " where created_at >= ? and created_at < ? order by created_at, uid")) {
+                statement = ps;
+                ps.setFetchSize(fetchSize);
+                ps.setObject(1, from);
+                ps.setObject(2, to);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (!cancelled && rs.next()) {
+                        put(ExportRow.read(rs));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+            put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | RuntimeException e) {
+            if (!cancelled) {
+                log.error("Ошибка чтения {} при выгрузке", name, e);
+                offerQuietly(e);
+            }
+        }
+    }
+
+    private void put(Object item) throws InterruptedException {
+        while (!cancelled) {
+            if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private void offerQuietly(Exception error) {
+        queue.clear();
+        queue.offer(error);
+    }
+
+    @Override
+    public ExportRow next() throws InterruptedException {
+        Object item = queue.take();
+        if (item == END) {
+            return null;
+        }
+        if (item instanceof Exception e) {
+            throw new IllegalStateException("Не удалось прочитать " + name, e);
+        }
+        return (ExportRow) item;
+    }
+
+    @Override
+    public void close() {
+        cancelled = true;
+        PreparedStatement current = statement;
+        if (current != null) {
+            try {
+                current.cancel();
+            } catch (SQLException e) {
+                log.debug("Не удалось отменить запрос {}", name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.transactionapp.export;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Прямые подключения к физическим таблицам шардов (выгрузка, обслуживание секций, сверка)
+ * из тех же настроек spring.shardingsphere.datasource. Отдельный небольшой пул:
+ * долгие курсоры и DDL не занимают соединения рабочего пути.
+ */
+@Slf4j
+@Component
+public class ShardDataSources {
+
+    private static final String PREFIX = "spring.shardingsphere.datasource";
+
+    private final Binder binder;
+    private final ExportProperties properties;
+
+    private volatile Map<String, DataSource> dataSources;
+
+    public ShardDataSources(Environment environment, ExportProperties properties) {
+        this.binder = Binder.get(environment);
+        this.properties = properties;
+    }
+
+    record ShardConnection(String jdbcUrl, String username, String password) {
+    }
+
+    public Map<String, DataSource> get() {
+        Map<String, DataSource> current = dataSources;
+        if (current == null) {
+            synchronized (this) {
+                current = dataSources;
+                if (current == null) {
+                    current = open("export", properties.maxConnectionsPerShard());
+                    dataSources = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Отдельный набор пулов со своим бюджетом соединений, например на время фоновой задачи.
+     * Закрывает вызывающий через {@link #close(Map)}.
+     */
+    public Map<String, DataSource> open(String poolName, int maximumPoolSize) {
+        String names = binder.bind(PREFIX + ".names", String.class)
+                .orElseThrow(() -> new IllegalStateException("Не заданы " + PREFIX + ".names: выгрузка недоступна"));
+        Map<String, DataSource> created = new LinkedHashMap<>();
+        for (String name : Arrays.stream(names.split(",")).map(String::trim).filter(n -> !n.isEmpty()).toList()) {
+            ShardConnection connection = binder.bind(PREFIX + "." + name, ShardConnection.class)
+                    .orElseThrow(() -> new IllegalStateException("Нет настроек источника " + name));
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(poolName + "-" + name);
+            dataSource.setJdbcUrl(connection.jdbcUrl());
+            dataSource.setUsername(connection.username());
+            dataSource.setPassword(connection.password());
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSource.setMinimumIdle(0);
+            created.put(name, dataSource);
+        }
+        log.info("Пулы {} созданы для шардов {}", poolName, created.keySet());
+        return created;
+    }
+
+    public static void close(Map<String, DataSource> dataSources) {
+        dataSources.values().forEach(dataSource -> ((HikariDataSource) dataSource).close());
+    }
+
+    @PreDestroy
+    void close() {
+        Map<String, DataSource> current = dataSources;
+        if (current != null) {
+            close(current);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.example.transactionapp.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Колоночный архив секции transactions_N_pYYYYMM со всеми её колонками: группы по {@value #GROUP_ROWS} строк,
+ * внутри группы каждая колонка сжата отдельно (deflate), в заголовке группы — min/max created_at, чтобы
+ * при выгрузке пропускать группы вне периода, не распаковывая их. Строки лежат в порядке (created_at, uid).
+ * <pre>
+ * "TXARC2" int columns { UTF name, byte type }*
+ *          { int rows, long minMicros, long maxMicros, columns × (int length, bytes) }* int 0
+ * </pre>
+ * Типы колонок: {@code U} — uuid, {@code T} — timestamp в микросекундах, {@code L} — целое,
+ * {@code N} — decimal текстом, {@code S} — остальное текстом (UTF-8). Перед значением — флаг NULL.
+ */
+public final class TransactionArchive {
+
+    public static final String EXTENSION = ".txarc";
+
+    static final int GROUP_ROWS = 8192;
+
+    private static final byte[] MAGIC = {'T', 'X', 'A', 'R', 'C', '2'};
+
+    private TransactionArchive() {
+    }
+
+    private record Column(String name, byte type) {
+
+        static Column of(ResultSetMetaData metaData, int index) throws SQLException {
+            byte type = switch (metaData.getColumnTypeName(index)) {
+                case "uuid" -> 'U';
+                case "timestamp" -> 'T';
+                case "int2", "int4", "int8" -> 'L';
+                case "numeric" -> 'N';
+                default -> 'S';
+            };
+            return new Column(metaData.getColumnName(index), type);
+        }
+    }
+
+    /**
+     * Пишет таблицу в архив через серверный курсор. Файл появляется под своим именем только целиком
+     * и уже на диске: данные и каталог сбрасываются fsync до переименования и после него.
+     *
+     * @return число записанных строк
+     */
+    public static long write(Connection connection, String table, Path target, int fetchSize)
+            throws SQLException, IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long rows = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select * from " + table + " order by created_at, uid");
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            statement.setFetchSize(fetchSize);
+            DataOutputStream data = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            try (ResultSet rs = statement.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                Column[] columns = new Column[metaData.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = Column.of(metaData, i + 1);
+                }
+                int createdAt = indexOf(columns, "created_at");
+                data.write(MAGIC);
+                data.writeInt(columns.length);
+                for (Column column : columns) {
+                    data.writeUTF(column.name());
+                    data.writeByte(column.type());
+                }
+
+                List<Object[]> group = new ArrayList<>(GROUP_ROWS);
+                while (rs.next()) {
+                    Object[] row = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        row[i] = read(rs, i + 1, columns[i].type());
+                    }
+                    group.add(row);
+                    if (group.size() == GROUP_ROWS) {
+                        rows += writeGroup(data, columns, createdAt, group);
+                    }
+                }
+                rows += writeGroup(data, columns, createdAt, group);
+            }
+            data.writeInt(0);
+            data.flush();
+            channel.force(true);
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        return rows;
+    }
+
+    static RowSource open(Path file, LocalDateTime from, LocalDateTime to) throws IOException {
+        return new Reader(file, micros(from), micros(to));
+    }
+
+    private static Object read(ResultSet rs, int index, byte type) throws SQLException {
+        return switch (type) {
+            case 'U' -> rs.getObject(index, UUID.class);
+            case 'T' -> rs.getObject(index, LocalDateTime.class);
+            case 'L' -> {
+                long value = rs.getLong(index);
+                yield rs.wasNull() ? null : value;
+            }
+            case 'N' -> rs.getBigDecimal(index);
+            default -> rs.getString(index);
+        };
+    }
+
+    private static int writeGroup(DataOutputStream out, Column[] columns, int createdAt, List<Object[]> group)
+            throws IOException {
+        int size = group.size();
+        if (size == 0) {
+            return 0;
+        }
+        out.writeInt(size);
+        out.writeLong(micros((LocalDateTime) group.get(0)[createdAt]));
+        out.writeLong(micros((LocalDateTime) group.get(size - 1)[createdAt]));
+        for (int i = 0; i < columns.length; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(
+                    new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION)))) {
+                for (Object[] row : group) {
+                    writeValue(data, columns[i].type(), row[i]);
+                }
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+        group.clear();
+        return size;
+    }
+
+    private static void writeValue(DataOutputStream data, byte type, Object value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value == null) {
+            return;
+        }
+        switch (type) {
+            case 'U' -> {
+                UUID uuid = (UUID) value;
+                data.writeLong(uuid.getMostSignificantBits());
+                data.writeLong(uuid.getLeastSignificantBits());
+            }
+            case 'T' -> data.writeLong(micros((LocalDateTime) value));
+            case 'L' -> data.writeLong((Long) value);
+            case 'N' -> text(data, ((BigDecimal) value).toPlainString());
+            default -> text(data, (String) value);
+        }
+    }
+
+    // writeUTF ограничен 64 КБ, поэтому длина — int
+    private static void text(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static int indexOf(Column[] columns, String name) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].name().equals(name)) {
+                return i;
+            }
+        }
+        throw new IOException("В архиве нет колонки " + name);
+    }
+
+    private static long micros(LocalDateTime value) {
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), value);
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Читает по одной группе за раз и распаковывает только колонки {@link ExportRow}:
+     * в памяти не больше {@value #GROUP_ROWS} строк на архив.
+     */
+    private static final class Reader implements RowSource {
+
+        private static final String[] EXPORTED = ExportRow.COLUMNS.split(",\\s*");
+
+        private final DataInputStream in;
+        private final long fromMicros;
+        private final long toMicros;
+        private final Column[] columns;
+        // Номер колонки архива для каждой колонки ExportRow
+        private final int[] exported;
+        private final boolean[] needed;
+
+        private ExportRow[] group = new ExportRow[0];
+        private int position;
+        private boolean finished;
+
+        Reader(Path file, long fromMicros, long toMicros) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+            this.fromMicros = fromMicros;
+            this.toMicros = toMicros;
+            try {
+                byte[] magic = in.readNBytes(MAGIC.length);
+                if (!Arrays.equals(magic, MAGIC)) {
+                    throw new IOException("Не архив транзакций: " + file);
+                }
+                columns = new Column[in.readInt()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = new Column(in.readUTF(), in.readByte());
+                }
+                exported = new int[EXPORTED.length];
+                needed = new boolean[columns.length];
+                for (int i = 0; i < EXPORTED.length; i++) {
+                    exported[i] = indexOf(columns, EXPORTED[i]);
+                    needed[exported[i]] = true;
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public ExportRow next() throws IOException {
+            while (true) {
+                while (position < group.length) {
+                    ExportRow row = group[position++];
+                    long created = micros(row.createdAt());
+                    if (created >= toMicros) {
+                        finished = true;
+                        return null;
+                    }
+                    if (created >= fromMicros) {
+                        return row;
+                    }
+                }
+                if (finished || !readGroup()) {
+                    return null;
+                }
+            }
+        }
+
+        private boolean readGroup() throws IOException {
+            while (true) {
+                int size = in.readInt();
+                if (size == 0) {
+                    finished = true;
+                    return false;
+                }
+                long min = in.readLong();
+                long max = in.readLong();
+                if (max < fromMicros) {
+                    for (int i = 0; i < columns.length; i++) {
+                        in.skipNBytes(in.readInt());
+                    }
+                    continue;
+                }
+                if (min >= toMicros) {
+                    finished = true;
+                    return false;
+                }
+                // Остальные колонки архива (comment, modified_at, ...) выгрузке не нужны — их не распаковываем
+                Object[][] values = new Object[columns.length][];
+                for (int i = 0; i < columns.length; i++) {
+                    int length = in.readInt();
+                    if (!needed[i]) {
+                        in.skipNBytes(length);
+                        continue;
+                    }
+                    DataInputStream column = inflate(in.readNBytes(length));
+                    values[i] = new Object[size];
+                    for (int row = 0; row < size; row++) {
+                        values[i][row] = readValue(column, columns[i].type());
+                    }
+                }
+                group = new ExportRow[size];
+                position = 0;
+                for (int row = 0; row < size; row++) {
+                    group[row] = new ExportRow(
+                            (UUID) values[exported[0]][row],
+                            (LocalDateTime) values[exported[1]][row],
+                            (UUID) values[exported[2]][row],
+                            (UUID) values[exported[3]][row],
+                            (UUID) values[exported[4]][row],
+                            (String) values[exported[5]][row],
+                            (String) values[exported[6]][row],
+                            (BigDecimal) values[exported[7]][row],
+                            (BigDecimal) values[exported[8]][row],
+                            (String) values[exported[9]][row]);
+                }
+                return true;
+            }
+        }
+
+        private static Object readValue(DataInputStream in, byte type) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            return switch (type) {
+                case 'U' -> new UUID(in.readLong(), in.readLong());
+                case 'T' -> fromMicros(in.readLong());
+                case 'L' -> in.readLong();
+                case 'N' -> new BigDecimal(readText(in));
+                default -> readText(in);
+            };
+        }
+
+        private static String readText(DataInputStream in) throws IOException {
+            return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+        }
+
+        private static DataInputStream inflate(byte[] compressed) throws IOException {
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[16 * 1024];
+            try {
+                while (!inflater.finished()) {
+                    int read = inflater.inflate(buffer);
+                    if (read == 0 && inflater.needsInput()) {
+                        throw new EOFException("Обрезанная колонка архива");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Повреждённая колонка архива", e);
+            } finally {
+                inflater.end();
+            }
+            return new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // файл только читался
+            }
+        }
+    }
+}
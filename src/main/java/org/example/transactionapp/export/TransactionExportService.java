@@ -0,0 +1,29 @@
+package org.example.transactionapp.export;
+
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.metrics.Loggable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+
+    private final ShardDataSources shardDataSources;
+    private final ExportProperties properties;
+
+    // Архивы — по путям из transaction_archives: archive-dir общий для всех экземпляров
+    @Loggable("transaction.export")
+    public long export(OffsetDateTime from, OffsetDateTime to, ExportFormat format, OutputStream out)
+            throws IOException, InterruptedException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        return new TransactionExporter(shardDataSources.get(), null,
+                properties.fetchSize(), properties.queueCapacity())
+                .export(from, to, format, out);
+    }
+}
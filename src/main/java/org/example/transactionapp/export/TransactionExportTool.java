@@ -0,0 +1,71 @@
+package org.example.transactionapp.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Выгрузка транзакций за период в файл, без запуска приложения. Читает шарды напрямую.
+ * <pre>
+ * ./gradlew exportTransactions -Pexport.args="--node.ds0=jdbc:postgresql://... --node.ds1=...
+ *     --user=postgres --password=postgres --from=2025-01-01T00:00Z --to=2025-02-01T00:00Z
+ *     --format=csv --out=statement-2025-01.csv"
+ * </pre>
+ * Архивы секций читаются по путям из transaction_archives; если их перенесли, {@code --archive-dir}
+ * указывает новый каталог с подкаталогом на шард.
+ */
+@Slf4j
+public class TransactionExportTool {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Ожидается --key=value: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        options.forEach((key, url) -> {
+            if (key.startsWith("node.")) {
+                dataSources.put(key.substring("node.".length()),
+                        new DriverManagerDataSource(url, options.get("user"), options.get("password")));
+            }
+        });
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один --node.<имя>=<jdbc url>");
+        }
+
+        OffsetDateTime from = OffsetDateTime.parse(required(options, "from"));
+        OffsetDateTime to = OffsetDateTime.parse(required(options, "to"));
+        ExportFormat format = ExportFormat.of(options.getOrDefault("format", "ndjson"));
+        Path out = Path.of(options.getOrDefault("out", "transactions." + format.extension()));
+
+        Path archiveDir = options.containsKey("archive-dir") ? Path.of(options.get("archive-dir")) : null;
+        TransactionExporter exporter = new TransactionExporter(dataSources, archiveDir,
+                Integer.parseInt(options.getOrDefault("fetch-size", "1000")),
+                Integer.parseInt(options.getOrDefault("queue-capacity", "2000")));
+        long started = System.nanoTime();
+        try (OutputStream stream = Files.newOutputStream(out)) {
+            long rows = exporter.export(from, to, format, stream);
+            log.info("{} строк записано в {} за {} мс", rows, out, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    private static String required(Map<String, String> options, String key) {
+        String value = options.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Не задан --" + key);
+        }
+        return value;
+    }
+}
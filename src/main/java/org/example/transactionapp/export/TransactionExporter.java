@@ -0,0 +1,162 @@
+package org.example.transactionapp.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.service.WalletLockService;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Выгрузка транзакций за период из всех шардов: каждая таблица transactions_N читается своим
+ * курсором параллельно, потоки сливаются k-way слиянием по (created_at, uid) и сразу пишутся в out.
+ * Секции, вынесенные в архив ({@link TransactionArchive}), участвуют в слиянии наравне с таблицами;
+ * где лежит архив, берётся из transaction_archives шарда. Недоступный архив — ошибка, а не пропуск.
+ * Память ограничена числом источников × размер очереди курсора, от объёма выгрузки не зависит.
+ */
+@Slf4j
+public class TransactionExporter {
+
+    private static final String TABLES_SQL = """
+            select table_name
+              from information_schema.tables
+             where table_schema = current_schema() and table_name ~ '^transactions_[0-9]+$'
+             order by table_name""";
+
+    // Порядок uuid как в Postgres, чтобы слияние совпадало с order by в каждой таблице
+    private static final Comparator<ExportRow> ORDER = Comparator
+            .comparing(ExportRow::createdAt)
+            .thenComparing(ExportRow::uid, WalletLockService.LOCK_ORDER);
+
+    private static final String ARCHIVES_SQL = """
+            select partition_name, location, host
+              from transaction_archives
+             order by partition_name""";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("^transactions_\\d+_p(\\d{6})$");
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final Map<String, DataSource> shards;
+    private final Path archiveDir;
+    private final int fetchSize;
+    private final int queueCapacity;
+
+    /**
+     * @param archiveDir каталог, куда перенесены архивы (внутри — подкаталог на шард); null — пути
+     *                   из transaction_archives, как их записал PartitionMaintainer
+     */
+    public TransactionExporter(Map<String, DataSource> shards, Path archiveDir, int fetchSize, int queueCapacity) {
+        this.shards = shards;
+        this.archiveDir = archiveDir;
+        this.fetchSize = fetchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @return число выгруженных строк
+     */
+    public long export(OffsetDateTime from, OffsetDateTime to, ExportFormat format, OutputStream out)
+            throws IOException, InterruptedException {
+        LocalDateTime fromUtc = from.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        LocalDateTime toUtc = to.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+
+        List<ShardCursor> cursors = new ArrayList<>();
+        shards.forEach((shard, dataSource) -> {
+            for (String table : new JdbcTemplate(dataSource).queryForList(TABLES_SQL, String.class)) {
+                cursors.add(new ShardCursor(shard, dataSource, table, fromUtc, toUtc, fetchSize, queueCapacity));
+            }
+        });
+        List<RowSource> sources = new ArrayList<>(cursors);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, cursors.size()),
+                task -> new Thread(task, "export-reader-" + threadNumber.incrementAndGet()));
+        try {
+            sources.addAll(openArchives(fromUtc, toUtc));
+            cursors.forEach(readers::execute);
+            return merge(sources, format, out);
+        } finally {
+            sources.forEach(RowSource::close);
+            readers.shutdownNow();
+        }
+    }
+
+    // Архив секции берётся, только если её месяц пересекается с периодом
+    private List<RowSource> openArchives(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<RowSource> archives = new ArrayList<>();
+        for (Map.Entry<String, DataSource> shard : shards.entrySet()) {
+            List<Map<String, Object>> catalog = new JdbcTemplate(shard.getValue()).queryForList(ARCHIVES_SQL);
+            for (Map<String, Object> archive : catalog) {
+                String partition = (String) archive.get("partition_name");
+                Matcher matcher = PARTITION_NAME.matcher(partition);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                LocalDateTime monthStart = YearMonth.parse(matcher.group(1), MONTH).atDay(1).atStartOfDay();
+                if (!monthStart.isBefore(to) || !monthStart.plusMonths(1).isAfter(from)) {
+                    continue;
+                }
+                Path file = archiveDir != null
+                        ? archiveDir.resolve(shard.getKey()).resolve(partition + TransactionArchive.EXTENSION)
+                        : Path.of((String) archive.get("location"));
+                if (!Files.isRegularFile(file)) {
+                    throw new IOException("Архив секции %s.%s не найден: %s (записан на %s как %s)".formatted(
+                            shard.getKey(), partition, file, archive.get("host"), archive.get("location")));
+                }
+                archives.add(TransactionArchive.open(file, from, to));
+            }
+        }
+        return archives;
+    }
+
+    private long merge(List<RowSource> cursors, ExportFormat format, OutputStream out)
+            throws IOException, InterruptedException {
+        record Head(ExportRow row, RowSource cursor) {
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, cursors.size()),
+                Comparator.comparing(Head::row, ORDER));
+        for (RowSource cursor : cursors) {
+            ExportRow row = cursor.next();
+            if (row != null) {
+                heads.add(new Head(row, cursor));
+            }
+        }
+
+        BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+        ExportFormat.RowWriter writer = format.open(buffered);
+        long rows = 0;
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            writer.write(head.row());
+            rows++;
+            ExportRow next = head.cursor().next();
+            if (next != null) {
+                heads.add(new Head(next, head.cursor()));
+            }
+        }
+        writer.finish();
+        buffered.flush();
+        log.info("Выгружено {} транзакций из {} источников", rows, cursors.size());
+        return rows;
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.transactionapp.fee;
+
+import org.example.transactionapp.money.Money;
+
+public record FeeQuote(long scheduleVersion, Money fee) {
+}
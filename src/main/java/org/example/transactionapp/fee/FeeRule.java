@@ -0,0 +1,32 @@
+package org.example.transactionapp.fee;
+
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.money.Money;
+
+import java.math.RoundingMode;
+
+/**
+ * Правило комиссии: процент (в ppm) плюс фиксированная часть, ограниченные снизу и сверху.
+ * {@code currency}/{@code tier} равные null означают «любая валюта» / «любой тариф».
+ */
+public record FeeRule(
+        PaymentType type,
+        String currency,
+        String tier,
+        long percentPpm,
+        Money fixed,
+        Money min,
+        Money max
+) {
+
+    public Money apply(Money amount, int scale, RoundingMode roundingMode) {
+        Money fee = amount.partPerMillion(percentPpm, scale, roundingMode).plus(fixed);
+        if (min != null && fee.compareTo(min) < 0) {
+            fee = min;
+        }
+        if (max != null && fee.compareTo(max) > 0) {
+            fee = max;
+        }
+        return fee;
+    }
+}
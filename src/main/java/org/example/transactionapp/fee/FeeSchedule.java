@@ -0,0 +1,109 @@
+package org.example.transactionapp.fee;
+
+import org.example.transactionapp.entity.PaymentType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок тарифов одной версии.
+ * Запасные правила разрешаются при компиляции, поэтому поиск — не больше двух обращений к map.
+ * Приоритет: валюта+тариф, затем валюта, затем тариф, затем общее правило.
+ */
+public final class FeeSchedule {
+
+    private record TypeRules(Map<String, Map<String, FeeRule>> byCurrency,
+                             Map<String, FeeRule> byCurrencyAnyTier,
+                             Map<String, FeeRule> byTier,
+                             FeeRule fallback) {
+    }
+
+    private final long version;
+    private final Map<PaymentType, TypeRules> rules;
+
+    private FeeSchedule(long version, Map<PaymentType, TypeRules> rules) {
+        this.version = version;
+        this.rules = rules;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public static FeeSchedule compile(long version, Collection<FeeRule> source) {
+        Map<PaymentType, TypeRules> compiled = new EnumMap<>(PaymentType.class);
+        for (PaymentType type : PaymentType.values()) {
+            List<FeeRule> typeRules = source.stream().filter(rule -> rule.type() == type).toList();
+            compiled.put(type, compileType(typeRules));
+        }
+        return new FeeSchedule(version, compiled);
+    }
+
+    public Optional<FeeRule> ruleFor(PaymentType type, String currency, String tier) {
+        TypeRules typeRules = rules.get(type);
+        if (currency != null) {
+            Map<String, FeeRule> byTier = typeRules.byCurrency().get(currency);
+            if (byTier != null) {
+                FeeRule rule = tier != null ? byTier.get(tier) : null;
+                return Optional.ofNullable(rule != null ? rule : typeRules.byCurrencyAnyTier().get(currency));
+            }
+        }
+        FeeRule rule = tier != null ? typeRules.byTier().get(tier) : null;
+        return Optional.ofNullable(rule != null ? rule : typeRules.fallback());
+    }
+
+    private static TypeRules compileType(List<FeeRule> typeRules) {
+        Map<String, FeeRule> exact = new HashMap<>();
+        Map<String, FeeRule> currencyOnly = new HashMap<>();
+        Map<String, FeeRule> tierOnly = new HashMap<>();
+        FeeRule fallback = null;
+        Set<String> currencies = new HashSet<>();
+
+        for (FeeRule rule : typeRules) {
+            if (rule.currency() != null) {
+                currencies.add(rule.currency());
+            }
+            if (rule.currency() != null && rule.tier() != null) {
+                exact.put(rule.currency() + '|' + rule.tier(), rule);
+            } else if (rule.currency() != null) {
+                currencyOnly.put(rule.currency(), rule);
+            } else if (rule.tier() != null) {
+                tierOnly.put(rule.tier(), rule);
+            } else {
+                fallback = rule;
+            }
+        }
+
+        Set<String> tiers = new HashSet<>(tierOnly.keySet());
+        typeRules.stream().map(FeeRule::tier).filter(Objects::nonNull).forEach(tiers::add);
+
+        Map<String, Map<String, FeeRule>> byCurrency = new HashMap<>();
+        Map<String, FeeRule> byCurrencyAnyTier = new HashMap<>();
+        for (String currency : currencies) {
+            FeeRule currencyDefault = currencyOnly.getOrDefault(currency, fallback);
+            if (currencyDefault != null) {
+                byCurrencyAnyTier.put(currency, currencyDefault);
+            }
+            Map<String, FeeRule> resolved = new HashMap<>();
+            for (String tier : tiers) {
+                FeeRule rule = exact.get(currency + '|' + tier);
+                if (rule == null) {
+                    rule = currencyOnly.containsKey(currency) ? currencyOnly.get(currency) : tierOnly.getOrDefault(tier, fallback);
+                }
+                if (rule != null) {
+                    resolved.put(tier, rule);
+                }
+            }
+            byCurrency.put(currency, Map.copyOf(resolved));
+        }
+
+        return new TypeRules(Map.copyOf(byCurrency), Map.copyOf(byCurrencyAnyTier), Map.copyOf(tierOnly), fallback);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.transactionapp.fee;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.money.FeeRoundingProperties;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.repository.FeeRuleRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Держит текущий скомпилированный {@link FeeSchedule} в памяти.
+ * При появлении новой версии в fee_schedules снимок пересобирается и подменяется целиком,
+ * читатели не берут блокировок. Предыдущая версия сохраняется, чтобы confirm
+ * по ответу init, выданному до переключения, прошёл проверку.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FeeScheduleService {
+
+    private record Snapshot(FeeSchedule current, FeeSchedule previous) {
+    }
+
+    private final FeeRuleRepository feeRuleRepository;
+    private final FeeRoundingProperties rounding;
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    void load() {
+        refresh();
+        if (snapshot == null) {
+            throw new IllegalStateException("Тарифы не найдены. Проверьте таблицу fee_schedules.");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.fee.schedule.refresh-interval:30s}")
+    public void refresh() {
+        Optional<Long> latest = feeRuleRepository.findLatestVersion();
+        Snapshot current = snapshot;
+        if (latest.isEmpty() || (current != null && current.current().version() == latest.get())) {
+            return;
+        }
+        long version = latest.get();
+        FeeSchedule schedule = FeeSchedule.compile(version, feeRuleRepository.findByVersion(version));
+        snapshot = new Snapshot(schedule, current == null ? null : current.current());
+        log.info("Загружены тарифы версии {}", version);
+    }
+
+    public FeeQuote quote(PaymentType type, String currency, String tier, Money amount) {
+        FeeSchedule schedule = snapshot.current();
+        return new FeeQuote(schedule.version(), feeFor(schedule, type, currency, tier, amount));
+    }
+
+    /**
+     * Комиссия по указанной версии тарифов; пусто, если версия уже не текущая и не предыдущая.
+     */
+    public Optional<Money> feeForVersion(long version, PaymentType type, String currency, String tier, Money amount) {
+        Snapshot current = snapshot;
+        FeeSchedule schedule = current.current().version() == version ? current.current()
+                : current.previous() != null && current.previous().version() == version ? current.previous()
+                : null;
+        return Optional.ofNullable(schedule).map(s -> feeFor(s, type, currency, tier, amount));
+    }
+
+    private Money feeFor(FeeSchedule schedule, PaymentType type, String currency, String tier, Money amount) {
+        FeeRule rule = schedule.ruleFor(type, currency, tier)
+                .orElseThrow(() -> new IllegalArgumentException("Нет тарифа для %s %s %s"
+                        .formatted(type, currency, tier)));
+        return rule.apply(amount, rounding.scale(), rounding.mode());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.transactionapp.id;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUID версии 7: 48 бит миллисекунд Unix-времени, затем 12-битный счётчик и случайный хвост.
+ * Новые ключи ложатся в правый край B-дерева, а не в случайную страницу индекса.
+ * <p>
+ * Монотонность внутри процесса без блокировок: миллисекунда и счётчик хранятся в одном {@link AtomicLong}
+ * и сдвигаются CAS-ом. Если за миллисекунду выдано больше 4096 id или часы ушли назад,
+ * значение продолжает расти с последнего выданного — порядок сохраняется.
+ * <p>
+ * Время и счётчик предсказуемы, поэтому случайный хвост берётся из {@link SecureRandom}:
+ * id кошелька или транзакции нельзя подобрать по соседнему.
+ */
+public final class TimeOrderedUuids {
+
+    static final int COUNTER_BITS = 12;
+
+    private static final AtomicLong LAST = new AtomicLong();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private TimeOrderedUuids() {
+    }
+
+    public static UUID next() {
+        long lsb = (1L << 63) | (randomBits() >>> 2);
+        return new UUID(nextMsb(7), lsb);
+    }
+
+    /**
+     * 64 случайных бита для младшей половины id.
+     */
+    public static long randomBits() {
+        return RANDOM.nextLong();
+    }
+
+    /**
+     * Старшие 64 бита: время, версия и счётчик. Младшие биты заполняет вызывающий
+     * (см. {@link org.example.transactionapp.sharding.TransactionIds}).
+     */
+    public static long nextMsb(int version) {
+        long timeAndCounter = nextTimeAndCounter();
+        return (timeAndCounter >>> COUNTER_BITS) << 16
+                | (long) version << 12
+                | (timeAndCounter & ((1L << COUNTER_BITS) - 1));
+    }
+
+    public static Instant timestamp(UUID id) {
+        return Instant.ofEpochMilli(id.getMostSignificantBits() >>> 16);
+    }
+
+    private static long nextTimeAndCounter() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            long last = LAST.get();
+            long next = Math.max(now, last + 1);
+            if (LAST.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.transactionapp.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+
+import java.time.Duration;
+
+/**
+ * Настройки batch-листенеров: размер пачки (max.poll.records), стратегия коммита оффсетов,
+ * число потоков и таймаут poll. Событие, которое не удалось применить (нет транзакции или кошелька),
+ * повторяется {@code retry-attempts} раз с экспоненциальной паузой и затем уходит в топик
+ * {@code <topic><dead-letter-suffix>}.
+ */
+@ConfigurationProperties(prefix = "transaction.listener.batch")
+public record BatchListenerProperties(
+        @DefaultValue("500") int maxPollRecords,
+        @DefaultValue("BATCH") AckMode ackMode,
+        @DefaultValue("1") int concurrency,
+        @DefaultValue("1s") Duration pollTimeout,
+        @DefaultValue("5") int retryAttempts,
+        @DefaultValue("1s") Duration retryInitialInterval,
+        @DefaultValue("30s") Duration retryMaxInterval,
+        @DefaultValue(".DLT") String deadLetterSuffix
+) {
+}
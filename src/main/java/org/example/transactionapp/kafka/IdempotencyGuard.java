@@ -0,0 +1,106 @@
+package org.example.transactionapp.kafka;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.entity.Transaction;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.repository.ProcessedEventRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Отсекает повторно доставленные события Kafka.
+ * Сначала проверяется ограниченный по размеру и времени жизни кеш недавно обработанных id,
+ * и только на промахе — таблица processed_events.
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    private record EventKey(String topic, UUID transactionId) {
+    }
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final IdempotencyProperties properties;
+    private final MetricsFacade metrics;
+    private final Cache<EventKey, Boolean> recentlyProcessed;
+
+    public IdempotencyGuard(ProcessedEventRepository processedEventRepository,
+                            IdempotencyProperties properties,
+                            MetricsFacade metrics) {
+        this.processedEventRepository = processedEventRepository;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.recentlyProcessed = Caffeine.newBuilder()
+                .maximumSize(properties.cacheSize())
+                .expireAfterWrite(properties.cacheTtl())
+                .build();
+    }
+
+    /**
+     * @return id транзакций из пачки, события по которым ещё не обрабатывались
+     */
+    public Set<UUID> filterNew(String topic, Collection<UUID> transactionIds) {
+        List<UUID> misses = new ArrayList<>(transactionIds.size());
+        int hits = 0;
+        for (UUID id : transactionIds) {
+            if (recentlyProcessed.getIfPresent(new EventKey(topic, id)) != null) {
+                hits++;
+            } else {
+                misses.add(id);
+            }
+        }
+        metrics.idempotencyCache(topic, hits, misses.size());
+
+        Set<UUID> fresh = new LinkedHashSet<>(misses);
+        for (UUID id : processedEventRepository.findProcessed(topic, misses)) {
+            fresh.remove(id);
+            recentlyProcessed.put(new EventKey(topic, id), Boolean.TRUE);
+        }
+
+        int duplicates = transactionIds.size() - fresh.size();
+        if (duplicates > 0) {
+            metrics.duplicateEvents(topic, duplicates);
+            log.info("Пропущено повторных событий topic={} count={}", topic, duplicates);
+        }
+        return fresh;
+    }
+
+    /**
+     * Фиксирует обработку в текущей транзакции. В кеш id попадают только после коммита,
+     * чтобы откат не оставил событие помеченным как обработанное.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markProcessed(String topic, Collection<Transaction> transactions) {
+        processedEventRepository.saveAll(topic, transactions);
+
+        List<EventKey> keys = transactions.stream()
+                .map(transaction -> new EventKey(topic, transaction.getId()))
+                .toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(key -> recentlyProcessed.put(key, Boolean.TRUE));
+            }
+        });
+    }
+
+    @Scheduled(cron = "${transaction.listener.idempotency.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int deleted = processedEventRepository.deleteProcessedBefore(OffsetDateTime.now().minus(properties.retention()));
+        log.info("Удалено устаревших записей processed_events: {}", deleted);
+    }
+}
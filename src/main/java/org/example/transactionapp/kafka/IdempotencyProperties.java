@@ -0,0 +1,14 @@
+package org.example.transactionapp.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "transaction.listener.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("100000") long cacheSize,
+        @DefaultValue("30m") Duration cacheTtl,
+        @DefaultValue("30d") Duration retention
+) {
+}
@@ -6,54 +6,179 @@ import org.example.transactionapp.dto.DepositCompletedEvent;
 import org.example.transactionapp.dto.WithdrawalFailedEvent;
 import org.example.transactionapp.entity.Transaction;
 import org.example.transactionapp.entity.TransactionStatus;
-import org.example.transactionapp.entity.Wallet;
-import org.example.transactionapp.exceptions.TransactionIsNotPresent;
-import org.example.transactionapp.exceptions.WalletNotFoundException;
+import org.example.transactionapp.ledger.LedgerEntry;
+import org.example.transactionapp.ledger.LedgerPostings;
 import org.example.transactionapp.metrics.Loggable;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.money.Money;
 import org.example.transactionapp.repository.TransactionRepository;
 import org.example.transactionapp.repository.WalletRepository;
-import org.springframework.http.HttpStatus;
+import org.example.transactionapp.service.TransactionStatusCache;
+import org.example.transactionapp.service.WalletViewCache;
+import org.example.transactionapp.service.WalletLockService;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Обрабатывает события платёжного провайдера пачками: одна транзакция БД на poll,
+ * транзакции загружаются одним IN-запросом, кошельки блокируются для зачисления одним запросом,
+ * проводки по каждой транзакции уходят одним JDBC batch. Повторные события отсекает {@link IdempotencyGuard}.
+ * Событие без транзакции или кошелька не подтверждается: листенер бросает {@link BatchListenerFailedException},
+ * запись повторяется с паузой и затем уходит в DLT (см. KafkaConsumerConfig).
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class TransactionKafkaListener {
 
+    private static final String DEPOSIT_COMPLETED = "deposit.completed";
+    private static final String WITHDRAWAL_FAILED = "withdrawal.failed";
+
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionStatusCache statusCache;
+    private final WalletViewCache walletViewCache;
+    private final MetricsFacade metrics;
+    private final TransactionTemplate transactionTemplate;
+
+
+    @Loggable("kafka.deposit.completed")
+    @KafkaListener(topics = DEPOSIT_COMPLETED, groupId = "transaction-service",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void onDepositCompleted(List<DepositCompletedEvent> events) {
+        long start = System.nanoTime();
+        Map<UUID, DepositCompletedEvent> byTransaction = byTransactionId(events, DepositCompletedEvent::getTransactionId);
+        Set<UUID> unresolved = transactionTemplate.execute(status -> applyDeposits(byTransaction));
+
+        metrics.listenerBatch(DEPOSIT_COMPLETED, events.size(), Duration.ofNanos(System.nanoTime() - start));
+        failOnUnresolved(events, DepositCompletedEvent::getTransactionId, unresolved);
+    }
+
+    @Loggable("kafka.withdrawal.failed")
+    @KafkaListener(topics = WITHDRAWAL_FAILED, groupId = "transaction-service",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void onWithdrawalFailed(List<WithdrawalFailedEvent> events) {
+        long start = System.nanoTime();
+        Map<UUID, WithdrawalFailedEvent> byTransaction = byTransactionId(events, WithdrawalFailedEvent::getTransactionId);
+        Set<UUID> unresolved = transactionTemplate.execute(status -> applyWithdrawalFailures(byTransaction));
 
+        metrics.listenerBatch(WITHDRAWAL_FAILED, events.size(), Duration.ofNanos(System.nanoTime() - start));
+        failOnUnresolved(events, WithdrawalFailedEvent::getTransactionId, unresolved);
+    }
+
+    /**
+     * @return id транзакций, которые не удалось применить: нет транзакции или её кошелька
+     */
+    private Set<UUID> applyDeposits(Map<UUID, DepositCompletedEvent> byTransaction) {
+        Set<UUID> unresolved = new HashSet<>();
+        List<Transaction> transactions = loadProcessing(idempotencyGuard.filterNew(DEPOSIT_COMPLETED, byTransaction.keySet()),
+                unresolved);
 
-    @Transactional
-    @Loggable("")
-    @KafkaListener(topics = "deposit.completed", groupId = "transaction-service")
-    public void onDepositCompleted(DepositCompletedEvent event) {
-        Transaction transaction = transactionRepository.findById(event.getTransactionId())
-                .orElseThrow(() -> new TransactionIsNotPresent("Транзакция не существует %s"
-                        .formatted(event.getTransactionId())));
-// проверка на статут
-        Wallet wallet = walletRepository.findById(transaction.getWalletUid())
-                .orElseThrow(() -> new WalletNotFoundException("Кошелек с ID  не найден%s"
-                        .formatted(transaction.getWalletUid())));
+        // Порядок id кошельков — тот же, что у переводов, чтобы не получить дедлок
+        Set<UUID> walletIds = new TreeSet<>(WalletLockService.LOCK_ORDER);
+        for (Transaction transaction : transactions) {
+            walletIds.add(transaction.getWalletUid());
+        }
+        Map<UUID, UUID> owners = walletRepository.lockForCredit(walletIds);
+
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        List<Transaction> completed = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            UUID owner = owners.get(transaction.getWalletUid());
+            if (owner == null) {
+                log.error("Кошелек с ID {} не найден, транзакция {} не зачислена",
+                        transaction.getWalletUid(), transaction.getId());
+                unresolved.add(transaction.getId());
+                continue;
+            }
+            Money amount = Money.of(byTransaction.get(transaction.getId()).getAmount());
+            entries.addAll(LedgerPostings.deposit(transaction, owner, amount));
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            completed.add(transaction);
+        }
+        walletRepository.appendEntries(entries);
+        walletViewCache.evictAfterCommit(owners.keySet());
+        idempotencyGuard.markProcessed(DEPOSIT_COMPLETED, completed);
+        statusCache.putAfterCommit(completed);
+        return unresolved;
+    }
 
-        wallet.setBalance(wallet.getBalance().add(event.getAmount()));
-        transaction.setStatus(TransactionStatus.COMPLETED);
+    private Set<UUID> applyWithdrawalFailures(Map<UUID, WithdrawalFailedEvent> byTransaction) {
+        Set<UUID> unresolved = new HashSet<>();
+        List<Transaction> transactions = loadProcessing(idempotencyGuard.filterNew(WITHDRAWAL_FAILED, byTransaction.keySet()),
+                unresolved);
+        for (Transaction transaction : transactions) {
+            transaction.setStatus(TransactionStatus.FAILED);
+            transaction.setFailureReason(byTransaction.get(transaction.getId()).getFailureReason());
+        }
+        idempotencyGuard.markProcessed(WITHDRAWAL_FAILED, transactions);
+        statusCache.putAfterCommit(transactions);
+        return unresolved;
+    }
+
+    // Остальная пачка уже закоммичена. Оффсеты до первой неприменённой записи коммитятся,
+    // она и хвост перечитываются с паузой (обработанное отсечёт IdempotencyGuard), после попыток — DLT
+    private static <E> void failOnUnresolved(List<E> events, Function<E, UUID> idExtractor, Set<UUID> unresolved) {
+        if (unresolved == null || unresolved.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            UUID transactionId = idExtractor.apply(events.get(i));
+            if (unresolved.contains(transactionId)) {
+                throw new BatchListenerFailedException(
+                        "Событие транзакции %s не применено: нет транзакции или кошелька".formatted(transactionId), i);
+            }
+        }
+    }
 
-        walletRepository.save(wallet);
-        transactionRepository.save(transaction);
+    // Повтор одного и того же события в пределах пачки обрабатывается один раз
+    private static <E> Map<UUID, E> byTransactionId(List<E> events, Function<E, UUID> idExtractor) {
+        Map<UUID, E> byTransaction = new LinkedHashMap<>();
+        for (E event : events) {
+            byTransaction.putIfAbsent(idExtractor.apply(event), event);
+        }
+        return byTransaction;
     }
 
-    @KafkaListener(topics = "withdrawal.failed", groupId = "transaction-service")
-    @Transactional
-    public void onWithdrawalFailed(WithdrawalFailedEvent event) {
-        Transaction transaction = transactionRepository.findById(event.getTransactionId())
-                .orElseThrow(() -> new TransactionIsNotPresent("Транзакция не существует %s"
-                        .formatted(event.getTransactionId())));
+    // Изменения статусов сбрасываются при коммите JDBC batch'ами (hibernate.jdbc.batch_size)
+    private List<Transaction> loadProcessing(Set<UUID> ids, Set<UUID> missing) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Transaction> transactions = transactionRepository.findAllById(ids);
+        if (transactions.size() != ids.size()) {
+            Set<UUID> found = transactions.stream().map(Transaction::getId).collect(Collectors.toSet());
+            ids.stream()
+                    .filter(id -> !found.contains(id))
+                    .forEach(id -> {
+                        log.error("Транзакция не существует {}", id);
+                        missing.add(id);
+                    });
+        }
 
-        transaction.setStatus(TransactionStatus.FAILED);
-        transaction.setFailureReason(event.getFailureReason());
-        transactionRepository.save(transaction);
+        List<Transaction> processing = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transaction.getStatus() != TransactionStatus.PROCESSING) {
+                log.warn("Транзакция {} уже в статусе {}, событие пропущено", transaction.getId(), transaction.getStatus());
+                continue;
+            }
+            processing.add(transaction);
+        }
+        return processing;
     }
 }
@@ -0,0 +1,13 @@
+package org.example.transactionapp.ledger;
+
+/**
+ * Счёт проводки. WALLET — кошелёк пользователя (в проводке задан wallet_uid),
+ * остальные — встречные счета сервиса, на которых сходится двойная запись.
+ * OPENING_BALANCE — источник начального баланса кошелька при создании.
+ */
+public enum LedgerAccount {
+    WALLET,
+    FEE_INCOME,
+    DEPOSIT_CLEARING,
+    OPENING_BALANCE
+}
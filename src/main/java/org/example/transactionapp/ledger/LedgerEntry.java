@@ -0,0 +1,20 @@
+package org.example.transactionapp.ledger;
+
+import org.example.transactionapp.money.Money;
+
+import java.util.UUID;
+
+/**
+ * Проводка журнала: положительная сумма — зачисление на счёт, отрицательная — списание.
+ * userUid — ключ шардирования: владелец кошелька для WALLET, владелец операции для встречных счетов.
+ */
+public record LedgerEntry(UUID userUid, UUID walletUid, UUID transactionUid, LedgerAccount account, Money amount) {
+
+    public static LedgerEntry wallet(UUID ownerUid, UUID walletUid, UUID transactionUid, Money amount) {
+        return new LedgerEntry(ownerUid, walletUid, transactionUid, LedgerAccount.WALLET, amount);
+    }
+
+    public static LedgerEntry contra(UUID userUid, UUID transactionUid, LedgerAccount account, Money amount) {
+        return new LedgerEntry(userUid, null, transactionUid, account, amount);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.transactionapp.ledger;
+
+import org.example.transactionapp.entity.Transaction;
+import org.example.transactionapp.money.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Проводки по операциям. Сумма проводок одной операции всегда равна нулю.
+ */
+public final class LedgerPostings {
+
+    private LedgerPostings() {
+    }
+
+    /**
+     * Отправитель платит сумму с комиссией, получатель получает сумму, комиссия — на FEE_INCOME.
+     */
+    public static List<LedgerEntry> transfer(Transaction transaction, UUID fromOwnerUid, UUID toOwnerUid) {
+        Money amount = transaction.getAmount();
+        Money fee = transaction.getFee();
+        List<LedgerEntry> entries = new ArrayList<>(3);
+        entries.add(LedgerEntry.wallet(fromOwnerUid, transaction.getWalletUid(), transaction.getId(),
+                amount.plus(fee).negate()));
+        entries.add(LedgerEntry.wallet(toOwnerUid, transaction.getTargetWalletUid(), transaction.getId(), amount));
+        if (fee.signum() != 0) {
+            entries.add(LedgerEntry.contra(transaction.getUserUid(), transaction.getId(), LedgerAccount.FEE_INCOME, fee));
+        }
+        return entries;
+    }
+
+    /**
+     * Деньги от провайдера: кошелёк получает сумму, встречная проводка — на DEPOSIT_CLEARING.
+     */
+    public static List<LedgerEntry> deposit(Transaction transaction, UUID ownerUid, Money amount) {
+        return List.of(
+                LedgerEntry.wallet(ownerUid, transaction.getWalletUid(), transaction.getId(), amount),
+                LedgerEntry.contra(transaction.getUserUid(), transaction.getId(), LedgerAccount.DEPOSIT_CLEARING,
+                        amount.negate()));
+    }
+
+    /**
+     * Начальный баланс нового кошелька: кошелёк получает сумму, встречная проводка — на OPENING_BALANCE.
+     * Операции у начального баланса нет, поэтому transaction_uid обеих проводок — id кошелька:
+     * по встречной проводке сверка находит кошелёк.
+     */
+    public static List<LedgerEntry> opening(UUID ownerUid, UUID walletUid, Money amount) {
+        return List.of(
+                LedgerEntry.wallet(ownerUid, walletUid, walletUid, amount),
+                LedgerEntry.contra(ownerUid, walletUid, LedgerAccount.OPENING_BALANCE, amount.negate()));
+    }
+}
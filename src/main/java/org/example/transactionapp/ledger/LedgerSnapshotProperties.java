@@ -0,0 +1,15 @@
+package org.example.transactionapp.ledger;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "transaction.ledger.snapshot")
+public record LedgerSnapshotProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30s") Duration interval,
+        @DefaultValue("100") int minEntries,
+        @DefaultValue("500") int batchSize
+) {
+}
@@ -0,0 +1,244 @@
+package org.example.transactionapp.ledger;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.export.ShardDataSources;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сворачивает хвосты горячих кошельков: новый снимок в строке wallets_N — баланс с учётом
+ * проводок ledger_entries_N после прежнего снимка и seq последней из них.
+ * Кандидаты — кошельки с проводками после водяного знака прохода, у которых хвост не короче
+ * {@code min-entries}. Строка кошелька блокируется FOR UPDATE: снимок ждёт коммита всех
+ * начатых зачислений и списаний, поэтому ни одна проводка не окажется ниже snapshot_seq неучтённой.
+ * <p>
+ * seq выдаётся при вставке, а видна проводка после коммита: на момент прохода проводка с меньшим seq
+ * может быть ещё не закоммичена. Поэтому водяной знак сдвигается до max(seq) прохода, только когда
+ * pg_snapshot_xmin перешагнул xmax его снимка — все транзакции, открытые в тот момент, завершились,
+ * а до тех пор диапазон просматривается повторно. Это верно, потому что проводки кошелька пишутся
+ * после блокировки его строки, то есть транзакция уже получила xid, когда берёт seq.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "transaction.ledger.snapshot", name = "enabled", matchIfMissing = true)
+public class LedgerSnapshotter {
+
+    private static final String LOCK_SQL = "select pg_try_advisory_lock(hashtext('ledger-snapshots'))";
+    private static final String UNLOCK_SQL = "select pg_advisory_unlock(hashtext('ledger-snapshots'))";
+
+    private static final String PARENTS_SQL = """
+            select c.relname
+              from pg_partitioned_table pt
+              join pg_class c on c.oid = pt.partrelid
+             where c.relnamespace = current_schema()::regnamespace and c.relname ~ '^ledger_entries_[0-9]+$'""";
+
+    // Снимок и max(seq) одним оператором: в READ COMMITTED это один и тот же снимок
+    private static final String HORIZON_SQL = """
+            select (select coalesce(max(seq), 0) from %s),
+                   pg_snapshot_xmax(pg_current_snapshot())::text::bigint""";
+
+    private static final String XMIN_SQL = "select pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private static final String CANDIDATES_SQL = """
+            select w.uid
+              from %1$s w
+              join %2$s e on e.wallet_uid = w.uid and e.seq > w.snapshot_seq
+             where w.uid in (select wallet_uid from %2$s where seq > ? and seq <= ? and wallet_uid is not null)
+             group by w.uid
+            having count(*) >= ?
+             order by count(*) desc
+             limit ?""";
+
+    private final ShardDataSources shardDataSources;
+    private final LedgerSnapshotProperties properties;
+    private final MetricsFacade metrics;
+
+    // Водяной знак по seq для каждой таблицы проводок: проводки ниже него уже просмотрены
+    private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+    // Просмотренный, но ещё не подтверждённый край: ниже seq могут оставаться незакоммиченные проводки
+    private final Map<String, Horizon> pending = new ConcurrentHashMap<>();
+
+    /**
+     * max(seq) таблицы проводок и xmax снимка, в котором он прочитан.
+     */
+    private record Horizon(long seq, long xmax) {
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.ledger.snapshot.interval:30s}")
+    public void compact() {
+        shardDataSources.get().forEach((shard, dataSource) -> {
+            try {
+                compact(shard, dataSource);
+            } catch (SQLException | RuntimeException e) {
+                log.error("Снимки балансов в {} не обновлены", shard, e);
+            }
+        });
+    }
+
+    private void compact(String shard, DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            if (!queryBoolean(connection, LOCK_SQL)) {
+                return;
+            }
+            try {
+                for (String ledger : queryNames(connection)) {
+                    String wallets = "wallets" + ledger.substring("ledger_entries".length());
+                    compactTable(connection, shard, ledger, wallets);
+                }
+            } finally {
+                queryBoolean(connection, UNLOCK_SQL);
+            }
+        }
+    }
+
+    private void compactTable(Connection connection, String shard, String ledger, String wallets) throws SQLException {
+        String key = shard + "." + ledger;
+        // После рестарта — от самого свежего снимка: кошельки, активные с тех пор, будут просмотрены
+        long from = watermarks.containsKey(key)
+                ? watermarks.get(key)
+                : queryLong(connection, "select coalesce(max(snapshot_seq), 0) from " + wallets);
+        Horizon seen = pending.get(key);
+        if (seen != null && queryLong(connection, XMIN_SQL) >= seen.xmax()) {
+            from = Math.max(from, seen.seq());
+            watermarks.put(key, from);
+            pending.remove(key);
+        }
+        Horizon horizon = horizon(connection, ledger);
+        long to = horizon.seq();
+        if (to <= from) {
+            return;
+        }
+
+        List<UUID> hot = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(CANDIDATES_SQL.formatted(wallets, ledger))) {
+            statement.setLong(1, from);
+            statement.setLong(2, to);
+            statement.setInt(3, properties.minEntries());
+            statement.setInt(4, properties.batchSize());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    hot.add(rs.getObject(1, UUID.class));
+                }
+            }
+        }
+        for (UUID walletId : hot) {
+            long entries = snapshot(connection, ledger, wallets, walletId);
+            if (entries > 0) {
+                metrics.ledgerSnapshot(shard, entries);
+            }
+        }
+        // Упёрлись в batch-size — остальные кандидаты того же диапазона достанутся следующему проходу.
+        // Иначе край ждёт подтверждения; уже ждущий не подменяем, чтобы его подтверждение не откладывалось
+        if (hot.size() < properties.batchSize()) {
+            pending.putIfAbsent(key, horizon);
+        }
+        if (!hot.isEmpty()) {
+            log.info("Снимки {}.{}: обновлено {} кошельков", shard, wallets, hot.size());
+        }
+    }
+
+    /**
+     * @return сколько проводок свёрнуто в снимок
+     */
+    private long snapshot(Connection connection, String ledger, String wallets, UUID walletId) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            BigDecimal balance;
+            long snapshotSeq;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "select balance, snapshot_seq from " + wallets + " where uid = ? for update")) {
+                statement.setObject(1, walletId);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        connection.rollback();
+                        return 0;
+                    }
+                    balance = rs.getBigDecimal(1);
+                    snapshotSeq = rs.getLong(2);
+                }
+            }
+
+            BigDecimal tail;
+            long lastSeq;
+            long entries;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "select coalesce(sum(amount), 0), coalesce(max(seq), 0), count(*) from " + ledger
+                            + " where wallet_uid = ? and seq > ?")) {
+                statement.setObject(1, walletId);
+                statement.setLong(2, snapshotSeq);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    tail = rs.getBigDecimal(1);
+                    lastSeq = rs.getLong(2);
+                    entries = rs.getLong(3);
+                }
+            }
+
+            if (entries > 0) {
+                try (PreparedStatement statement = connection.prepareStatement("update " + wallets
+                        + " set balance = ?, snapshot_seq = ?, modified_at = now() where uid = ?")) {
+                    statement.setBigDecimal(1, balance.add(tail));
+                    statement.setLong(2, lastSeq);
+                    statement.setObject(3, walletId);
+                    statement.executeUpdate();
+                }
+            }
+            connection.commit();
+            return entries;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static Horizon horizon(Connection connection, String ledger) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(HORIZON_SQL.formatted(ledger))) {
+            rs.next();
+            return new Horizon(rs.getLong(1), rs.getLong(2));
+        }
+    }
+
+    private static List<String> queryNames(Connection connection) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(PARENTS_SQL)) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.transactionapp.ledger;
+
+import org.example.transactionapp.money.Money;
+
+import java.util.UUID;
+
+/**
+ * Текущий баланс кошелька: снимок плюс проводки после него.
+ */
+public record WalletBalance(UUID walletUid, UUID ownerUid, Money balance) {
+}
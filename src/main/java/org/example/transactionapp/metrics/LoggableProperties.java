@@ -0,0 +1,19 @@
+package org.example.transactionapp.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * @param argumentSampleRate доля вызовов @Loggable, аргументы которых пишутся в лог (0 — никогда, 1 — всегда)
+ * @param redactedFields     поля и параметры, значения которых заменяются на *** ("имя=значение", "имя: значение")
+ * @param maxArgumentsLength длина строки аргументов в логе, остаток обрезается
+ */
+@ConfigurationProperties(prefix = "transaction.loggable")
+public record LoggableProperties(
+        @DefaultValue("0.01") double argumentSampleRate,
+        @DefaultValue List<String> redactedFields,
+        @DefaultValue("512") int maxArgumentsLength
+) {
+}
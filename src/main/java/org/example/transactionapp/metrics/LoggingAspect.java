@@ -1,64 +1,138 @@
 package org.example.transactionapp.metrics;
 
-import groovy.util.logging.Slf4j;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-
-
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Метрики и лог вызовов @Loggable. Таймеры и счётчики операции регистрируются один раз
+ * и дальше берутся из map по имени операции, время — по System.nanoTime.
+ * Аргументы форматируются только для выборки вызовов ({@code argument-sample-rate}),
+ * значения полей из {@code redacted-fields} заменяются на ***.
+ */
 @Slf4j
 @Aspect
 @Component
-@RequiredArgsConstructor
 public class LoggingAspect {
 
-    private static final Logger log = LoggerFactory.getLogger(LoggingAspect.class);
-    private  final MeterRegistry meterRegistry;
+    private final MeterRegistry meterRegistry;
+    private final LoggableProperties properties;
+    private final Pattern redaction;
+    private final ConcurrentMap<String, OperationMeters> meters = new ConcurrentHashMap<>();
+
+    public LoggingAspect(MeterRegistry meterRegistry, LoggableProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.redaction = properties.redactedFields().isEmpty()
+                ? null
+                : Pattern.compile(properties.redactedFields().stream()
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|", "\\b(", ")(\\s*[=:]\\s*)[^,;\\s)}\\]]+")));
+    }
 
     @Around("@annotation(loggable)")
     public Object around(ProceedingJoinPoint joinPoint, Loggable loggable) throws Throwable {
 
         String operation = loggable.value();
-        long start = System.currentTimeMillis();
-        log.info("Operation START name={} args={}", operation, Arrays.toString(joinPoint.getArgs()));
+        OperationMeters operationMeters = meters.get(operation);
+        if (operationMeters == null) {
+            operationMeters = meters.computeIfAbsent(operation, name -> new OperationMeters(meterRegistry, name));
+        }
+        if (sampled()) {
+            log.info("Operation START name={} args={}", operation, formatArguments(joinPoint));
+        } else {
+            log.debug("Operation START name={}", operation);
+        }
 
+        long start = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
 
-            long duration = System.currentTimeMillis() - start;
+            long duration = System.nanoTime() - start;
+            operationMeters.success(duration);
+            if (log.isDebugEnabled()) {
+                log.debug("Operation SUCCESS name={} durationMs={}", operation, TimeUnit.NANOSECONDS.toMillis(duration));
+            }
+            return result;
 
-            meterRegistry.timer("operation.latency", "operation", operation, "status", "SUCCESS"
-            ).record(duration, TimeUnit.MILLISECONDS);
+        } catch (Throwable ex) {
 
-            meterRegistry.counter("operation.count", "operation", operation, "status", "SUCCESS"
-            ).increment();
+            long duration = System.nanoTime() - start;
+            operationMeters.error(ex, duration);
 
-            log.info("Operation SUCCESS name={} durationMs={}", operation, duration);
+            log.error("Operation ERROR name={} durationMs={} error={}", operation,
+                    TimeUnit.NANOSECONDS.toMillis(duration), ex.getMessage(), ex);
 
-            return result;
-
-        } catch (Throwable ex) {
+            throw ex;
+        }
+    }
 
-            long duration = System.currentTimeMillis() - start;
+    private boolean sampled() {
+        double rate = properties.argumentSampleRate();
+        return rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
 
-            meterRegistry.timer("operation.latency", "operation", operation, "status", "ERROR"
-            ).record(duration, TimeUnit.MILLISECONDS);
+    // "имя=значение" через запятую, переводы строк (toString моделей OpenAPI) схлопываются
+    private String formatArguments(ProceedingJoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        String[] names = joinPoint.getSignature() instanceof MethodSignature signature
+                ? signature.getParameterNames()
+                : null;
+        StringBuilder formatted = new StringBuilder().append('[');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                formatted.append(", ");
+            }
+            formatted.append(names != null && i < names.length ? names[i] : "arg" + i).append('=').append(args[i]);
+        }
+        String line = formatted.append(']').toString().replaceAll("\\s*\\R\\s*", " ");
+        if (redaction != null) {
+            line = redaction.matcher(line).replaceAll("$1$2***");
+        }
+        return line.length() > properties.maxArgumentsLength()
+                ? line.substring(0, properties.maxArgumentsLength()) + "..."
+                : line;
+    }
 
-            meterRegistry.counter("operation.count", "operation", operation, "status", "ERROR",
-                    "exception", ex.getClass().getSimpleName()
-            ).increment();
+    private static final class OperationMeters {
+
+        private final MeterRegistry meterRegistry;
+        private final String operation;
+        private final Timer successLatency;
+        private final Counter successCount;
+        private final Timer errorLatency;
+        private final ConcurrentMap<Class<?>, Counter> errorCounts = new ConcurrentHashMap<>();
+
+        OperationMeters(MeterRegistry meterRegistry, String operation) {
+            this.meterRegistry = meterRegistry;
+            this.operation = operation;
+            this.successLatency = meterRegistry.timer("operation.latency", "operation", operation, "status", "SUCCESS");
+            this.successCount = meterRegistry.counter("operation.count", "operation", operation, "status", "SUCCESS");
+            this.errorLatency = meterRegistry.timer("operation.latency", "operation", operation, "status", "ERROR");
+        }
 
-            log.error("Operation ERROR name={} durationMs={} error={}", operation, duration, ex.getMessage(), ex);
+        void success(long nanos) {
+            successLatency.record(nanos, TimeUnit.NANOSECONDS);
+            successCount.increment();
+        }
 
-            throw ex;
+        void error(Throwable ex, long nanos) {
+            errorLatency.record(nanos, TimeUnit.NANOSECONDS);
+            errorCounts.computeIfAbsent(ex.getClass(), type -> meterRegistry.counter("operation.count",
+                    "operation", operation, "status", "ERROR", "exception", type.getSimpleName())).increment();
         }
     }
 }
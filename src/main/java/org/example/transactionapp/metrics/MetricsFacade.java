@@ -1,15 +1,33 @@
 package org.example.transactionapp.metrics;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Component
 @RequiredArgsConstructor
 public class MetricsFacade {
 
     private final MeterRegistry meterRegistry;
 
+    private final AtomicLong outboxLagMillis = new AtomicLong();
+
+    @PostConstruct
+    void registerGauges() {
+        TimeGauge.builder("outbox.relay.lag", outboxLagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
     public void walletCreated(String currency) {
         meterRegistry.counter("wallet.create.count", "currency", currency).increment();
     }
@@ -21,4 +39,83 @@ public class MetricsFacade {
     public void walletFetched(boolean found) {
         meterRegistry.counter("wallet.get.count", "status", found ? "FOUND" : "NOT_FOUND").increment();
     }
+
+    public void outboxPublished(int count, Duration batchDuration) {
+        meterRegistry.counter("outbox.relay.published.count").increment(count);
+        meterRegistry.timer("outbox.relay.batch.latency").record(batchDuration);
+    }
+
+    public void outboxPublishFailed(String topic) {
+        meterRegistry.counter("outbox.relay.error.count", "topic", topic).increment();
+    }
+
+    public void listenerBatch(String topic, int size, Duration duration) {
+        meterRegistry.summary("kafka.listener.batch.size", "topic", topic).record(size);
+        meterRegistry.timer("kafka.listener.batch.latency", "topic", topic).record(duration);
+    }
+
+    public void idempotencyCache(String topic, int hits, int misses) {
+        meterRegistry.counter("kafka.idempotency.cache.count", "topic", topic, "result", "HIT").increment(hits);
+        meterRegistry.counter("kafka.idempotency.cache.count", "topic", topic, "result", "MISS").increment(misses);
+    }
+
+    public void duplicateEvents(String topic, int count) {
+        meterRegistry.counter("kafka.idempotency.duplicate.count", "topic", topic).increment(count);
+    }
+
+    public void outboxLag(Duration lag) {
+        outboxLagMillis.set(lag.toMillis());
+    }
+
+    // Снимки статистики Caffeine: hit ratio, промахи и вытеснения по размеру/TTL
+    public void cache(String name, Cache<?, ?> cache) {
+        Gauge.builder(name + ".cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+        FunctionCounter.builder(name + ".cache.count", cache, c -> c.stats().hitCount())
+                .tag("result", "HIT")
+                .register(meterRegistry);
+        FunctionCounter.builder(name + ".cache.count", cache, c -> c.stats().missCount())
+                .tag("result", "MISS")
+                .register(meterRegistry);
+        FunctionCounter.builder(name + ".cache.eviction.count", cache, c -> c.stats().evictionCount())
+                .register(meterRegistry);
+        Gauge.builder(name + ".cache.size", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    public void asyncConfirmRejected() {
+        meterRegistry.counter("transaction.confirm.async.rejected.count").increment();
+    }
+
+    public void statusStreams(Map<?, ? extends Map<?, ?>> subscribers) {
+        Gauge.builder("transaction.status.stream.active", subscribers,
+                        s -> s.values().stream().mapToInt(Map::size).sum())
+                .register(meterRegistry);
+    }
+
+    public void virtualThreadPinned(String site, Duration duration) {
+        meterRegistry.timer("jvm.virtual.thread.pinned", "site", site).record(duration);
+    }
+
+    public void statementBudgetExceeded(String method, String kind) {
+        meterRegistry.counter("hibernate.statement.budget.exceeded.count", "method", method, "kind", kind).increment();
+    }
+
+    public void partitionArchived(String shard, long rows) {
+        meterRegistry.counter("transaction.partition.archived.count", "shard", shard).increment();
+        meterRegistry.counter("transaction.partition.archived.rows", "shard", shard).increment(rows);
+    }
+
+    public void ledgerSnapshot(String shard, long entries) {
+        meterRegistry.counter("transaction.ledger.snapshot.count", "shard", shard).increment();
+        meterRegistry.counter("transaction.ledger.snapshot.entries", "shard", shard).increment(entries);
+    }
+
+    public void reconciliation(Duration duration, long wallets, long rows, Map<String, Long> mismatches) {
+        meterRegistry.timer("wallet.reconciliation.duration").record(duration);
+        meterRegistry.counter("wallet.reconciliation.wallets").increment(wallets);
+        meterRegistry.counter("wallet.reconciliation.rows").increment(rows);
+        mismatches.forEach((kind, count) ->
+                meterRegistry.counter("wallet.reconciliation.mismatch.count", "kind", kind).increment(count));
+    }
 }
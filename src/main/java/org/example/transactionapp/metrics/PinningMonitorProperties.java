@@ -0,0 +1,14 @@
+package org.example.transactionapp.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "transaction.virtual-threads.pinning")
+public record PinningMonitorProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20ms") Duration threshold,
+        @DefaultValue("50") int maxLoggedStacks
+) {
+}
@@ -0,0 +1,24 @@
+package org.example.transactionapp.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Предел SQL-операторов за вызов метода, включая flush при коммите. -1 — без ограничения.
+ * JDBC batch считается одним оператором: Hibernate готовит его SQL один раз.
+ * Превышение — метрика и предупреждение: бюджет следит за продом, регрессии ловят тесты.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    int selects() default -1;
+
+    int inserts() default -1;
+
+    int updates() default -1;
+
+    int deletes() default -1;
+}
@@ -0,0 +1,56 @@
+package org.example.transactionapp.metrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сверяет число SQL за вызов с {@link StatementBudget}. Снаружи транзакционного прокси,
+ * чтобы в счёт попал и flush при коммите.
+ */
+@Slf4j
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StatementBudgetAspect {
+
+    private static final String[] KINDS = {"select", "insert", "update", "delete"};
+
+    private final StatementCounter counter;
+    private final StatementBudgetProperties properties;
+    private final MetricsFacade metrics;
+
+    @Around("@annotation(budget)")
+    public Object around(ProceedingJoinPoint joinPoint, StatementBudget budget) throws Throwable {
+        if (!properties.enabled()) {
+            return joinPoint.proceed();
+        }
+        int[] outer = counter.start();
+        int[] counts;
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } finally {
+            counts = counter.stop(outer);
+        }
+        check(joinPoint.getSignature().toShortString(), budget, counts);
+        return result;
+    }
+
+    private void check(String method, StatementBudget budget, int[] counts) {
+        int[] limits = {budget.selects(), budget.inserts(), budget.updates(), budget.deletes()};
+        for (int kind = 0; kind < limits.length; kind++) {
+            if (limits[kind] >= 0 && counts[kind] > limits[kind]) {
+                metrics.statementBudgetExceeded(method, KINDS[kind]);
+                log.warn("Превышен бюджет SQL — {}: {} {} при пределе {}",
+                        method, counts[kind], KINDS[kind], limits[kind]);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.transactionapp.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "transaction.statement-budget")
+public record StatementBudgetProperties(
+        @DefaultValue("true") boolean enabled
+) {
+}
@@ -0,0 +1,69 @@
+package org.example.transactionapp.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL, которые Hibernate готовит в текущем потоке, пока открыт счёт {@link #start()}.
+ * Вне счёта стоимость — одно чтение ThreadLocal на оператор.
+ */
+public class StatementCounter implements StatementInspector {
+
+    static final int SELECT = 0;
+    static final int INSERT = 1;
+    static final int UPDATE = 2;
+    static final int DELETE = 3;
+
+    private static final ThreadLocal<int[]> COUNTS = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] counts = COUNTS.get();
+        if (counts != null) {
+            int kind = kind(sql);
+            if (kind >= 0) {
+                counts[kind]++;
+            }
+        }
+        return sql;
+    }
+
+    // Возвращает счёт внешнего вызова, чтобы вложенный мог добавить к нему свои операторы
+    int[] start() {
+        int[] outer = COUNTS.get();
+        COUNTS.set(new int[4]);
+        return outer;
+    }
+
+    int[] stop(int[] outer) {
+        int[] counts = COUNTS.get();
+        if (outer == null) {
+            COUNTS.remove();
+        } else {
+            for (int i = 0; i < counts.length; i++) {
+                outer[i] += counts[i];
+            }
+            COUNTS.set(outer);
+        }
+        return counts;
+    }
+
+    private static int kind(String sql) {
+        int i = 0;
+        while (i < sql.length() && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(')) {
+            i++;
+        }
+        if (sql.regionMatches(true, i, "select", 0, 6) || sql.regionMatches(true, i, "with", 0, 4)) {
+            return SELECT;
+        }
+        if (sql.regionMatches(true, i, "insert", 0, 6)) {
+            return INSERT;
+        }
+        if (sql.regionMatches(true, i, "update", 0, 6)) {
+            return UPDATE;
+        }
+        if (sql.regionMatches(true, i, "delete", 0, 6)) {
+            return DELETE;
+        }
+        return -1;
+    }
+}
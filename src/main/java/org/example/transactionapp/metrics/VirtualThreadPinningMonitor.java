@@ -0,0 +1,82 @@
+package org.example.transactionapp.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Следит за закреплением виртуальных потоков на носителе (synchronized, native-кадры) через JFR.
+ * Каждое событие дольше порога идёт в метрику, уникальные стеки — в лог, не больше заданного числа.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(prefix = "transaction.virtual-threads.pinning", name = "enabled", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final PinningMonitorProperties properties;
+    private final MetricsFacade metrics;
+
+    private final Set<String> loggedStacks = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(properties.threshold()).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Мониторинг закрепления виртуальных потоков включён, порог {}", properties.threshold());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = site(event);
+        metrics.virtualThreadPinned(site, event.getDuration());
+        if (event.getStackTrace() == null || loggedStacks.size() >= properties.maxLoggedStacks()) {
+            return;
+        }
+        String stack = event.getStackTrace().getFrames().stream()
+                .map(VirtualThreadPinningMonitor::format)
+                .collect(Collectors.joining("\n\tat "));
+        if (loggedStacks.add(stack)) {
+            log.warn("Виртуальный поток закреплён на {} мс в {}:\n\tat {}",
+                    event.getDuration().toMillis(), site, stack);
+        }
+    }
+
+    // Первый кадр приложения, иначе верхний кадр: метка метрики должна быть с малой кардинальностью
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith("org.example.transactionapp"))
+                .findFirst()
+                .orElse(event.getStackTrace().getFrames().get(0))
+                .getMethod().getType().getName();
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+}
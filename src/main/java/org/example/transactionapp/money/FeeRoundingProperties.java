@@ -0,0 +1,16 @@
+package org.example.transactionapp.money;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.RoundingMode;
+
+/**
+ * Масштаб и режим округления рассчитанной комиссии.
+ */
+@ConfigurationProperties(prefix = "transaction.fee.rounding")
+public record FeeRoundingProperties(
+        @DefaultValue("2") int scale,
+        @DefaultValue("HALF_UP") RoundingMode mode
+) {
+}
@@ -0,0 +1,151 @@
+package org.example.transactionapp.money;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная сумма с фиксированной точкой: целое число минимальных единиц и масштаб.
+ * Сложение, вычитание и сравнение выполняются на long без промежуточных BigDecimal,
+ * переполнение приводит к {@link ArithmeticException}.
+ * Как и у BigDecimal, {@code equals} учитывает масштаб, для сравнения сумм используйте {@link #compareTo}.
+ */
+public record Money(long minorUnits, int scale) implements Comparable<Money>, Serializable {
+
+    public static final int MAX_SCALE = 18;
+
+    /** Масштаб колонок balance/amount/fee в БД. */
+    public static final int STORAGE_SCALE = 4;
+
+    public static final Money ZERO = new Money(0, 0);
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public Money {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Недопустимый масштаб суммы: " + scale);
+        }
+    }
+
+    public static Money ofMinor(long minorUnits, int scale) {
+        return new Money(minorUnits, scale);
+    }
+
+    @JsonCreator
+    public static Money of(BigDecimal value) {
+        return of(value, Math.max(value.scale(), 0));
+    }
+
+    /**
+     * @throws ArithmeticException если значение не представимо в заданном масштабе без округления
+     */
+    public static Money of(BigDecimal value, int scale) {
+        return new Money(value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact(), scale);
+    }
+
+    public Money plus(Money other) {
+        if (scale == other.scale) {
+            return new Money(Math.addExact(minorUnits, other.minorUnits), scale);
+        }
+        int common = Math.max(scale, other.scale);
+        return new Money(Math.addExact(rescaleUp(minorUnits, common - scale),
+                rescaleUp(other.minorUnits, common - other.scale)), common);
+    }
+
+    public Money minus(Money other) {
+        return plus(other.negate());
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), scale);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public Money withScale(int newScale, RoundingMode roundingMode) {
+        if (newScale == scale) {
+            return this;
+        }
+        if (newScale > scale) {
+            return new Money(rescaleUp(minorUnits, newScale - scale), newScale);
+        }
+        return new Money(divide(minorUnits, POWERS_OF_TEN[scale - newScale], roundingMode), newScale);
+    }
+
+    /**
+     * Доля суммы, заданная в миллионных долях (10 000 ppm = 1%), с точным округлением до {@code resultScale}.
+     */
+    public Money partPerMillion(long ppm, int resultScale, RoundingMode roundingMode) {
+        long product = Math.multiplyExact(minorUnits, ppm);
+        int productScale = scale + 6;
+        if (resultScale >= productScale) {
+            return new Money(rescaleUp(product, resultScale - productScale), resultScale);
+        }
+        int shift = productScale - resultScale;
+        if (shift > MAX_SCALE) {
+            throw new ArithmeticException("Слишком большая разница масштабов: " + shift);
+        }
+        return new Money(divide(product, POWERS_OF_TEN[shift], roundingMode), resultScale);
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (scale == other.scale) {
+            return Long.compare(minorUnits, other.minorUnits);
+        }
+        int common = Math.max(scale, other.scale);
+        return Long.compare(rescaleUp(minorUnits, common - scale), rescaleUp(other.minorUnits, common - other.scale));
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private static long rescaleUp(long value, int digits) {
+        return digits == 0 ? value : Math.multiplyExact(value, POWERS_OF_TEN[digits]);
+    }
+
+    // Целочисленное деление с округлением по правилам RoundingMode, divisor > 0
+    static long divide(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = Long.signum(dividend);
+        int half = Long.compare(Math.abs(remainder), divisor - Math.abs(remainder));
+        boolean awayFromZero = switch (roundingMode) {
+            case UNNECESSARY -> throw new ArithmeticException("Требуется округление");
+            case DOWN -> false;
+            case UP -> true;
+            case FLOOR -> sign < 0;
+            case CEILING -> sign > 0;
+            case HALF_UP -> half >= 0;
+            case HALF_DOWN -> half > 0;
+            case HALF_EVEN -> half > 0 || (half == 0 && (quotient & 1) != 0);
+        };
+        return awayFromZero ? quotient + sign : quotient;
+    }
+}
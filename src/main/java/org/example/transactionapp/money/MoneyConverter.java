@@ -0,0 +1,25 @@
+package org.example.transactionapp.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Хранит {@link Money} в DECIMAL-колонках с масштабом {@link Money#STORAGE_SCALE}.
+ * Чтение без округления опирается на тип колонок NUMERIC(19, 4) (V17): лишних знаков в них быть не может.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.withScale(Money.STORAGE_SCALE, RoundingMode.UNNECESSARY).toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal value) {
+        return value == null ? null : Money.of(value, Money.STORAGE_SCALE);
+    }
+}
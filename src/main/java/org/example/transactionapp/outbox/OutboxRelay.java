@@ -0,0 +1,115 @@
+package org.example.transactionapp.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.entity.OutboxEvent;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.repository.OutboxRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Переносит события из outbox в Kafka пачками.
+ * Строки захватываются через FOR UPDATE SKIP LOCKED, поэтому несколько экземпляров сервиса
+ * могут работать параллельно. Отправки внутри пачки идут без ожидания друг друга,
+ * удаляются только события, подтверждённые брокером, остальные будут отправлены повторно.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "outbox.relay", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+    private final MetricsFacade metrics;
+
+    private final Map<String, Class<?>> payloadTypes = new ConcurrentHashMap<>();
+
+    // Следующая пачка сразу — только если вся текущая подтверждена брокером; при сбоях ждём poll-interval
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval:200ms}")
+    public void poll() {
+        Integer relayed;
+        do {
+            relayed = transactionTemplate.execute(status -> relayBatch());
+        } while (relayed != null && relayed == properties.batchSize() && !Thread.currentThread().isInterrupted());
+    }
+
+    private int relayBatch() {
+        long start = System.nanoTime();
+        List<OutboxEvent> batch = outboxRepository.lockNextBatch(properties.batchSize());
+        if (batch.isEmpty()) {
+            metrics.outboxLag(Duration.ZERO);
+            return 0;
+        }
+        metrics.outboxLag(Duration.between(batch.get(0).getCreatedAt(), OffsetDateTime.now()));
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            try {
+                sends.add(kafkaTemplate.send(event.getTopic(), event.getMessageKey(), deserialize(event)));
+            } catch (RuntimeException ex) {
+                sends.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+
+        // Одно общее ожидание на пачку: блокировки строк держатся не дольше send-timeout
+        long deadline = System.nanoTime() + properties.sendTimeout().toNanos();
+        List<UUID> published = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(event.getId());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Отправка пачки outbox прервана, подтверждено {} из {}", published.size(), batch.size());
+                break;
+            } catch (ExecutionException | TimeoutException ex) {
+                metrics.outboxPublishFailed(event.getTopic());
+                log.warn("Не удалось отправить событие outbox id={} topic={}: {}",
+                        event.getId(), event.getTopic(), ex instanceof ExecutionException ? ex.getCause() : ex.toString());
+            }
+        }
+
+        outboxRepository.deleteAllByIdInBatch(published);
+        metrics.outboxPublished(published.size(), Duration.ofNanos(System.nanoTime() - start));
+        return published.size();
+    }
+
+    private Object deserialize(OutboxEvent event) {
+        try {
+            Class<?> type = payloadTypes.computeIfAbsent(event.getPayloadType(), this::loadType);
+            return objectMapper.readValue(event.getPayload(), type);
+        } catch (Exception e) {
+            throw new IllegalStateException("Повреждённое событие outbox id=%s".formatted(event.getId()), e);
+        }
+    }
+
+    private Class<?> loadType(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Неизвестный тип события outbox: " + className, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.transactionapp.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.entity.OutboxEvent;
+import org.example.transactionapp.entity.Transaction;
+import org.example.transactionapp.repository.OutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Записывает событие в outbox в той же транзакции БД, что и строку транзакции.
+ * Публикацией в Kafka занимается {@link OutboxRelay}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Transaction transaction, String topic, String key, Object payload) {
+        OutboxEvent event = OutboxEvent.builder()
+                .createdAt(OffsetDateTime.now())
+                .userUid(transaction.getUserUid())
+                .aggregateId(transaction.getId())
+                .topic(topic)
+                .messageKey(key)
+                .payloadType(payload.getClass().getName())
+                .payload(serialize(payload))
+                .build();
+        outboxRepository.save(event);
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие %s"
+                    .formatted(payload.getClass().getSimpleName()), e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.transactionapp.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.export.ExportProperties;
+import org.example.transactionapp.export.ShardDataSources;
+import org.example.transactionapp.export.TransactionArchive;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание месячных секций transactions_N_pYYYYMM и ledger_entries_N_pYYYYMM в каждом шарде:
+ * заранее создаёт секции на {@code premake-months} вперёд, секции transactions старше {@code retention}
+ * пишет в колоночный архив ({@link TransactionArchive}), отсоединяет и удаляет.
+ * Секции журнала проводок не архивируются: на них опираются балансы кошельков.
+ * Архив пишется из ещё присоединённой секции и сбрасывается на диск. Затем одной транзакцией секция
+ * закрывается от записи, число строк сверяется с архивом, путь и хост записываются в transaction_archives,
+ * суммы проведённых транзакций по кошелькам — в archived_wallet_totals для сверки, и только после этого
+ * секция отсоединяется и удаляется. Сбой на любом шаге оставляет секцию присоединённой: выгрузка и сверка
+ * по-прежнему её видят, архив пишется заново при следующем запуске.
+ * {@code archive-dir} должен быть общим хранилищем всех экземпляров: секцию архивирует тот,
+ * кто взял блокировку, а выгружать её может любой.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "transaction.partitions", name = "enabled", matchIfMissing = true)
+public class PartitionMaintainer {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION = Pattern.compile("^(transactions_\\d+)_p(\\d{6})$");
+
+    // Несколько экземпляров приложения: обслуживает шард тот, кто взял блокировку
+    private static final String LOCK_SQL = "select pg_try_advisory_lock(hashtext('transactions-partitions'))";
+    private static final String UNLOCK_SQL = "select pg_advisory_unlock(hashtext('transactions-partitions'))";
+
+    private static final String PARENTS_SQL = """
+            select c.relname
+              from pg_partitioned_table pt
+              join pg_class c on c.oid = pt.partrelid
+             where c.relnamespace = current_schema()::regnamespace and c.relname ~ '^(transactions|ledger_entries)_[0-9]+$'""";
+
+    private static final String PARTITIONS_SQL = """
+            select c.relname, c.relispartition
+              from pg_class c
+             where c.relnamespace = current_schema()::regnamespace and c.relkind = 'r'
+               and c.relname ~ '^transactions_[0-9]+_p[0-9]{6}$'""";
+
+    // Путь записывается вместе с DROP: без строки каталога секция остаётся и архив пишется заново
+    private static final String RECORD_SQL = """
+            insert into transaction_archives (partition_name, location, host, row_count)
+            values (?, ?, ?, ?)
+            on conflict (partition_name) do update
+               set location = excluded.location, host = excluded.host,
+                   row_count = excluded.row_count, archived_at = now()""";
+
+    // Те же правила, что у сверки (ShardScan): перевод списывает amount + fee и зачисляет amount цели
+    private static final String TOTALS_SQL = """
+            insert into archived_wallet_totals (parent_table, user_uid, wallet_uid, net)
+            select ?, user_uid, wallet_uid, sum(net)
+              from (select user_uid, wallet_uid,
+                           case type when 'TRANSFER' then -(amount + coalesce(fee, 0)) else amount end as net
+                      from %1$s
+                     where status = 'COMPLETED' and type in ('TRANSFER', 'DEPOSIT')
+                    union all
+                    select user_uid, target_wallet_uid, amount
+                      from %1$s
+                     where status = 'COMPLETED' and type = 'TRANSFER' and target_wallet_uid is not null) moves
+             group by user_uid, wallet_uid
+            on conflict (parent_table, user_uid, wallet_uid) do update
+               set net = archived_wallet_totals.net + excluded.net, modified_at = now()""";
+
+    private final ShardDataSources shardDataSources;
+    private final PartitionProperties properties;
+    private final ExportProperties exportProperties;
+    private final MetricsFacade metrics;
+
+    @Scheduled(cron = "${transaction.partitions.maintenance-cron:0 20 3 * * *}")
+    public void maintain() {
+        shardDataSources.get().forEach((shard, dataSource) -> {
+            try {
+                maintain(shard, dataSource);
+            } catch (SQLException | IOException | RuntimeException e) {
+                log.error("Обслуживание секций в {} не выполнено", shard, e);
+            }
+        });
+    }
+
+    private void maintain(String shard, DataSource dataSource) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            if (!queryBoolean(connection, LOCK_SQL)) {
+                log.info("Секции {} обслуживает другой экземпляр", shard);
+                return;
+            }
+            try {
+                YearMonth current = YearMonth.now(ZoneOffset.UTC);
+                YearMonth oldestKept = YearMonth.from(LocalDate.now(ZoneOffset.UTC).minus(properties.retention()));
+                for (String parent : queryNames(connection, PARENTS_SQL)) {
+                    for (int i = 0; i <= properties.premakeMonths(); i++) {
+                        createPartition(connection, parent, current.plusMonths(i));
+                    }
+                }
+                archiveExpired(connection, shard, oldestKept);
+            } finally {
+                queryBoolean(connection, UNLOCK_SQL);
+            }
+        }
+    }
+
+    private void createPartition(Connection connection, String parent, YearMonth month) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists %s partition of %s for values from ('%s') to ('%s')"
+                    .formatted(partitionName(parent, month), parent, month.atDay(1), month.plusMonths(1).atDay(1)));
+        }
+    }
+
+    // Секции месяцев раньше oldestKept. Отсоединённые без архива остаются от прежних версий — их архивирует тот же путь
+    private void archiveExpired(Connection connection, String shard, YearMonth oldestKept)
+            throws SQLException, IOException {
+        List<String[]> expired = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(PARTITIONS_SQL);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                Matcher matcher = PARTITION.matcher(rs.getString(1));
+                if (matcher.matches() && YearMonth.parse(matcher.group(2), MONTH).isBefore(oldestKept)) {
+                    expired.add(new String[]{rs.getString(1), matcher.group(1), String.valueOf(rs.getBoolean(2))});
+                }
+            }
+        }
+        for (String[] partition : expired) {
+            archive(connection, shard, partition[1], partition[0], Boolean.parseBoolean(partition[2]));
+        }
+    }
+
+    private void archive(Connection connection, String shard, String parent, String partition, boolean attached)
+            throws SQLException, IOException {
+        Path target = properties.archiveDir().resolve(shard).resolve(partition + TransactionArchive.EXTENSION);
+        long rows = TransactionArchive.write(connection, partition, target, exportProperties.fetchSize());
+        connection.setAutoCommit(false);
+        try (PreparedStatement record = connection.prepareStatement(RECORD_SQL);
+             PreparedStatement totals = connection.prepareStatement(TOTALS_SQL.formatted(partition));
+             Statement statement = connection.createStatement()) {
+            statement.execute("set local lock_timeout = %d".formatted(properties.detachLockTimeout().toMillis()));
+            // Запись в секцию ждёт до конца транзакции: строки, сверенные с архивом, и есть удаляемые
+            statement.execute("lock table %s in share mode".formatted(partition));
+            long expected;
+            try (ResultSet rs = statement.executeQuery("select count(*) from " + partition)) {
+                rs.next();
+                expected = rs.getLong(1);
+            }
+            if (rows != expected) {
+                throw new IllegalStateException("Архив %s: записано %d строк из %d, секция оставлена"
+                        .formatted(target, rows, expected));
+            }
+            record.setString(1, partition);
+            record.setString(2, target.toAbsolutePath().toString());
+            record.setString(3, InetAddress.getLocalHost().getHostName());
+            record.setLong(4, rows);
+            record.executeUpdate();
+            totals.setString(1, parent);
+            totals.executeUpdate();
+            if (attached) {
+                statement.execute("alter table %s detach partition %s".formatted(parent, partition));
+            }
+            statement.execute("drop table " + partition);
+            connection.commit();
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        metrics.partitionArchived(shard, rows);
+        log.info("Секция {}.{} ({} строк) перенесена в архив {}", shard, partition, rows, target);
+    }
+
+    static String partitionName(String parent, YearMonth month) {
+        return parent + "_p" + month.format(MONTH);
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static List<String> queryNames(Connection connection, String sql) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+}
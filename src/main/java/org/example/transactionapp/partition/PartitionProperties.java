@@ -0,0 +1,18 @@
+package org.example.transactionapp.partition;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Period;
+
+@ConfigurationProperties(prefix = "transaction.partitions")
+public record PartitionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("3") int premakeMonths,
+        @DefaultValue("P13M") Period retention,
+        @DefaultValue("archive") Path archiveDir,
+        @DefaultValue("5s") Duration detachLockTimeout
+) {
+}
@@ -0,0 +1,12 @@
+package org.example.transactionapp.reconciliation;
+
+public enum MismatchKind {
+    /** Сумма проводок кошелька не равна сумме его проведённых транзакций и начального баланса. */
+    DRIFT,
+    /** Снимок плюс хвост не равен сумме всех проводок кошелька — снимок испорчен свёрткой или правкой wallets. */
+    BALANCE_DRIFT,
+    /** Текущий баланс (снимок плюс хвост) отрицательный — списание прошло мимо проверки. */
+    NEGATIVE_BALANCE,
+    /** Проводки есть, строки кошелька в той же таблице шарда нет. */
+    ORPHAN_ENTRIES
+}
@@ -0,0 +1,22 @@
+package org.example.transactionapp.reconciliation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * @param ranges      на сколько диапазонов id кошельков делится сверка
+ * @param parallelism сколько диапазонов сверяется одновременно; столько же соединений на шард
+ */
+@ConfigurationProperties(prefix = "transaction.reconciliation")
+public record ReconciliationProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("64") int ranges,
+        @DefaultValue("2") int parallelism,
+        @DefaultValue("5000") int fetchSize,
+        @DefaultValue("5s") Duration recheckDelay,
+        @DefaultValue("reconciliation") Path reportDir
+) {
+}
@@ -0,0 +1,85 @@
+package org.example.transactionapp.reconciliation;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Задания сверки делятся пополам до одного фильтра (диапазона id кошельков). Лист читает
+ * все шарды и таблицы своего диапазона в один аккумулятор: транзакции кошелька могут лежать
+ * в чужом шарде (перевод хранится у отправителя), проводки и снимок — у владельца кошелька.
+ */
+final class ReconciliationTask extends RecursiveTask<ReconciliationTask.Result> {
+
+    record Result(long wallets, long rows, List<WalletMismatch> mismatches) {
+
+        Result merge(Result other) {
+            List<WalletMismatch> merged = new ArrayList<>(mismatches.size() + other.mismatches.size());
+            merged.addAll(mismatches);
+            merged.addAll(other.mismatches);
+            return new Result(wallets + other.wallets, rows + other.rows, merged);
+        }
+    }
+
+    private final Map<String, DataSource> shards;
+    private final Map<String, List<String>> suffixes;
+    private final List<WalletFilter> filters;
+    private final int from;
+    private final int to;
+    private final int fetchSize;
+
+    ReconciliationTask(Map<String, DataSource> shards, Map<String, List<String>> suffixes,
+                       List<WalletFilter> filters, int fetchSize) {
+        this(shards, suffixes, filters, 0, filters.size(), fetchSize);
+    }
+
+    private ReconciliationTask(Map<String, DataSource> shards, Map<String, List<String>> suffixes,
+                               List<WalletFilter> filters, int from, int to, int fetchSize) {
+        this.shards = shards;
+        this.suffixes = suffixes;
+        this.filters = filters;
+        this.from = from;
+        this.to = to;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    protected Result compute() {
+        if (to - from <= 1) {
+            return from == to ? new Result(0, 0, List.of()) : scan(filters.get(from));
+        }
+        int middle = (from + to) >>> 1;
+        ReconciliationTask left = new ReconciliationTask(shards, suffixes, filters, from, middle, fetchSize);
+        left.fork();
+        Result right = new ReconciliationTask(shards, suffixes, filters, middle, to, fetchSize).compute();
+        return left.join().merge(right);
+    }
+
+    private Result scan(WalletFilter filter) {
+        WalletAccumulator accumulator = new WalletAccumulator(1024);
+        long rows = 0;
+        for (Map.Entry<String, DataSource> shard : shards.entrySet()) {
+            try (Connection connection = shard.getValue().getConnection()) {
+                // Курсор с fetchSize работает только внутри транзакции
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                try {
+                    for (String suffix : suffixes.get(shard.getKey())) {
+                        rows += ShardScan.scan(connection, suffix, filter, fetchSize, accumulator);
+                    }
+                } finally {
+                    connection.rollback();
+                    connection.setReadOnly(false);
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Сверка %s по %s не выполнена".formatted(shard.getKey(), filter), e);
+            }
+        }
+        return new Result(accumulator.size(), rows, accumulator.mismatches());
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.transactionapp.reconciliation;
+
+import org.example.transactionapp.money.Money;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Чтение таблиц одного шарда для задания сверки. Все выборки идут по индексам с ведущей колонкой
+ * id кошелька (V8/V10, V11, V12, V14, V16) и отдаются потоком с fetchSize: строки сразу складываются
+ * в {@link WalletAccumulator}, в памяти не копятся.
+ */
+final class ShardScan {
+
+    private ShardScan() {
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Кошельки таблицы wallets{suffix} и их проводки, затем то, чем проводки должны объясняться:
+     * транзакции transactions{suffix} (исходящие по wallet_uid, входящие переводы по target_wallet_uid),
+     * начальные балансы и суммы архивированных секций.
+     *
+     * @return прочитано строк
+     */
+    static long scan(Connection connection, String suffix, WalletFilter filter, int fetchSize,
+                     WalletAccumulator accumulator) throws SQLException {
+        long rows = query(connection, "select uid, balance, snapshot_seq from wallets" + suffix
+                        + " where " + filter.condition("uid"), filter, fetchSize,
+                rs -> accumulator.wallet(rs.getObject(1, UUID.class), minor(rs.getBigDecimal(2)), rs.getLong(3)));
+
+        rows += query(connection, "select wallet_uid, seq, amount from ledger_entries" + suffix
+                        + " where " + filter.condition("wallet_uid"), filter, fetchSize,
+                rs -> accumulator.entry(rs.getObject(1, UUID.class), rs.getLong(2), minor(rs.getBigDecimal(3))));
+
+        // Выводы пока не меняют баланс (списание при выводе не реализовано), поэтому не учитываются
+        rows += query(connection, "select wallet_uid, type, amount, fee from transactions" + suffix
+                        + " where " + filter.condition("wallet_uid") + " and status = 'COMPLETED'", filter, fetchSize,
+                rs -> {
+                    switch (rs.getString(2)) {
+                        case "TRANSFER" -> accumulator.transaction(rs.getObject(1, UUID.class),
+                                -minor(rs.getBigDecimal(3)) - minor(rs.getBigDecimal(4)));
+                        case "DEPOSIT" -> accumulator.transaction(rs.getObject(1, UUID.class), minor(rs.getBigDecimal(3)));
+                        default -> {
+                        }
+                    }
+                });
+
+        rows += query(connection, "select target_wallet_uid, amount from transactions" + suffix
+                        + " where " + filter.condition("target_wallet_uid")
+                        + " and type = 'TRANSFER' and status = 'COMPLETED'", filter, fetchSize,
+                rs -> accumulator.transaction(rs.getObject(1, UUID.class), minor(rs.getBigDecimal(2))));
+
+        // Начальный баланс: встречная проводка OPENING_BALANCE, transaction_uid — id кошелька
+        rows += query(connection, "select transaction_uid, amount from ledger_entries" + suffix
+                        + " where account = 'OPENING_BALANCE' and " + filter.condition("transaction_uid"),
+                filter, fetchSize,
+                rs -> accumulator.transaction(rs.getObject(1, UUID.class), -minor(rs.getBigDecimal(2))));
+
+        // Секции transactions{suffix}, удалённые после архивации, — суммой по кошельку
+        rows += query(connection, "select wallet_uid, net from archived_wallet_totals"
+                        + " where parent_table = 'transactions" + suffix + "' and " + filter.condition("wallet_uid"),
+                filter, fetchSize,
+                rs -> accumulator.transaction(rs.getObject(1, UUID.class), minor(rs.getBigDecimal(2))));
+        return rows;
+    }
+
+    private static long query(Connection connection, String sql, WalletFilter filter, int fetchSize,
+                              RowHandler handler) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(fetchSize);
+            filter.bind(statement, 1);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handler.accept(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static long minor(BigDecimal value) {
+        return value == null ? 0 : Money.of(value, Money.STORAGE_SCALE).minorUnits();
+    }
+}
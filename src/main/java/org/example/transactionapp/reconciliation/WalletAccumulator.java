@@ -0,0 +1,163 @@
+package org.example.transactionapp.reconciliation;
+
+import org.example.transactionapp.money.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Суммы по кошелькам одного задания сверки: открытая адресация по двум long uuid,
+ * значения — в параллельных массивах long в минимальных единицах масштаба хранения.
+ * Строка результата не создаёт объектов, кроме ключа; не потокобезопасен.
+ */
+final class WalletAccumulator {
+
+    private static final byte WALLET = 1;
+    private static final byte LEDGER = 2;
+    private static final byte TRANSACTIONS = 4;
+    // Старший бит — слот занят
+    private static final byte USED = Byte.MIN_VALUE;
+
+    private long[] msb;
+    private long[] lsb;
+    private byte[] flags;
+    private long[] snapshot;
+    private long[] snapshotSeq;
+    private long[] tail;
+    private long[] ledgerNet;
+    private long[] transactionNet;
+    private int size;
+
+    WalletAccumulator(int expectedWallets) {
+        allocate(Integer.highestOneBit(Math.max(16, expectedWallets * 2 - 1)) << 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void wallet(UUID walletId, long balance, long seq) {
+        int slot = slot(walletId.getMostSignificantBits(), walletId.getLeastSignificantBits());
+        flags[slot] |= WALLET;
+        snapshot[slot] = balance;
+        snapshotSeq[slot] = seq;
+    }
+
+    // Таблица проводок читается после таблицы кошельков того же шарда: снимок к этому моменту известен
+    void entry(UUID walletId, long seq, long amount) {
+        int slot = slot(walletId.getMostSignificantBits(), walletId.getLeastSignificantBits());
+        flags[slot] |= LEDGER;
+        ledgerNet[slot] += amount;
+        if ((flags[slot] & WALLET) != 0 && seq > snapshotSeq[slot]) {
+            tail[slot] += amount;
+        }
+    }
+
+    void transaction(UUID walletId, long amount) {
+        int slot = slot(walletId.getMostSignificantBits(), walletId.getLeastSignificantBits());
+        flags[slot] |= TRANSACTIONS;
+        transactionNet[slot] += amount;
+    }
+
+    List<WalletMismatch> mismatches() {
+        List<WalletMismatch> mismatches = new ArrayList<>();
+        for (int slot = 0; slot < flags.length; slot++) {
+            byte flag = flags[slot];
+            if (flag == 0) {
+                continue;
+            }
+            long balance = snapshot[slot] + tail[slot];
+            if (ledgerNet[slot] != transactionNet[slot]) {
+                mismatches.add(mismatch(slot, MismatchKind.DRIFT));
+            }
+            if ((flag & WALLET) != 0 && balance != ledgerNet[slot]) {
+                mismatches.add(mismatch(slot, MismatchKind.BALANCE_DRIFT));
+            }
+            if ((flag & WALLET) != 0 && balance < 0) {
+                mismatches.add(mismatch(slot, MismatchKind.NEGATIVE_BALANCE));
+            }
+            if ((flag & WALLET) == 0 && (flag & LEDGER) != 0) {
+                mismatches.add(mismatch(slot, MismatchKind.ORPHAN_ENTRIES));
+            }
+        }
+        return mismatches;
+    }
+
+    private WalletMismatch mismatch(int slot, MismatchKind kind) {
+        return new WalletMismatch(new UUID(msb[slot], lsb[slot]), kind,
+                money(snapshot[slot] + tail[slot]), money(ledgerNet[slot]), money(transactionNet[slot]));
+    }
+
+    private static Money money(long minorUnits) {
+        return Money.ofMinor(minorUnits, Money.STORAGE_SCALE);
+    }
+
+    private int slot(long hi, long lo) {
+        int mask = flags.length - 1;
+        int slot = mix(hi, lo) & mask;
+        while (flags[slot] != 0) {
+            if (msb[slot] == hi && lsb[slot] == lo) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size + 1 > flags.length * 3 / 4) {
+            grow();
+            return slot(hi, lo);
+        }
+        msb[slot] = hi;
+        lsb[slot] = lo;
+        flags[slot] = USED;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldMsb = msb;
+        long[] oldLsb = lsb;
+        byte[] oldFlags = flags;
+        long[] oldSnapshot = snapshot;
+        long[] oldSnapshotSeq = snapshotSeq;
+        long[] oldTail = tail;
+        long[] oldLedgerNet = ledgerNet;
+        long[] oldTransactionNet = transactionNet;
+        allocate(oldFlags.length << 1);
+        int mask = flags.length - 1;
+        for (int i = 0; i < oldFlags.length; i++) {
+            if (oldFlags[i] == 0) {
+                continue;
+            }
+            int slot = mix(oldMsb[i], oldLsb[i]) & mask;
+            while (flags[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            msb[slot] = oldMsb[i];
+            lsb[slot] = oldLsb[i];
+            flags[slot] = oldFlags[i];
+            snapshot[slot] = oldSnapshot[i];
+            snapshotSeq[slot] = oldSnapshotSeq[i];
+            tail[slot] = oldTail[i];
+            ledgerNet[slot] = oldLedgerNet[i];
+            transactionNet[slot] = oldTransactionNet[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        msb = new long[capacity];
+        lsb = new long[capacity];
+        flags = new byte[capacity];
+        snapshot = new long[capacity];
+        snapshotSeq = new long[capacity];
+        tail = new long[capacity];
+        ledgerNet = new long[capacity];
+        transactionNet = new long[capacity];
+    }
+
+    private static int mix(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 32;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ h >>> 29);
+    }
+}
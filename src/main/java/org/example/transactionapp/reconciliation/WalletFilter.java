@@ -0,0 +1,54 @@
+package org.example.transactionapp.reconciliation;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Какие кошельки сверяются одним заданием: диапазон id (основной проход) или список (перепроверка).
+ * Сравнение uuid в Postgres беззнаковое побайтовое, как у WalletLockService.LOCK_ORDER.
+ */
+sealed interface WalletFilter {
+
+    String condition(String column);
+
+    /**
+     * @return индекс следующего параметра
+     */
+    int bind(PreparedStatement statement, int index) throws SQLException;
+
+    /**
+     * @param to верхняя граница не включительно, null — до конца пространства id
+     */
+    record Range(UUID from, UUID to) implements WalletFilter {
+
+        @Override
+        public String condition(String column) {
+            return to == null ? column + " >= ?" : column + " >= ? and " + column + " < ?";
+        }
+
+        @Override
+        public int bind(PreparedStatement statement, int index) throws SQLException {
+            statement.setObject(index++, from);
+            if (to != null) {
+                statement.setObject(index++, to);
+            }
+            return index;
+        }
+    }
+
+    record Ids(List<UUID> ids) implements WalletFilter {
+
+        @Override
+        public String condition(String column) {
+            return column + " = any (?)";
+        }
+
+        @Override
+        public int bind(PreparedStatement statement, int index) throws SQLException {
+            statement.setArray(index, statement.getConnection().createArrayOf("uuid", ids.toArray()));
+            return index + 1;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.transactionapp.reconciliation;
+
+import org.example.transactionapp.money.Money;
+
+import java.util.UUID;
+
+public record WalletMismatch(UUID walletUid, MismatchKind kind, Money balance, Money ledgerNet, Money transactionNet) {
+}
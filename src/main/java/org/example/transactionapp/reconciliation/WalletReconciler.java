@@ -0,0 +1,149 @@
+package org.example.transactionapp.reconciliation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.export.ShardDataSources;
+import org.example.transactionapp.metrics.Loggable;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ночная сверка кошельков: сумма проводок каждого кошелька против суммы его проведённых транзакций
+ * во всех шардах, сохранённый баланс (снимок плюс хвост) против суммы проводок, плюс знак баланса. Пространство id кошельков делится на {@code ranges}
+ * диапазонов, их обрабатывает отдельный ForkJoinPool из {@code parallelism} потоков на собственных
+ * пулах соединений того же размера — рабочий пул приложения не затрагивается.
+ * Найденные расхождения перепроверяются через {@code recheck-delay}: в отчёт попадают только
+ * устойчивые, а не строки, записанные между чтениями разных шардов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "transaction.reconciliation", name = "enabled", matchIfMissing = true)
+public class WalletReconciler {
+
+    private static final DateTimeFormatter REPORT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final int RECHECK_CHUNK = 1000;
+
+    private static final String TABLES_SQL = """
+            select c.relname
+              from pg_class c
+             where c.relnamespace = current_schema()::regnamespace and c.relkind = 'r'
+               and c.relname ~ '^wallets_[0-9]+$'""";
+
+    private final ShardDataSources shardDataSources;
+    private final ReconciliationProperties properties;
+    private final MetricsFacade metrics;
+
+    @Loggable("wallet.reconciliation")
+    @Scheduled(cron = "${transaction.reconciliation.cron:0 40 2 * * *}")
+    public void reconcile() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Map<String, DataSource> shards = shardDataSources.open("reconciliation", properties.parallelism());
+        ForkJoinPool pool = new ForkJoinPool(properties.parallelism());
+        try {
+            Map<String, List<String>> suffixes = tableSuffixes(shards);
+            ReconciliationTask.Result result = pool.invoke(
+                    new ReconciliationTask(shards, suffixes, ranges(properties.ranges()), properties.fetchSize()));
+            List<WalletMismatch> mismatches = result.mismatches().isEmpty()
+                    ? List.of()
+                    : recheck(pool, shards, suffixes, result.mismatches());
+
+            Path report = writeReport(mismatches);
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            Map<String, Long> byKind = new TreeMap<>();
+            mismatches.forEach(mismatch -> byKind.merge(mismatch.kind().name(), 1L, Long::sum));
+            metrics.reconciliation(duration, result.wallets(), result.rows(), byKind);
+            log.info("Сверка: {} кошельков, {} строк за {}, расхождений {} {}, отчёт {}",
+                    result.wallets(), result.rows(), duration, mismatches.size(), byKind, report);
+        } finally {
+            pool.shutdown();
+            ShardDataSources.close(shards);
+        }
+    }
+
+    private List<WalletMismatch> recheck(ForkJoinPool pool, Map<String, DataSource> shards,
+                                         Map<String, List<String>> suffixes, List<WalletMismatch> suspects)
+            throws InterruptedException {
+        Thread.sleep(properties.recheckDelay());
+        List<UUID> ids = suspects.stream().map(WalletMismatch::walletUid).distinct().toList();
+        List<WalletFilter> filters = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += RECHECK_CHUNK) {
+            filters.add(new WalletFilter.Ids(ids.subList(from, Math.min(from + RECHECK_CHUNK, ids.size()))));
+        }
+        return pool.invoke(new ReconciliationTask(shards, suffixes, filters, properties.fetchSize())).mismatches();
+    }
+
+    private Path writeReport(List<WalletMismatch> mismatches) throws IOException {
+        Files.createDirectories(properties.reportDir());
+        Path report = properties.reportDir().resolve(
+                "wallet-reconciliation-" + LocalDateTime.now(ZoneOffset.UTC).format(REPORT_TIME) + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(report)) {
+            writer.write("wallet_uid,kind,balance,ledger_net,transaction_net");
+            writer.newLine();
+            for (WalletMismatch mismatch : mismatches) {
+                writer.write(String.join(",", mismatch.walletUid().toString(), mismatch.kind().name(),
+                        mismatch.balance().toString(), mismatch.ledgerNet().toString(),
+                        mismatch.transactionNet().toString()));
+                writer.newLine();
+            }
+        }
+        return report;
+    }
+
+    // Равные по ширине диапазоны старших 64 бит id; последний открыт сверху
+    static List<WalletFilter> ranges(int count) {
+        BigInteger space = BigInteger.ONE.shiftLeft(64);
+        List<WalletFilter> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID from = new UUID(space.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count)).longValue(), 0);
+            UUID to = i + 1 == count
+                    ? null
+                    : new UUID(space.multiply(BigInteger.valueOf(i + 1)).divide(BigInteger.valueOf(count)).longValue(), 0);
+            ranges.add(new WalletFilter.Range(from, to));
+        }
+        return ranges;
+    }
+
+    // Суффиксы _N таблиц wallets_N; у каждой есть парные ledger_entries_N и transactions_N
+    private static Map<String, List<String>> tableSuffixes(Map<String, DataSource> shards) {
+        Map<String, List<String>> suffixes = new LinkedHashMap<>();
+        shards.forEach((shard, dataSource) -> {
+            List<String> found = new ArrayList<>();
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(TABLES_SQL)) {
+                while (rs.next()) {
+                    found.add(rs.getString(1).substring("wallets".length()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Таблицы шарда %s не прочитаны".formatted(shard), e);
+            }
+            suffixes.put(shard, found);
+        });
+        return suffixes;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.transactionapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.fee.FeeRule;
+import org.example.transactionapp.money.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class FeeRuleRepository {
+
+    private static final String LATEST_VERSION_SQL = "select max(version) from fee_schedules";
+    private static final String RULES_SQL = """
+            select payment_type, currency_code, tier, percent_ppm, fixed_fee, min_fee, max_fee
+              from fee_rules
+             where schedule_version = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<Long> findLatestVersion() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(LATEST_VERSION_SQL, Long.class));
+    }
+
+    public List<FeeRule> findByVersion(long version) {
+        return jdbcTemplate.query(RULES_SQL, (rs, rowNum) -> new FeeRule(
+                PaymentType.valueOf(rs.getString("payment_type")),
+                rs.getString("currency_code"),
+                rs.getString("tier"),
+                rs.getLong("percent_ppm"),
+                Money.of(rs.getBigDecimal("fixed_fee")),
+                toMoney(rs.getBigDecimal("min_fee")),
+                toMoney(rs.getBigDecimal("max_fee"))
+        ), version);
+    }
+
+    private static Money toMoney(BigDecimal value) {
+        return value == null ? null : Money.of(value);
+    }
+}
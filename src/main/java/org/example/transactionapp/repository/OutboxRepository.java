@@ -0,0 +1,25 @@
+package org.example.transactionapp.repository;
+
+import org.example.transactionapp.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    /**
+     * Забирает самые старые события, пропуская строки, уже захваченные другим экземпляром relay.
+     */
+    @Query(nativeQuery = true, value = """
+            select * from outbox
+             order by created_at
+             limit :limit
+               for update skip locked
+            """)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+}
@@ -0,0 +1,63 @@
+package org.example.transactionapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.entity.Transaction;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Журнал обработанных событий Kafka. Строка шардируется по user_uid транзакции,
+ * поэтому пишется в ту же БД и в той же транзакции, что и её изменение.
+ * Первичный ключ (topic, transaction_id) откатывает пачку, если то же событие параллельно обработал другой консьюмер.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProcessedEventRepository {
+
+    private static final String FIND_SQL = """
+            select transaction_id from processed_events
+             where topic = :topic and transaction_id in (:ids)
+            """;
+    private static final String INSERT_SQL = """
+            insert into processed_events (topic, transaction_id, user_uid, processed_at)
+            values (:topic, :transactionId, :userUid, now())
+            """;
+    private static final String PURGE_SQL = "delete from processed_events where processed_at < :before";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Set<UUID> findProcessed(String topic, Collection<UUID> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return Set.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("topic", topic)
+                .addValue("ids", transactionIds);
+        return new HashSet<>(jdbcTemplate.queryForList(FIND_SQL, params, UUID.class));
+    }
+
+    public void saveAll(String topic, Collection<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        List<MapSqlParameterSource> batch = transactions.stream()
+                .map(transaction -> new MapSqlParameterSource()
+                        .addValue("topic", topic)
+                        .addValue("transactionId", transaction.getId())
+                        .addValue("userUid", transaction.getUserUid()))
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch.toArray(MapSqlParameterSource[]::new));
+    }
+
+    public int deleteProcessedBefore(OffsetDateTime before) {
+        return jdbcTemplate.update(PURGE_SQL, new MapSqlParameterSource("before", before));
+    }
+}
@@ -2,12 +2,18 @@ package org.example.transactionapp.repository;
 
 import org.example.transactionapp.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
-
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionRepositoryCustom {
 
+    // id несёт ключ маршрутизации, поэтому запрос уходит только в нужные таблицы
+    @Query("select t.id from Transaction t where t.id in :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,26 @@
+package org.example.transactionapp.repository;
+
+import org.example.transactionapp.dto.TransactionHistoryItem;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Операции кошелька от новых к старым, строго после курсора (afterCreatedAt, afterUid).
+     * userUid направляет запрос в одну таблицу одного шарда; type, status и курсор необязательны.
+     */
+    List<TransactionHistoryItem> findHistory(UUID userUid, UUID walletUid, PaymentType type, TransactionStatus status,
+                                             LocalDateTime afterCreatedAt, UUID afterUid, int limit);
+
+    /**
+     * Проведённые переводы на кошелёк от новых к старым, строго после курсора. Перевод лежит в шарде
+     * отправителя, поэтому запрос уходит во все шарды (частичный индекс V12 по target_wallet_uid).
+     */
+    List<TransactionHistoryItem> findIncomingHistory(UUID targetWalletUid, LocalDateTime afterCreatedAt,
+                                                     UUID afterUid, int limit);
+}
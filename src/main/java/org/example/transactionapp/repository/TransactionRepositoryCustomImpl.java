@@ -0,0 +1,91 @@
+package org.example.transactionapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.dto.TransactionHistoryItem;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Условие курсора раскрыто без сравнения строк (created_at, uid) < (?, ?): его не разбирает ShardingSphere.
+    // created_at <= ? — граница диапазона в индексе, вторая скобка отсекает равные метки
+    @Override
+    public List<TransactionHistoryItem> findHistory(UUID userUid, UUID walletUid, PaymentType type,
+                                                    TransactionStatus status, LocalDateTime afterCreatedAt,
+                                                    UUID afterUid, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                select uid, created_at, type, status, amount, fee, target_wallet_uid
+                  from transactions
+                 where user_uid = ? and wallet_uid = ?""");
+        List<Object> args = new ArrayList<>(8);
+        args.add(userUid);
+        args.add(walletUid);
+        if (type != null) {
+            sql.append(" and type = cast(? as payment_type)");
+            args.add(type.name());
+        }
+        if (status != null) {
+            sql.append(" and status = ?");
+            args.add(status.name());
+        }
+        appendCursor(sql, args, afterCreatedAt, afterUid, limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> item(rs, TransactionHistoryItem.DirectionEnum.OUTGOING),
+                args.toArray());
+    }
+
+    // Условия совпадают с частичным индексом V12; выборки шардов ShardingSphere сливает по order by.
+    // Комиссию платит отправитель, получателю она не показывается
+    @Override
+    public List<TransactionHistoryItem> findIncomingHistory(UUID targetWalletUid, LocalDateTime afterCreatedAt,
+                                                            UUID afterUid, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                select uid, created_at, type, status, amount, target_wallet_uid
+                  from transactions
+                 where target_wallet_uid = ? and type = 'TRANSFER' and status = 'COMPLETED'""");
+        List<Object> args = new ArrayList<>(5);
+        args.add(targetWalletUid);
+        appendCursor(sql, args, afterCreatedAt, afterUid, limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> item(rs, TransactionHistoryItem.DirectionEnum.INCOMING),
+                args.toArray());
+    }
+
+    private static void appendCursor(StringBuilder sql, List<Object> args, LocalDateTime afterCreatedAt, UUID afterUid,
+                                     int limit) {
+        if (afterCreatedAt != null) {
+            sql.append(" and created_at <= ? and (created_at < ? or uid < ?)");
+            args.add(afterCreatedAt);
+            args.add(afterCreatedAt);
+            args.add(afterUid);
+        }
+        sql.append(" order by created_at desc, uid desc limit ?");
+        args.add(limit);
+    }
+
+    private static TransactionHistoryItem item(ResultSet rs, TransactionHistoryItem.DirectionEnum direction)
+            throws SQLException {
+        TransactionHistoryItem item = new TransactionHistoryItem();
+        item.setTransactionId(rs.getObject("uid", UUID.class));
+        item.setCreatedAt(rs.getObject("created_at", LocalDateTime.class).atOffset(ZoneOffset.UTC));
+        item.setType(TransactionHistoryItem.TypeEnum.fromValue(rs.getString("type").toLowerCase()));
+        item.setStatus(rs.getString("status"));
+        item.setAmount(rs.getBigDecimal("amount"));
+        if (direction == TransactionHistoryItem.DirectionEnum.OUTGOING) {
+            item.setFee(rs.getBigDecimal("fee"));
+        }
+        item.setTargetWalletUid(rs.getObject("target_wallet_uid", UUID.class));
+        item.setDirection(direction);
+        return item;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.example.transactionapp.repository;
 
 import jakarta.persistence.LockModeType;
+import org.example.transactionapp.dto.WalletView;
 import org.example.transactionapp.entity.Wallet;
 import org.example.transactionapp.entity.WalletType;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,18 +10,31 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface WalletRepository extends JpaRepository<Wallet, UUID> {
+public interface WalletRepository extends JpaRepository<Wallet, UUID>, WalletRepositoryCustom {
 
     boolean existsByUserUidAndWalletType(UUID userUid, WalletType walletType);
 
+    /**
+     * Кошелёк с типом одним запросом, без загрузки сущностей в контекст.
+     * balance здесь — снимок; текущий баланс — {@link #currentBalance}.
+     */
+    @Query("""
+            select new org.example.transactionapp.dto.WalletView(
+                   w.id, w.userUid, w.name, w.status, w.balance, t.currencyCode, t.name)
+              from Wallet w join w.walletType t
+             where w.id = :id
+            """)
+    Optional<WalletView> findViewById(@Param("id") UUID id);
+
+    @Query("select w.walletType.id from Wallet w where w.id = :id")
+    Optional<UUID> findWalletTypeId(@Param("id") UUID id);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select w from Wallet w where w.id = :id")
     Optional<Wallet> findByIdForUpdate(@Param("id") UUID id);
 
-
 }
@@ -0,0 +1,62 @@
+package org.example.transactionapp.repository;
+
+import org.example.transactionapp.ledger.LedgerEntry;
+import org.example.transactionapp.ledger.WalletBalance;
+import org.example.transactionapp.money.Money;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Баланс кошелька — снимок в строке wallets (balance, snapshot_seq) плюс проводки ledger_entries после него.
+ * Блокировки строки кошелька согласованы со снимком (LedgerSnapshotter берёт FOR UPDATE):
+ * проводка не может закоммититься в обход снимка, который её не учёл.
+ */
+public interface WalletRepositoryCustom {
+
+    /**
+     * Блокирует кошелёк для списания (FOR NO KEY UPDATE — списания одного кошелька идут по очереди,
+     * зачисления не ждут) и считает текущий баланс.
+     */
+    Optional<WalletBalance> lockForDebit(UUID walletId);
+
+    /**
+     * Блокирует кошельки для зачисления (FOR KEY SHARE — не конфликтует ни с зачислениями, ни со списаниями).
+     * Для отсутствия дедлоков передавайте id в порядке WalletLockService.LOCK_ORDER.
+     *
+     * @return владельцы найденных кошельков по id
+     */
+    Map<UUID, UUID> lockForCredit(Collection<UUID> walletIds);
+
+    /**
+     * Владельцы кошельков без блокировки. Владелец кошелька не меняется, поэтому по нему можно
+     * заранее выбрать шард; сам запрос без user_uid уходит во все шарды.
+     *
+     * @return владельцы найденных кошельков по id
+     */
+    Map<UUID, UUID> findOwners(Collection<UUID> walletIds);
+
+    /**
+     * Блокирует кошельки для списания, как {@link #lockForDebit(UUID)}, одним запросом в порядке uid.
+     * Порядок соблюдается только внутри одной базы: кошельки разных баз блокируйте отдельными вызовами
+     * в порядке WalletLockService.LOCK_ORDER.
+     *
+     * @return текущие балансы найденных кошельков по id
+     */
+    Map<UUID, WalletBalance> lockAllForDebit(Collection<UUID> walletIds);
+
+    Optional<Money> currentBalance(UUID ownerUid, UUID walletId);
+
+    /**
+     * Дописывает проводки одним JDBC batch. Вызывать после блокировки затронутых кошельков.
+     */
+    void appendEntries(List<LedgerEntry> entries);
+
+    /**
+     * seq последней проводки кошелька, 0 — проводок нет.
+     */
+    long lastSeq(UUID ownerUid, UUID walletId);
+}
@@ -0,0 +1,151 @@
+package org.example.transactionapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.ledger.LedgerEntry;
+import org.example.transactionapp.ledger.WalletBalance;
+import org.example.transactionapp.money.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class WalletRepositoryCustomImpl implements WalletRepositoryCustom {
+
+    // Условий (владелец, кошелёк, seq) в одном запросе хвостов
+    private static final int TAIL_CHUNK = 100;
+
+    private static final String APPEND_SQL = """
+            insert into ledger_entries (user_uid, wallet_uid, transaction_uid, account, amount)
+            values (?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private record Snapshot(UUID walletUid, UUID ownerUid, Money balance, long seq) {
+    }
+
+    @Override
+    public Optional<WalletBalance> lockForDebit(UUID walletId) {
+        return Optional.ofNullable(lockAllForDebit(List.of(walletId)).get(walletId));
+    }
+
+    @Override
+    public Map<UUID, WalletBalance> lockAllForDebit(Collection<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Snapshot> locked = jdbcTemplate.query("""
+                        select uid, user_uid, balance, snapshot_seq from wallets
+                         where uid in (%s)
+                         order by uid
+                           for no key update""".formatted(String.join(", ", Collections.nCopies(walletIds.size(), "?"))),
+                (rs, rowNum) -> new Snapshot(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class),
+                        Money.of(rs.getBigDecimal(3)), rs.getLong(4)),
+                walletIds.toArray());
+        Map<UUID, Money> tails = tails(locked);
+        Map<UUID, WalletBalance> balances = LinkedHashMap.newLinkedHashMap(locked.size());
+        for (Snapshot snapshot : locked) {
+            balances.put(snapshot.walletUid(), new WalletBalance(snapshot.walletUid(), snapshot.ownerUid(),
+                    snapshot.balance().plus(tails.getOrDefault(snapshot.walletUid(), Money.ZERO))));
+        }
+        return balances;
+    }
+
+    @Override
+    public Map<UUID, UUID> lockForCredit(Collection<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, UUID> owners = LinkedHashMap.newLinkedHashMap(walletIds.size());
+        jdbcTemplate.query("""
+                        select uid, user_uid from wallets
+                         where uid in (%s)
+                         order by uid
+                           for key share""".formatted(String.join(", ", Collections.nCopies(walletIds.size(), "?"))),
+                rs -> {
+                    owners.put(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class));
+                },
+                walletIds.toArray());
+        return owners;
+    }
+
+    @Override
+    public Map<UUID, UUID> findOwners(Collection<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, UUID> owners = HashMap.newHashMap(walletIds.size());
+        jdbcTemplate.query("select uid, user_uid from wallets where uid in (%s)"
+                        .formatted(String.join(", ", Collections.nCopies(walletIds.size(), "?"))),
+                rs -> {
+                    owners.put(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class));
+                },
+                walletIds.toArray());
+        return owners;
+    }
+
+    // Снимок читается одним запросом: balance и snapshot_seq всегда из одной версии строки
+    @Override
+    public Optional<Money> currentBalance(UUID ownerUid, UUID walletId) {
+        List<Snapshot> snapshots = jdbcTemplate.query(
+                "select balance, snapshot_seq from wallets where user_uid = ? and uid = ?",
+                (rs, rowNum) -> new Snapshot(walletId, ownerUid, Money.of(rs.getBigDecimal(1)), rs.getLong(2)),
+                ownerUid, walletId);
+        if (snapshots.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshots.getFirst().balance().plus(tails(snapshots).getOrDefault(walletId, Money.ZERO)));
+    }
+
+    @Override
+    public void appendEntries(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (LedgerEntry entry : entries) {
+            args.add(new Object[]{entry.userUid(), entry.walletUid(), entry.transactionUid(),
+                    entry.account().name(), entry.amount().toBigDecimal()});
+        }
+        jdbcTemplate.batchUpdate(APPEND_SQL, args);
+    }
+
+    @Override
+    public long lastSeq(UUID ownerUid, UUID walletId) {
+        Long seq = jdbcTemplate.queryForObject(
+                "select max(seq) from ledger_entries where user_uid = ? and wallet_uid = ?",
+                Long.class, ownerUid, walletId);
+        return seq == null ? 0 : seq;
+    }
+
+    // Сумма проводок после снимка по каждому кошельку. Владелец в условии направляет запрос
+    // в таблицу кошелька; индекс (wallet_uid, seq) отдаёт только хвост
+    private Map<UUID, Money> tails(List<Snapshot> snapshots) {
+        Map<UUID, Money> tails = new HashMap<>();
+        for (int from = 0; from < snapshots.size(); from += TAIL_CHUNK) {
+            List<Snapshot> chunk = snapshots.subList(from, Math.min(from + TAIL_CHUNK, snapshots.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            List<String> conditions = new ArrayList<>(chunk.size());
+            for (Snapshot snapshot : chunk) {
+                conditions.add("(user_uid = ? and wallet_uid = ? and seq > ?)");
+                args.add(snapshot.ownerUid());
+                args.add(snapshot.walletUid());
+                args.add(snapshot.seq());
+            }
+            jdbcTemplate.query("select wallet_uid, sum(amount) from ledger_entries where "
+                            + String.join(" or ", conditions) + " group by wallet_uid",
+                    rs -> {
+                        tails.put(rs.getObject(1, UUID.class), Money.of(rs.getBigDecimal(2)));
+                    },
+                    args.toArray());
+        }
+        return tails;
+    }
+}
@@ -1,17 +1,40 @@
 package org.example.transactionapp.rest;
 
 import groovy.util.logging.Slf4j;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.dto.BulkConfirmRequest;
+import org.example.transactionapp.dto.BulkConfirmResponse;
+import org.example.transactionapp.dto.DepositInitRequest;
 import org.example.transactionapp.dto.TransactionConfirmRequest;
 import org.example.transactionapp.dto.TransactionConfirmResponse;
 import org.example.transactionapp.dto.TransactionInitResponse;
 import org.example.transactionapp.dto.TransactionStatusResponse;
+import org.example.transactionapp.dto.TransferInitRequest;
+import org.example.transactionapp.dto.WithdrawalInitRequest;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.export.ExportFormat;
+import org.example.transactionapp.export.TransactionExportService;
+import org.example.transactionapp.service.AsyncTransactionConfirmer;
+import org.example.transactionapp.service.BulkTransactionConfirmer;
 import org.example.transactionapp.service.HasAmount;
 import org.example.transactionapp.service.TransactionService;
-
+import org.example.transactionapp.service.TransactionStatusStream;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @RestController
@@ -19,26 +42,84 @@ import java.util.UUID;
 @RequestMapping("/api/v1/transactions")
 public class TransactionRestController {
 
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final TransactionService transactionService;
+    private final AsyncTransactionConfirmer asyncConfirmer;
+    private final TransactionStatusStream statusStream;
+    private final BulkTransactionConfirmer bulkConfirmer;
+    private final TransactionExportService exportService;
+    private final ObjectMapper objectMapper;
 
-    // Инициализация транзакции
+    // Инициализация транзакции: тело разбирается в DTO своего типа — у них есть userUid для id транзакции
     @PostMapping("/transactions/{type}/init")
     public ResponseEntity<TransactionInitResponse> initTransaction(@PathVariable String type,
-                                                                   @RequestBody HasAmount request) {
+                                                                   @RequestBody JsonNode body) {
+        HasAmount request;
+        try {
+            request = objectMapper.treeToValue(body, initRequestType(type));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный запрос init: " + e.getOriginalMessage(), e);
+        }
         return ResponseEntity.ok(transactionService.init(type, request));
     }
 
     // Подтверждение транзакции
     @PostMapping("/transactions/{type}/confirm")
+    // Prefer: respond-async — 202 сразу, исход в /status или /events
     public ResponseEntity<TransactionConfirmResponse> confirmTransaction(@PathVariable String type,
+                                                                         @RequestHeader(value = "Prefer", required = false) String prefer,
                                                                          @RequestBody TransactionConfirmRequest request) {
+        if (prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            TransactionConfirmResponse response = asyncConfirmer.submit(type, request);
+            return ResponseEntity.accepted()
+                    .location(MvcUriComponentsBuilder.fromMethodName(TransactionRestController.class,
+                            "getTransactionStatus", response.getTransactionId()).build().toUri())
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(response);
+        }
         return ResponseEntity.ok(transactionService.confirm(type, request));
     }
 
+    // Пакетное подтверждение переводов, результат по каждому элементу
+    @PostMapping("/transactions/transfer/confirm/bulk")
+    public ResponseEntity<BulkConfirmResponse> confirmTransfers(@RequestBody BulkConfirmRequest request) {
+        return ResponseEntity.ok(bulkConfirmer.confirmTransfers(request.getItems()));
+    }
+
+    // Выгрузка за период потоком, без загрузки в память: NDJSON или CSV
+    @GetMapping("/transactions/export")
+    public void exportTransactions(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                   @RequestParam(defaultValue = "ndjson") String format,
+                                   HttpServletResponse response) throws IOException, InterruptedException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("transactions." + exportFormat.extension())
+                .build()
+                .toString());
+        exportService.export(from, to, exportFormat, response.getOutputStream());
+    }
+
     // Получение статуса транзакции
     @GetMapping("/transactions/{transactionId}/status")
     public ResponseEntity<TransactionStatusResponse> getTransactionStatus(@PathVariable UUID transactionId) {
         return ResponseEntity.ok(transactionService.status(transactionId));
     }
 
+    // Поток переходов статуса (SSE), закрывается на финальном статусе
+    @GetMapping(value = "/transactions/{transactionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactionStatus(@PathVariable UUID transactionId) {
+        return statusStream.subscribe(transactionId);
+    }
+
+    private static Class<? extends HasAmount> initRequestType(String type) {
+        return switch (PaymentType.valueOf(type.toUpperCase())) {
+            case DEPOSIT -> DepositInitRequest.class;
+            case WITHDRAWAL -> WithdrawalInitRequest.class;
+            case TRANSFER -> TransferInitRequest.class;
+        };
+    }
 }
@@ -2,6 +2,8 @@ package org.example.transactionapp.rest;
 
 import lombok.RequiredArgsConstructor;
 import org.example.transactionapp.dto.CreateWalletRequest;
+import org.example.transactionapp.dto.TransactionHistoryPage;
+import org.example.transactionapp.dto.WalletView;
 import org.example.transactionapp.entity.Wallet;
 import org.example.transactionapp.service.WalletService;
 import org.springframework.http.HttpStatus;
@@ -24,7 +26,17 @@ public class WalletRestController {
     }
 
     @GetMapping("/{uuid}")
-    public ResponseEntity<Wallet> getInformationByWalletId(@PathVariable UUID uuid) {
+    public ResponseEntity<WalletView> getInformationByWalletId(@PathVariable UUID uuid) {
         return ResponseEntity.ok().body(walletService.getInformationByWalletId(uuid));
     }
+
+    // История операций кошелька, постранично по курсору
+    @GetMapping("/wallets/{walletUid}/transactions")
+    public ResponseEntity<TransactionHistoryPage> getTransactionHistory(@PathVariable UUID walletUid,
+                                                                        @RequestParam(required = false) String type,
+                                                                        @RequestParam(required = false) String status,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(walletService.getTransactionHistory(walletUid, type, status, cursor, limit));
+    }
 }
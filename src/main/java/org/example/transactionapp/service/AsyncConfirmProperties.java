@@ -0,0 +1,16 @@
+package org.example.transactionapp.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "transaction.confirm.async")
+public record AsyncConfirmProperties(
+        @DefaultValue("16") int corePoolSize,
+        @DefaultValue("32") int maxPoolSize,
+        @DefaultValue("1000") int queueCapacity,
+        @DefaultValue("60s") Duration streamTimeout,
+        @DefaultValue("2s") Duration streamPollInterval
+) {
+}
@@ -0,0 +1,77 @@
+package org.example.transactionapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.dto.TransactionConfirmResponse;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+
+/**
+ * Асинхронный confirm: проверки без БД выполняются сразу, остальное — на ограниченном пуле.
+ * Исход публикуется через {@link TransactionStatusCache}, откуда его получают опрос статуса и SSE-поток.
+ * Отказ хранится только в кеше этого экземпляра: опрос через другой экземпляр его не увидит.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AsyncTransactionConfirmer {
+
+    private final TransactionService transactionService;
+    private final TransactionStatusCache statusCache;
+    private final AsyncTaskExecutor confirmExecutor;
+    private final MetricsFacade metrics;
+
+    /**
+     * @throws TaskRejectedException пул и очередь заполнены
+     */
+    public TransactionConfirmResponse submit(String type, TransactionConfirmRequest request) {
+        transactionService.verify(type, request);
+        try {
+            confirmExecutor.execute(() -> confirm(type, request));
+        } catch (TaskRejectedException e) {
+            metrics.asyncConfirmRejected();
+            throw e;
+        }
+        statusCache.putAccepted(request.getTransactionId(), request.getAmount());
+
+        TransactionConfirmResponse response = new TransactionConfirmResponse();
+        response.setTransactionId(request.getTransactionId());
+        response.setStatus(TransactionStatus.PROCESSING.name());
+        response.setConfirmedAt(OffsetDateTime.now());
+        return response;
+    }
+
+    private void confirm(String type, TransactionConfirmRequest request) {
+        try {
+            transactionService.confirm(type, request);
+        } catch (RuntimeException e) {
+            if (isDuplicateKey(e)) {
+                // Повтор уже записанной транзакции: её статус в БД, FAILED его бы заслонил
+                log.info("Транзакция {} уже подтверждена ранее", request.getTransactionId());
+                statusCache.evictAccepted(request.getTransactionId());
+                return;
+            }
+            log.warn("Асинхронное подтверждение транзакции {} отклонено: {}", request.getTransactionId(), e.getMessage());
+            statusCache.putRejected(request.getTransactionId(), request.getAmount(), e.getMessage());
+        }
+    }
+
+    // JPA заворачивает нарушение уникальности по-разному, поэтому смотрим всю цепочку причин
+    private static boolean isDuplicateKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DuplicateKeyException
+                    || cause instanceof SQLException sql && "23505".equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
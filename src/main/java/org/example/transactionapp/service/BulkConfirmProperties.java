@@ -0,0 +1,10 @@
+package org.example.transactionapp.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "transaction.confirm.bulk")
+public record BulkConfirmProperties(
+        @DefaultValue("1000") int maxItems
+) {
+}
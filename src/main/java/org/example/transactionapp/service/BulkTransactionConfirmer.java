@@ -0,0 +1,246 @@
+package org.example.transactionapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.dto.BulkConfirmItemResult;
+import org.example.transactionapp.dto.BulkConfirmResponse;
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.Transaction;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.example.transactionapp.ledger.LedgerEntry;
+import org.example.transactionapp.ledger.LedgerPostings;
+import org.example.transactionapp.metrics.Loggable;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.sharding.ShardRouter;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Пакетное подтверждение переводов. Элементы группируются по набору баз, которые они затрагивают
+ * (шард транзакции и шарды владельцев обоих кошельков), каждая группа — отдельная транзакция:
+ * кошельки блокируются в том же порядке и тех же режимах, что и одиночным переводом, исходы считаются
+ * по текущим балансам в памяти, строки транзакций и проводки вставляются JDBC batch.
+ * <p>
+ * Группа в одной базе атомарна. Группа из нескольких баз — локальная транзакция ShardingSphere,
+ * которая коммитит базы по очереди: сбой между коммитами оставит часть проводок без пары (best-effort).
+ * Такие переводы не смешиваются с одношардовыми, поэтому риск не распространяется на весь пакет.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkTransactionConfirmer {
+
+    static final String REJECTED = "REJECTED";
+
+    private final TransactionService transactionService;
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionStatusCache statusCache;
+    private final WalletViewCache walletViewCache;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final BulkConfirmProperties properties;
+
+    @Loggable("transaction.confirm.bulk")
+    public BulkConfirmResponse confirmTransfers(List<TransactionConfirmRequest> items) {
+        if (items == null || items.isEmpty() || items.size() > properties.maxItems()) {
+            throw new IllegalArgumentException("В пакете должно быть от 1 до %d переводов"
+                    .formatted(properties.maxItems()));
+        }
+
+        BulkConfirmItemResult[] results = new BulkConfirmItemResult[items.size()];
+        List<Integer> accepted = new ArrayList<>(items.size());
+        Set<UUID> seen = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            TransactionConfirmRequest item = items.get(i);
+            String reason = precheck(item, seen);
+            if (reason != null) {
+                results[i] = result(item.getTransactionId(), REJECTED, reason);
+                continue;
+            }
+            accepted.add(i);
+        }
+
+        Set<UUID> walletIds = new HashSet<>();
+        for (int i : accepted) {
+            walletIds.add(items.get(i).getWalletUid());
+            walletIds.add(items.get(i).getTargetWalletUid());
+        }
+        Map<UUID, UUID> owners = walletRepository.findOwners(walletIds);
+        Map<Set<String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i : accepted) {
+            TransactionConfirmRequest item = items.get(i);
+            UUID fromOwner = owners.get(item.getWalletUid());
+            UUID toOwner = owners.get(item.getTargetWalletUid());
+            if (fromOwner == null || toOwner == null) {
+                results[i] = result(item.getTransactionId(), REJECTED, "WALLET_NOT_FOUND");
+                continue;
+            }
+            Set<String> databases = new TreeSet<>(List.of(shardRouter.databaseFor(item.getUserUid()),
+                    shardRouter.databaseFor(fromOwner), shardRouter.databaseFor(toOwner)));
+            groups.computeIfAbsent(databases, key -> new ArrayList<>()).add(i);
+        }
+
+        groups.forEach((databases, indexes) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> confirmGroup(items, indexes, owners, results));
+            } catch (RuntimeException e) {
+                log.warn("Группа пакета для {} из {} переводов отклонена: {}", databases, indexes.size(), e.getMessage());
+                for (int i : indexes) {
+                    results[i] = result(items.get(i).getTransactionId(), REJECTED, e.getMessage());
+                }
+            }
+        });
+
+        BulkConfirmResponse response = new BulkConfirmResponse();
+        response.setResults(List.of(results));
+        response.setConfirmedAt(OffsetDateTime.now());
+        return response;
+    }
+
+    // Проверки без БД; null — элемент проходит дальше
+    private String precheck(TransactionConfirmRequest item, Set<UUID> seen) {
+        if (item.getTargetWalletUid() == null) {
+            return "Не указан кошелёк получателя";
+        }
+        if (!seen.add(item.getTransactionId())) {
+            return "DUPLICATE";
+        }
+        try {
+            transactionService.verify(PaymentType.TRANSFER.name(), item);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void confirmGroup(List<TransactionConfirmRequest> items, List<Integer> indexes,
+                              Map<UUID, UUID> owners, BulkConfirmItemResult[] results) {
+        Set<UUID> existing = transactionRepository.findExistingIds(
+                indexes.stream().map(i -> items.get(i).getTransactionId()).toList());
+
+        Set<UUID> debited = new HashSet<>();
+        Set<UUID> credited = new HashSet<>();
+        for (int i : indexes) {
+            debited.add(items.get(i).getWalletUid());
+            credited.add(items.get(i).getTargetWalletUid());
+        }
+        credited.removeAll(debited);
+        Map<UUID, Money> balances = new HashMap<>();
+        Set<UUID> found = lock(debited, credited, owners, balances);
+
+        List<LedgerEntry> entries = new ArrayList<>(indexes.size() * 3);
+        Set<UUID> touched = new HashSet<>();
+        List<Transaction> confirmed = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            TransactionConfirmRequest item = items.get(i);
+            if (existing.contains(item.getTransactionId())) {
+                results[i] = result(item.getTransactionId(), REJECTED, "DUPLICATE");
+                continue;
+            }
+            UUID fromId = item.getWalletUid();
+            UUID toId = item.getTargetWalletUid();
+            if (!balances.containsKey(fromId) || !found.contains(toId)) {
+                results[i] = result(item.getTransactionId(), REJECTED, "WALLET_NOT_FOUND");
+                continue;
+            }
+
+            Transaction transaction = toTransaction(item);
+            Money total = transaction.getAmount().plus(transaction.getFee());
+            if (balances.get(fromId).compareTo(total) < 0) {
+                transaction.setStatus(TransactionStatus.FAILED);
+                transaction.setFailureReason("INSUFFICIENT_FUNDS");
+            } else {
+                balances.merge(fromId, total.negate(), Money::plus);
+                balances.computeIfPresent(toId, (id, balance) -> balance.plus(transaction.getAmount()));
+                entries.addAll(LedgerPostings.transfer(transaction, owners.get(fromId), owners.get(toId)));
+                touched.add(fromId);
+                touched.add(toId);
+                transaction.setStatus(TransactionStatus.COMPLETED);
+            }
+            confirmed.add(transaction);
+            results[i] = result(transaction.getId(), transaction.getStatus().name(), transaction.getFailureReason());
+        }
+
+        transactionRepository.saveAll(confirmed);
+        walletRepository.appendEntries(entries);
+        statusCache.putAfterCommit(confirmed);
+        walletViewCache.evictAfterCommit(touched);
+    }
+
+    /**
+     * Блокирует кошельки группы по одному порядку {@link WalletLockService#LOCK_ORDER} для всех баз,
+     * как одиночный перевод: списываемые — FOR NO KEY UPDATE, только пополняемые — FOR KEY SHARE.
+     * Один запрос с ORDER BY упорядочивает строки лишь внутри своей базы, поэтому запросом блокируется
+     * только подряд идущая серия кошельков одной базы и одного режима. Дедлок между базами Postgres
+     * не обнаружит, так что отступать от общего порядка нельзя.
+     *
+     * @param balances сюда попадают текущие балансы списываемых кошельков
+     * @return id всех найденных кошельков
+     */
+    private Set<UUID> lock(Set<UUID> debited, Set<UUID> credited, Map<UUID, UUID> owners,
+                           Map<UUID, Money> balances) {
+        List<UUID> ordered = new ArrayList<>(debited.size() + credited.size());
+        ordered.addAll(debited);
+        ordered.addAll(credited);
+        ordered.sort(WalletLockService.LOCK_ORDER);
+
+        Set<UUID> found = new HashSet<>();
+        List<UUID> run = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            UUID walletId = ordered.get(i);
+            run.add(walletId);
+            UUID next = i + 1 < ordered.size() ? ordered.get(i + 1) : null;
+            if (next != null && debited.contains(next) == debited.contains(walletId)
+                    && shardRouter.databaseFor(owners.get(next)).equals(shardRouter.databaseFor(owners.get(walletId)))) {
+                continue;
+            }
+            if (debited.contains(walletId)) {
+                walletRepository.lockAllForDebit(run).forEach((id, balance) -> {
+                    balances.put(id, balance.balance());
+                    found.add(id);
+                });
+            } else {
+                found.addAll(walletRepository.lockForCredit(run).keySet());
+            }
+            run = new ArrayList<>();
+        }
+        return found;
+    }
+
+    private static Transaction toTransaction(TransactionConfirmRequest item) {
+        return Transaction.builder()
+                .id(item.getTransactionId())
+                .userUid(item.getUserUid())
+                .walletUid(item.getWalletUid())
+                .targetWalletUid(item.getTargetWalletUid())
+                .amount(Money.of(item.getAmount(), Money.STORAGE_SCALE))
+                .fee(Money.of(item.getFee(), Money.STORAGE_SCALE))
+                .type(PaymentType.TRANSFER)
+                .createdAt(TransactionIds.createdAt(item.getTransactionId()))
+                .build();
+    }
+
+    private static BulkConfirmItemResult result(UUID transactionId, String status, String reason) {
+        BulkConfirmItemResult result = new BulkConfirmItemResult();
+        result.setTransactionId(transactionId);
+        result.setStatus(status);
+        result.setReason(reason);
+        return result;
+    }
+}
@@ -1,7 +1,25 @@
 package org.example.transactionapp.service;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 public interface HasAmount {
     BigDecimal getAmount();
+
+    // Владелец: его ключ маршрутизации зашивается в id транзакции. DTO init его заполняют (x-implements в openapi)
+    default UUID getUserUid() {
+        return null;
+    }
+
+    // Кошелёк списания: валюта и тариф для комиссии берутся из его типа
+    UUID getWalletUid();
+
+    // Валюта и тариф, которые видит клиент: должны совпадать с кошельком, null — не проверяются
+    default String getCurrency() {
+        return null;
+    }
+
+    default String getTier() {
+        return null;
+    }
 }
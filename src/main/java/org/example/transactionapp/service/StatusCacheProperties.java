@@ -0,0 +1,14 @@
+package org.example.transactionapp.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "transaction.status-cache")
+public record StatusCacheProperties(
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("10m") Duration terminalTtl,
+        @DefaultValue("2s") Duration processingTtl
+) {
+}
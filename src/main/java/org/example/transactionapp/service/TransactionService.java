@@ -2,6 +2,7 @@ package org.example.transactionapp.service;
 
 
 import org.example.transactionapp.dto.*;
+import org.example.transactionapp.entity.PaymentType;
 
 import java.util.UUID;
 
@@ -11,5 +12,8 @@ public interface TransactionService {
 
     TransactionConfirmResponse confirm(String type, TransactionConfirmRequest request);
 
+    // Проверки confirm без обращения к БД: тип, принадлежность id, комиссия
+    PaymentType verify(String type, TransactionConfirmRequest request);
+
     TransactionStatusResponse status(UUID transactionId);
 }
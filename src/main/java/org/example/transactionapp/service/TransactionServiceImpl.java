@@ -7,16 +7,23 @@ import org.example.transactionapp.dto.*;
 import org.example.transactionapp.entity.PaymentType;
 import org.example.transactionapp.entity.Transaction;
 import org.example.transactionapp.entity.TransactionStatus;
-import org.example.transactionapp.entity.Wallet;
+import org.example.transactionapp.exceptions.WalletNotFoundException;
+import org.example.transactionapp.fee.FeeQuote;
+import org.example.transactionapp.fee.FeeScheduleService;
+import org.example.transactionapp.ledger.LedgerPostings;
 import org.example.transactionapp.metrics.Loggable;
+import org.example.transactionapp.metrics.StatementBudget;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.outbox.OutboxWriter;
 import org.example.transactionapp.repository.TransactionRepository;
 import org.example.transactionapp.repository.WalletRepository;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.example.transactionapp.sharding.TransactionIds;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
-import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -26,50 +33,73 @@ public class TransactionServiceImpl implements TransactionService{
 
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-
+    private final OutboxWriter outboxWriter;
+    private final FeeScheduleService feeScheduleService;
+    private final TransactionStatusCache statusCache;
+    private final WalletViewCache walletViewCache;
+    private final WalletTypeCatalog walletTypeCatalog;
+    private final WalletLockService walletLockService;
+
+
+    /**
+     * Валюта и тариф для выбора правила комиссии — из типа кошелька списания (тариф — user_type типа),
+     * а не из запроса: иначе клиент выбрал бы самое дешёвое правило.
+     */
+    private record FeeInputs(String currency, String tier) {
+    }
 
     @Loggable("transaction.init")
     public TransactionInitResponse init(String type, HasAmount request) {
         PaymentType paymentType = PaymentType.valueOf(type.toUpperCase());
-        BigDecimal amount = request.getAmount();
-        BigDecimal fee = calculateFee(paymentType, amount);
+        Money amount = Money.of(request.getAmount());
+        FeeInputs feeInputs = feeInputs(request.getWalletUid(), request.getCurrency(), request.getTier());
+        FeeQuote quote = feeScheduleService.quote(paymentType, feeInputs.currency(), feeInputs.tier(), amount);
+        Money fee = quote.fee();
 
         TransactionInitResponse response = new TransactionInitResponse();
-        response.setTransactionId(UUID.randomUUID());
-        response.setType(TransactionInitResponse.TypeEnum.fromValue(paymentType.name()));
-        response.setAmount(amount);
-        response.setFee(fee);
-        response.setTotalAmount(amount.add(fee));
+        response.setTransactionId(TransactionIds.forUser(request.getUserUid()));
+        response.setType(TransactionInitResponse.TypeEnum.fromValue(paymentType.name().toLowerCase()));
+        response.setAmount(amount.toBigDecimal());
+        response.setFee(fee.toBigDecimal());
+        response.setTotalAmount(amount.plus(fee).toBigDecimal());
+        response.setFeeScheduleVersion(quote.scheduleVersion());
 
         return response;
     }
 
 
+    // Через Hibernate: один SELECT (тип кошелька — для комиссии и события депозита),
+    // INSERT транзакции и outbox — без SELECT перед INSERT.
+    // Блокировки кошельков и проводки перевода идут через JdbcTemplate и в бюджет не входят
+    @Transactional
     @Loggable("transaction.confirm")
+    @StatementBudget(selects = 1, inserts = 2)
     public TransactionConfirmResponse confirm(String type, TransactionConfirmRequest request) {
 
         PaymentType paymentType = PaymentType.valueOf(type.toUpperCase());
+        FeeInputs feeInputs = verify(paymentType, request);
 
         Transaction transaction = Transaction.builder()
                 .id(request.getTransactionId())
                 .userUid(request.getUserUid())
                 .walletUid(request.getWalletUid())
                 .targetWalletUid(request.getTargetWalletUid())
-                .amount(request.getAmount())
-                .fee(request.getFee())
+                .amount(Money.of(request.getAmount(), Money.STORAGE_SCALE))
+                .fee(Money.of(request.getFee(), Money.STORAGE_SCALE))
                 .type(paymentType)
                 .status(TransactionStatus.PROCESSING)
-                .createdAt(OffsetDateTime.now())
+                .createdAt(TransactionIds.createdAt(request.getTransactionId()))
                 .build();
 
-        transactionRepository.save(transaction);
+        transaction = transactionRepository.save(transaction);
 
         switch (paymentType) {
-            case DEPOSIT -> sendDepositRequested(transaction);
+            case DEPOSIT -> sendDepositRequested(transaction, feeInputs.currency());
             case WITHDRAWAL -> sendWithdrawalRequested(transaction);
             case TRANSFER -> processTransfer(transaction);
         }
+        // Может выполниться после финального статуса от листенера Kafka — кеш его не затирает (см. putAfterCommit)
+        statusCache.putAfterCommit(List.of(transaction));
         TransactionConfirmResponse response = new TransactionConfirmResponse();
         response.setTransactionId(transaction.getId());
         response.setStatus(transaction.getStatus().toString());
@@ -78,65 +108,93 @@ public class TransactionServiceImpl implements TransactionService{
         return response;
     }
 
+    @Override
+    public PaymentType verify(String type, TransactionConfirmRequest request) {
+        PaymentType paymentType = PaymentType.valueOf(type.toUpperCase());
+        verify(paymentType, request);
+        return paymentType;
+    }
+
+    private FeeInputs verify(PaymentType paymentType, TransactionConfirmRequest request) {
+        TransactionIds.requireTimeOrdered(request.getTransactionId());
+        if (TransactionIds.belongsToAnotherUser(request.getTransactionId(), request.getUserUid())) {
+            throw new IllegalArgumentException("Транзакция %s выдана другому пользователю"
+                    .formatted(request.getTransactionId()));
+        }
+        FeeInputs feeInputs = feeInputs(request.getWalletUid(), request.getCurrency(), request.getTier());
+        verifyFee(paymentType, feeInputs, request);
+        return feeInputs;
+    }
+
     @Override
     @Loggable("transaction.status")
     public TransactionStatusResponse status(UUID transactionId) {
-        Transaction transaction = transactionRepository.findById(transactionId)
-                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with id " + transactionId));
-
-        TransactionStatusResponse response = new TransactionStatusResponse();
-        response.setTransactionId(transaction.getId());
-        response.setStatus(transaction.getStatus().name());
-        response.setAmount(transaction.getAmount());
-        response.setCreatedAt(transaction.getCreatedAt());
-        return response;
+        return TransactionStatusCache.toResponse(statusCache.get(transactionId, id -> transactionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with id " + id))));
     }
 
     private void processTransfer(Transaction transaction) {
-        Wallet from = walletRepository.findByIdForUpdate(transaction.getWalletUid()).orElseThrow();
-        Wallet to = walletRepository.findByIdForUpdate(transaction.getTargetWalletUid()).orElseThrow();
+        UUID fromId = transaction.getWalletUid();
+        UUID toId = transaction.getTargetWalletUid();
+        Money total = transaction.getAmount().plus(transaction.getFee());
+        walletViewCache.evictAfterCommit(List.of(fromId, toId));
 
-        BigDecimal total = transaction.getAmount().add(transaction.getFee());
-        if (from.getBalance().compareTo(total) < 0) {
+        WalletLockService.TransferLocks locks = walletLockService.lockForTransfer(fromId, toId);
+        if (locks.from().balance().compareTo(total) < 0) {
             transaction.setStatus(TransactionStatus.FAILED);
             transaction.setFailureReason("INSUFFICIENT_FUNDS");
             return;
         }
 
-        from.setBalance(from.getBalance().subtract(total));
-        to.setBalance(to.getBalance().add(transaction.getAmount()));
-
-        walletRepository.save(from);
-        walletRepository.save(to);
-
+        walletRepository.appendEntries(LedgerPostings.transfer(transaction, locks.from().ownerUid(), locks.toOwner()));
         transaction.setStatus(TransactionStatus.COMPLETED);
     }
 
-    private void sendDepositRequested(Transaction transaction) {
-        Wallet wallet = walletRepository.findByIdForUpdate(transaction.getWalletUid()).orElseThrow();
-
+    private void sendDepositRequested(Transaction transaction, String currency) {
         DepositRequestedEvent requestedEvent = new DepositRequestedEvent();
         requestedEvent.setTransactionId(transaction.getId());
         requestedEvent.setUserId(transaction.getUserUid());
         requestedEvent.setWalletId(transaction.getWalletUid());
-        requestedEvent.setAmount(transaction.getAmount().doubleValue());
-        requestedEvent.setCurrency(wallet.getWalletType().getCurrencyCode());
+        requestedEvent.setAmount(transaction.getAmount().toBigDecimal());
+        requestedEvent.setCurrency(currency);
         requestedEvent.setTimestamp(OffsetDateTime.now());
 
-        kafkaTemplate.send("deposit.requested", requestedEvent);
+        outboxWriter.enqueue(transaction, "deposit.requested", null, requestedEvent);
     }
 
     private void sendWithdrawalRequested(Transaction transaction) {
-        kafkaTemplate.send("withdrawal.requested", transaction.getId().toString(), transaction);
+        outboxWriter.enqueue(transaction, "withdrawal.requested", transaction.getId().toString(), transaction);
     }
 
-    private BigDecimal calculateFee(PaymentType type, BigDecimal amount) {
-        return switch (type) {
-            case DEPOSIT -> amount.multiply(BigDecimal.valueOf(0.01));
-            case WITHDRAWAL -> amount.multiply(BigDecimal.valueOf(0.02));
-            case TRANSFER -> amount.multiply(BigDecimal.valueOf(0.015));
-        };
+    // Один SELECT типа кошелька, дальше справочник в памяти. Присланные клиентом валюта и тариф только сверяются
+    private FeeInputs feeInputs(UUID walletId, String currency, String tier) {
+        UUID walletTypeId = walletRepository.findWalletTypeId(walletId)
+                .orElseThrow(() -> new WalletNotFoundException("Кошелек с ID %s не найден".formatted(walletId)));
+        WalletTypeCatalog.Entry walletType = walletTypeCatalog.byId(walletTypeId)
+                .orElseThrow(() -> new IllegalArgumentException("Тип кошелька %s не найден".formatted(walletTypeId)));
+        if (currency != null && !currency.equals(walletType.currencyCode())) {
+            throw new IllegalArgumentException("Валюта %s не совпадает с валютой кошелька %s"
+                    .formatted(currency, walletType.currencyCode()));
+        }
+        if (tier != null && !tier.equals(walletType.userType())) {
+            throw new IllegalArgumentException("Тариф %s не совпадает с тарифом кошелька %s"
+                    .formatted(tier, walletType.userType()));
+        }
+        return new FeeInputs(walletType.currencyCode(), walletType.userType());
     }
-}
-
 
+    // Пересчёт по снимку в памяти: без обращения к БД. Без версии тарифов комиссию не с чем сверить
+    private void verifyFee(PaymentType type, FeeInputs feeInputs, TransactionConfirmRequest request) {
+        if (request.getFeeScheduleVersion() == null) {
+            throw new IllegalArgumentException("Не указана версия тарифов, повторите init");
+        }
+        Money expected = feeScheduleService.feeForVersion(request.getFeeScheduleVersion(), type,
+                        feeInputs.currency(), feeInputs.tier(), Money.of(request.getAmount()))
+                .orElseThrow(() -> new IllegalArgumentException("Тарифы версии %d устарели, повторите init"
+                        .formatted(request.getFeeScheduleVersion())));
+        if (expected.compareTo(Money.of(request.getFee())) != 0) {
+            throw new IllegalArgumentException("Комиссия %s не совпадает с тарифом, ожидалась %s"
+                    .formatted(request.getFee(), expected));
+        }
+    }
+}
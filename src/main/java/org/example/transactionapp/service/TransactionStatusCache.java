@@ -0,0 +1,157 @@
+package org.example.transactionapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.example.transactionapp.dto.TransactionStatusResponse;
+import org.example.transactionapp.entity.Transaction;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Кеш статусов перед {@link TransactionService#status}. Записи кладёт confirm(), а листенер Kafka
+ * обновляет их на месте при завершении или отказе, поэтому опрос клиента обычно не доходит до БД.
+ * Финальные статусы живут долго, PROCESSING — коротко: страховка на случай пропущенного обновления.
+ */
+@Component
+public class TransactionStatusCache {
+
+    /**
+     * Неизменяемый снимок: ответ собирается из него на каждый запрос.
+     */
+    public record Entry(UUID transactionId, TransactionStatus status, BigDecimal amount, OffsetDateTime createdAt,
+                        String failureReason) {
+
+        static Entry of(Transaction transaction) {
+            return new Entry(transaction.getId(), transaction.getStatus(),
+                    transaction.getAmount().toBigDecimal(), transaction.getCreatedAt(), transaction.getFailureReason());
+        }
+
+        boolean isTerminal() {
+            return status != TransactionStatus.PROCESSING;
+        }
+    }
+
+    private final Cache<UUID, Entry> cache;
+    private final ApplicationEventPublisher events;
+
+    public TransactionStatusCache(StatusCacheProperties properties, MetricsFacade metrics,
+                                  ApplicationEventPublisher events) {
+        this.events = events;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfter(new StatusExpiry(properties))
+                .recordStats()
+                .build();
+        metrics.cache("transaction.status", cache);
+    }
+
+    public Entry get(UUID transactionId, Function<UUID, Transaction> loader) {
+        return cache.get(transactionId, id -> Entry.of(loader.apply(id)));
+    }
+
+    /**
+     * Обновляет записи после коммита текущей транзакции: откат не должен оставить в кеше
+     * статус, которого нет в БД. Без активной транзакции — сразу.
+     * <p>
+     * Порядок вызовов не гарантирован: PROCESSING из confirm() может лечь после того, как листенер Kafka
+     * уже положил COMPLETED или FAILED той же транзакции (afterCommit confirm() выполняется позже коммита,
+     * а событие провайдера к этому моменту уже обработано). Безопасно только потому, что финальный статус
+     * не заменяется нефинальным (см. {@link #put}); менять это слияние нельзя без смены порядка записей.
+     */
+    public void putAfterCommit(Collection<Transaction> transactions) {
+        List<Entry> entries = transactions.stream().map(Entry::of).toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entries.forEach(this::put);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entries.forEach(TransactionStatusCache.this::put);
+            }
+        });
+    }
+
+    /**
+     * Асинхронный confirm принят, но ещё в очереди: опрос статуса видит PROCESSING, пока запись не появится в БД.
+     */
+    public void putAccepted(UUID transactionId, BigDecimal amount) {
+        put(new Entry(transactionId, TransactionStatus.PROCESSING, amount, OffsetDateTime.now(), null));
+    }
+
+    /**
+     * Асинхронный confirm не записал транзакцию: опрос статуса и SSE получают FAILED вместо 404.
+     * Заменяет только PROCESSING из {@link #putAccepted}: финальный статус из БД или листенера остаётся.
+     * Отказа нет в БД, поэтому его видят только клиенты экземпляра, принявшего запрос, — на других он 404.
+     */
+    public void putRejected(UUID transactionId, BigDecimal amount, String reason) {
+        Entry rejected = new Entry(transactionId, TransactionStatus.FAILED, amount, OffsetDateTime.now(), reason);
+        Entry stored = cache.asMap().compute(transactionId,
+                (id, existing) -> existing != null && existing.isTerminal() ? existing : rejected);
+        if (stored == rejected) {
+            events.publishEvent(rejected);
+        }
+    }
+
+    /**
+     * Убирает PROCESSING из {@link #putAccepted}, чтобы следующий опрос прочитал статус из БД.
+     */
+    public void evictAccepted(UUID transactionId) {
+        cache.asMap().computeIfPresent(transactionId, (id, existing) -> existing.isTerminal() ? existing : null);
+    }
+
+    public static TransactionStatusResponse toResponse(Entry entry) {
+        TransactionStatusResponse response = new TransactionStatusResponse();
+        response.setTransactionId(entry.transactionId());
+        response.setStatus(entry.status().name());
+        response.setAmount(entry.amount());
+        response.setCreatedAt(entry.createdAt());
+        return response;
+    }
+
+    // Финальный статус не откатывается к PROCESSING, если синхронизация confirm() отработала позже листенера.
+    // Фактический переход уходит подписчикам как событие
+    private void put(Entry entry) {
+        Entry stored = cache.asMap().merge(entry.transactionId(), entry,
+                (existing, updated) -> existing.isTerminal() && !updated.isTerminal() ? existing : updated);
+        if (stored == entry) {
+            events.publishEvent(entry);
+        }
+    }
+
+    private record StatusExpiry(StatusCacheProperties properties) implements Expiry<UUID, Entry> {
+
+        @Override
+        public long expireAfterCreate(UUID key, Entry value, long currentTime) {
+            return ttl(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID key, Entry value, long currentTime, long currentDuration) {
+            return ttl(value);
+        }
+
+        @Override
+        public long expireAfterRead(UUID key, Entry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long ttl(Entry value) {
+            Duration ttl = value.isTerminal() ? properties.terminalTtl() : properties.processingTtl();
+            return ttl.toNanos();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.transactionapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.dto.TransactionStatusResponse;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SSE-подписки на статус транзакции. Переходы приходят из {@link TransactionStatusCache} после коммита;
+ * поток закрывается на финальном статусе. Листенер Kafka может работать на другом экземпляре,
+ * поэтому открытые подписки дополнительно сверяются со статусом раз в stream-poll-interval.
+ */
+@Slf4j
+@Component
+public class TransactionStatusStream {
+
+    private static final String NOT_SENT = "";
+
+    private final TransactionService transactionService;
+    private final AsyncConfirmProperties properties;
+
+    // Подписчик → последний отправленный ему статус
+    private final Map<UUID, Map<SseEmitter, String>> subscribers = new ConcurrentHashMap<>();
+
+    public TransactionStatusStream(TransactionService transactionService,
+                                   AsyncConfirmProperties properties,
+                                   MetricsFacade metrics) {
+        this.transactionService = transactionService;
+        this.properties = properties;
+        metrics.statusStreams(subscribers);
+    }
+
+    public SseEmitter subscribe(UUID transactionId) {
+        SseEmitter emitter = new SseEmitter(properties.streamTimeout().toMillis());
+        subscribers.computeIfAbsent(transactionId, id -> new ConcurrentHashMap<>()).put(emitter, NOT_SENT);
+        emitter.onCompletion(() -> unsubscribe(transactionId, emitter));
+        emitter.onTimeout(() -> unsubscribe(transactionId, emitter));
+        emitter.onError(e -> unsubscribe(transactionId, emitter));
+
+        // Транзакция могла завершиться до подписки
+        current(transactionId).ifPresent(status -> send(transactionId, status));
+        return emitter;
+    }
+
+    @EventListener
+    public void onStatusChanged(TransactionStatusCache.Entry entry) {
+        if (subscribers.containsKey(entry.transactionId())) {
+            send(entry.transactionId(), TransactionStatusCache.toResponse(entry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.confirm.async.stream-poll-interval:2s}")
+    public void reconcile() {
+        for (UUID transactionId : subscribers.keySet()) {
+            current(transactionId).ifPresent(status -> send(transactionId, status));
+        }
+    }
+
+    private Optional<TransactionStatusResponse> current(UUID transactionId) {
+        try {
+            return Optional.of(transactionService.status(transactionId));
+        } catch (RuntimeException e) {
+            // Асинхронный confirm ещё не записал транзакцию
+            return Optional.empty();
+        }
+    }
+
+    private void send(UUID transactionId, TransactionStatusResponse status) {
+        Map<SseEmitter, String> emitters = subscribers.get(transactionId);
+        if (emitters == null) {
+            return;
+        }
+        boolean terminal = !TransactionStatus.PROCESSING.name().equals(status.getStatus());
+        emitters.forEach((emitter, lastSent) -> {
+            if (status.getStatus().equals(lastSent) || !emitters.replace(emitter, lastSent, status.getStatus())) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("status").data(status));
+                if (terminal) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Подписчик статуса {} отключился: {}", transactionId, e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+    }
+
+    private void unsubscribe(UUID transactionId, SseEmitter emitter) {
+        subscribers.computeIfPresent(transactionId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.transactionapp.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "transaction.wallet-cache")
+public record WalletCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("50000") long maximumSize,
+        @DefaultValue("5s") Duration ttl
+) {
+}
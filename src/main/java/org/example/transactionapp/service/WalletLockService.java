@@ -0,0 +1,68 @@
+package org.example.transactionapp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.exceptions.WalletNotFoundException;
+import org.example.transactionapp.ledger.WalletBalance;
+import org.example.transactionapp.repository.WalletRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Захватывает блокировки кошельков перевода в каноническом порядке (по UUID).
+ * Встречные переводы A→B и B→A ждут друг друга, но не образуют дедлок.
+ * Должен вызываться внутри уже открытой транзакции — блокировки держатся до её завершения.
+ */
+@Service
+@RequiredArgsConstructor
+public class WalletLockService {
+
+    /**
+     * Порядок uuid в Postgres — беззнаковое побайтовое сравнение, а не знаковый {@link UUID#compareTo}.
+     */
+    public static final Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final WalletRepository walletRepository;
+
+    /**
+     * Кошелёк-отправитель и кошелёк-получатель перевода после блокировки.
+     *
+     * @param from    баланс отправителя на момент блокировки
+     * @param toOwner владелец кошелька-получателя
+     */
+    public record TransferLocks(WalletBalance from, UUID toOwner) {
+    }
+
+    /**
+     * Списание блокирует отправителя FOR NO KEY UPDATE, зачисление — получателя FOR KEY SHARE,
+     * порядок захвата — {@link #LOCK_ORDER}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public TransferLocks lockForTransfer(UUID fromId, UUID toId) {
+        if (LOCK_ORDER.compare(fromId, toId) <= 0) {
+            WalletBalance from = lockForDebit(fromId);
+            return new TransferLocks(from, lockForCredit(toId));
+        }
+        UUID toOwner = lockForCredit(toId);
+        return new TransferLocks(lockForDebit(fromId), toOwner);
+    }
+
+    private WalletBalance lockForDebit(UUID walletId) {
+        return walletRepository.lockForDebit(walletId)
+                .orElseThrow(() -> new WalletNotFoundException("Кошелек с ID %s не найден".formatted(walletId)));
+    }
+
+    private UUID lockForCredit(UUID walletId) {
+        UUID owner = walletRepository.lockForCredit(List.of(walletId)).get(walletId);
+        if (owner == null) {
+            throw new WalletNotFoundException("Кошелек с ID %s не найден".formatted(walletId));
+        }
+        return owner;
+    }
+}
@@ -1,6 +1,8 @@
 package org.example.transactionapp.service;
 
 import org.example.transactionapp.dto.CreateWalletRequest;
+import org.example.transactionapp.dto.TransactionHistoryPage;
+import org.example.transactionapp.dto.WalletView;
 import org.example.transactionapp.entity.Wallet;
 
 import java.util.UUID;
@@ -10,6 +12,8 @@ public interface WalletService {
 
      Wallet createWallet(CreateWalletRequest request);
 
-     Wallet getInformationByWalletId(UUID walletId);
+     WalletView getInformationByWalletId(UUID walletId);
+
+     TransactionHistoryPage getTransactionHistory(UUID walletId, String type, String status, String cursor, Integer limit);
 
 }
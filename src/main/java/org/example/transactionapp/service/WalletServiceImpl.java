@@ -3,18 +3,30 @@ package org.example.transactionapp.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.transactionapp.dto.CreateWalletRequest;
+import org.example.transactionapp.dto.TransactionHistoryItem;
+import org.example.transactionapp.dto.TransactionHistoryPage;
+import org.example.transactionapp.dto.WalletView;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.TransactionStatus;
 import org.example.transactionapp.entity.Wallet;
 import org.example.transactionapp.entity.WalletType;
 import org.example.transactionapp.entity.WalletTypeStatus;
 import org.example.transactionapp.exceptions.WalletNotFoundException;
+import org.example.transactionapp.ledger.LedgerPostings;
 import org.example.transactionapp.metrics.Loggable;
 import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.repository.TransactionRepository;
 import org.example.transactionapp.repository.WalletRepository;
 import org.example.transactionapp.repository.WalletTypeRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -24,22 +36,35 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class WalletServiceImpl implements WalletService {
 
+    private static final int DEFAULT_HISTORY_PAGE = 50;
+    private static final int MAX_HISTORY_PAGE = 200;
+
+    // От новых к старым; uid — в порядке uuid Postgres, как в условии курсора
+    private static final Comparator<TransactionHistoryItem> HISTORY_ORDER = Comparator
+            .comparing(TransactionHistoryItem::getCreatedAt)
+            .thenComparing(TransactionHistoryItem::getTransactionId, WalletLockService.LOCK_ORDER)
+            .reversed();
+
     private final MetricsFacade metrics;
     private final WalletRepository walletRepository;
     private final WalletTypeRepository walletTypeRepository;
+    private final WalletViewCache walletViewCache;
+    private final WalletTypeCatalog walletTypeCatalog;
+    private final TransactionRepository transactionRepository;
 
     @Override
     @Loggable("wallet.create")
     public Wallet createWallet(CreateWalletRequest request) {
 
-        WalletType walletType = walletTypeRepository.findByCurrencyCodeAndStatus(
-                        request.getCurrency(), WalletTypeStatus.ACTIVE)
+        WalletTypeCatalog.Entry activeType = walletTypeCatalog.activeByCurrency(request.getCurrency())
                 .orElseThrow(() -> {
                     metrics.walletCreateError("wallet_type_not_found");
                     return new IllegalArgumentException("Active WalletType not found for currency: %s"
                                     .formatted(request.getCurrency())
                     );
                 });
+        // Ссылка без SELECT: для связи нужен только id
+        WalletType walletType = walletTypeRepository.getReferenceById(activeType.id());
 
         if (walletRepository.existsByUserUidAndWalletType(request.getUserUid(), walletType)) {
             metrics.walletCreateError("already_exists");
@@ -47,16 +72,24 @@ public class WalletServiceImpl implements WalletService {
             );
         }
 
+        Money opening = Optional.ofNullable(request.getInitialBalance())
+                .map(BigDecimal::valueOf)
+                .map(Money::of)
+                .orElse(Money.ZERO);
         Wallet wallet = Wallet.builder()
                 .userUid(request.getUserUid())
                 .name("%s wallet".formatted(request.getCurrency()))
                 .walletType(walletType)
                 .status(WalletTypeStatus.ACTIVE)
-                .balance(Optional.ofNullable(request.getInitialBalance())
-                                .map(BigDecimal::valueOf)
-                                .orElse(BigDecimal.ZERO)).build();
+                .balance(opening).build();
 
         Wallet saved = walletRepository.save(wallet);
+        // Начальный баланс — проводка против OPENING_BALANCE, сразу учтённая в снимке:
+        // снимок, журнал и сверка сходятся с первой минуты жизни кошелька
+        if (opening.signum() != 0) {
+            walletRepository.appendEntries(LedgerPostings.opening(saved.getUserUid(), saved.getId(), opening));
+            saved.setSnapshotSeq(walletRepository.lastSeq(saved.getUserUid(), saved.getId()));
+        }
         metrics.walletCreated(request.getCurrency());
 
         log.info("Создан кошелёк id={}, user={}", saved.getId(), saved.getUserUid());
@@ -65,9 +98,10 @@ public class WalletServiceImpl implements WalletService {
 
     @Override
     @Loggable("wallet.get")
-    public Wallet getInformationByWalletId(UUID walletId) {
-        return walletRepository.findById(walletId)
-                .filter(wallet -> wallet.getStatus() == WalletTypeStatus.ACTIVE)
+    @Transactional(readOnly = true)
+    public WalletView getInformationByWalletId(UUID walletId) {
+        return walletViewCache.get(walletId, this::loadView)
+                .filter(wallet -> wallet.status() == WalletTypeStatus.ACTIVE)
                 .map(wallet -> {
                     metrics.walletFetched(true);
                     return wallet;
@@ -77,4 +111,60 @@ public class WalletServiceImpl implements WalletService {
                     return new WalletNotFoundException("Активный кошелек не найден: " + walletId);
                 });
     }
+
+    // Владелец кошелька из кэша направляет выборку операций кошелька в одну таблицу: по wallet_uid она ушла бы
+    // во все шарды. Входящие переводы иначе не найти — их выборка идёт во все шарды
+    @Override
+    @Loggable("wallet.history")
+    @Transactional(readOnly = true)
+    public TransactionHistoryPage getTransactionHistory(UUID walletId, String type, String status, String cursor,
+                                                        Integer limit) {
+        WalletView wallet = walletViewCache.get(walletId, this::loadView)
+                .orElseThrow(() -> new WalletNotFoundException("Кошелек с ID %s не найден".formatted(walletId)));
+        int pageSize = limit == null ? DEFAULT_HISTORY_PAGE : limit;
+        if (pageSize < 1 || pageSize > MAX_HISTORY_PAGE) {
+            throw new IllegalArgumentException("limit должен быть от 1 до %d".formatted(MAX_HISTORY_PAGE));
+        }
+        HistoryCursor after = cursor == null ? null : HistoryCursor.decode(cursor);
+
+        PaymentType paymentType = type == null ? null : PaymentType.valueOf(type.toUpperCase());
+        TransactionStatus transactionStatus = status == null ? null : TransactionStatus.valueOf(status.toUpperCase());
+        LocalDateTime afterCreatedAt = after == null ? null : after.createdAt();
+        UUID afterUid = after == null ? null : after.uid();
+
+        // На одну строку больше: по ней видно, есть ли следующая страница
+        List<TransactionHistoryItem> items = transactionRepository.findHistory(wallet.userUid(), walletId,
+                paymentType, transactionStatus, afterCreatedAt, afterUid, pageSize + 1);
+        // Входящие переводы лежат в шардах отправителей — вторая выборка с тем же курсором,
+        // слияние по (created_at, uid) в порядке Postgres
+        if ((paymentType == null || paymentType == PaymentType.TRANSFER)
+                && (transactionStatus == null || transactionStatus == TransactionStatus.COMPLETED)) {
+            List<TransactionHistoryItem> incoming = transactionRepository.findIncomingHistory(walletId,
+                    afterCreatedAt, afterUid, pageSize + 1);
+            if (!incoming.isEmpty()) {
+                List<TransactionHistoryItem> merged = new ArrayList<>(items.size() + incoming.size());
+                merged.addAll(items);
+                merged.addAll(incoming);
+                merged.sort(HISTORY_ORDER);
+                items = merged.subList(0, Math.min(merged.size(), pageSize + 1));
+            }
+        }
+
+        TransactionHistoryPage page = new TransactionHistoryPage();
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            TransactionHistoryItem last = items.get(pageSize - 1);
+            page.setNextCursor(new HistoryCursor(last.getCreatedAt().toLocalDateTime(), last.getTransactionId()).encode());
+        }
+        page.setItems(items);
+        return page;
+    }
+
+    // Баланс представления — текущий: снимок из строки кошелька плюс проводки после него
+    private Optional<WalletView> loadView(UUID walletId) {
+        return walletRepository.findViewById(walletId)
+                .map(view -> walletRepository.currentBalance(view.userUid(), walletId)
+                        .map(view::withBalance)
+                        .orElse(view));
+    }
 }
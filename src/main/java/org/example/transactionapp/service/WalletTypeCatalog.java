@@ -0,0 +1,106 @@
+package org.example.transactionapp.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.transactionapp.entity.WalletType;
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.repository.WalletTypeRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Справочник типов кошельков в памяти: валюта → активный тип и id → тип в любом статусе
+ * (у кошельков деактивированного типа валюта остаётся прежней).
+ * Снимок неизменяемый и подменяется целиком по расписанию или по {@link WalletTypesChangedEvent},
+ * читатели не ходят в БД и не берут блокировок. Тип, которого ещё нет в снимке, ищется в БД.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletTypeCatalog {
+
+    public record Entry(UUID id, String name, String currencyCode, String userType, WalletTypeStatus status) {
+
+        static Entry of(WalletType walletType) {
+            return new Entry(walletType.getId(), walletType.getName(),
+                    walletType.getCurrencyCode(), walletType.getUserType(), walletType.getStatus());
+        }
+    }
+
+    /**
+     * Публикуется {@link WalletTypeChangeListener} при изменении wallet_types через JPA,
+     * чтобы не ждать планового обновления.
+     */
+    public record WalletTypesChangedEvent() {
+    }
+
+    private record Snapshot(Map<String, Entry> byCurrency, Map<UUID, Entry> byId) {
+    }
+
+    private final WalletTypeRepository walletTypeRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    @PostConstruct
+    void load() {
+        refresh();
+        if (snapshot.byCurrency().isEmpty()) {
+            log.warn("Активные типы кошельков не найдены. Проверьте таблицу wallet_types.");
+        }
+    }
+
+    // После коммита: до него новая строка wallet_types не видна в других транзакциях
+    @TransactionalEventListener(fallbackExecution = true)
+    void onChanged(WalletTypesChangedEvent event) {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.wallet-types.refresh-interval:5m}")
+    public void refresh() {
+        List<WalletType> all = walletTypeRepository.findAll();
+        Map<String, Entry> byCurrency = new HashMap<>();
+        Map<UUID, Entry> byId = new HashMap<>();
+        for (WalletType walletType : all) {
+            Entry entry = Entry.of(walletType);
+            byId.put(entry.id(), entry);
+            if (entry.status() != WalletTypeStatus.ACTIVE) {
+                continue;
+            }
+            Entry previous = byCurrency.putIfAbsent(entry.currencyCode(), entry);
+            if (previous != null) {
+                log.warn("Несколько активных типов кошелька для валюты {}: {} и {}, используется {}",
+                        entry.currencyCode(), previous.id(), entry.id(), previous.id());
+            }
+        }
+        snapshot = new Snapshot(Map.copyOf(byCurrency), Map.copyOf(byId));
+        log.debug("Загружено типов кошельков: {}, активных валют: {}", byId.size(), byCurrency.size());
+    }
+
+    public Optional<Entry> activeByCurrency(String currencyCode) {
+        return Optional.ofNullable(snapshot.byCurrency().get(currencyCode));
+    }
+
+    /**
+     * Тип в любом статусе: кошельки деактивированного типа продолжают работать в его валюте.
+     */
+    public Optional<Entry> byId(UUID walletTypeId) {
+        Entry entry = snapshot.byId().get(walletTypeId);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        // Тип создан на другом экземпляре после последнего обновления
+        return walletTypeRepository.findById(walletTypeId).map(Entry::of);
+    }
+
+    public Map<String, Entry> activeByCurrency() {
+        return snapshot.byCurrency();
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.transactionapp.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.example.transactionapp.entity.WalletType;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA-слушатель {@link WalletType}: любое изменение типа кошелька через JPA публикует
+ * {@link WalletTypeCatalog.WalletTypesChangedEvent}. Справочник обновляется после коммита
+ * и только на этом экземпляре — остальные подхватят изменение плановым обновлением.
+ */
+@Component
+@RequiredArgsConstructor
+public class WalletTypeChangeListener {
+
+    private final ApplicationEventPublisher events;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(WalletType walletType) {
+        events.publishEvent(new WalletTypeCatalog.WalletTypesChangedEvent());
+    }
+}
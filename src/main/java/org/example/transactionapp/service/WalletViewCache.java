@@ -0,0 +1,63 @@
+package org.example.transactionapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.transactionapp.dto.WalletView;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Короткоживущий кеш {@link WalletView} по id кошелька. Любое изменение баланса сбрасывает запись
+ * после коммита; чтение, успевшее до коммита положить старый баланс, живёт не дольше TTL.
+ */
+@Component
+public class WalletViewCache {
+
+    private final Cache<UUID, WalletView> cache;
+
+    public WalletViewCache(WalletCacheProperties properties, MetricsFacade metrics) {
+        this.cache = properties.enabled()
+                ? Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build()
+                : null;
+        if (cache != null) {
+            metrics.cache("wallet.view", cache);
+        }
+    }
+
+    public Optional<WalletView> get(UUID walletId, Function<UUID, Optional<WalletView>> loader) {
+        if (cache == null) {
+            return loader.apply(walletId);
+        }
+        // Отсутствующий кошелёк не кешируется: он может появиться в следующую секунду
+        return Optional.ofNullable(cache.get(walletId, id -> loader.apply(id).orElse(null)));
+    }
+
+    public void evictAfterCommit(Collection<UUID> walletIds) {
+        if (cache == null || walletIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(walletIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidateAll(ids);
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.transactionapp.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Неизменяемое кольцо консистентного хеширования. Каждый узел занимает {@code virtualNodes} точек,
+ * ключ принадлежит первой точке по часовой стрелке. При добавлении N-го узла переезжает ~1/N ключей.
+ * Позиции зависят только от имён узлов, поэтому приложение и {@link ShardRebalancer} строят одно и то же кольцо.
+ * Позиция пользователя — хеш его 32-битного ключа маршрутизации ({@link TransactionIds#routingKey}),
+ * поэтому узел находится и по ключу, зашитому в идентификатор транзакции.
+ */
+public final class ConsistentHashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    static final int POSITION_BITS = 48;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final Set<String> nodes;
+    private final long[] points;
+    private final String[] owners;
+
+    private ConsistentHashRing(Set<String> nodes, long[] points, String[] owners) {
+        this.nodes = nodes;
+        this.points = points;
+        this.owners = owners;
+    }
+
+    public static ConsistentHashRing of(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Кольцо без узлов");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtual-nodes должно быть положительным: " + virtualNodes);
+        }
+        // Сортировка имён делает кольцо независимым от порядка в конфигурации
+        List<String> sorted = List.copyOf(new TreeSet<>(nodes));
+        int size = sorted.size() * virtualNodes;
+        long[][] entries = new long[size][];
+        int i = 0;
+        for (int n = 0; n < sorted.size(); n++) {
+            long seed = fnv1a(sorted.get(n));
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[i++] = new long[]{mix(seed + v * GOLDEN_GAMMA) >>> (64 - POSITION_BITS), n};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        long[] points = new long[size];
+        String[] owners = new String[size];
+        for (int p = 0; p < size; p++) {
+            points[p] = entries[p][0];
+            owners[p] = sorted.get((int) entries[p][1]);
+        }
+        return new ConsistentHashRing(Set.copyOf(sorted), points, owners);
+    }
+
+    /**
+     * Позиция ключа маршрутизации на кольце, 48 бит.
+     */
+    public static long position(int routingKey) {
+        return mix(routingKey) >>> (64 - POSITION_BITS);
+    }
+
+    public String nodeFor(UUID userUid) {
+        return nodeFor(position(TransactionIds.routingKey(userUid)));
+    }
+
+    public String nodeFor(long position) {
+        int index = Arrays.binarySearch(points, position);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    // Финализатор MurmurHash3: равномерно размазывает соседние значения по всему long
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
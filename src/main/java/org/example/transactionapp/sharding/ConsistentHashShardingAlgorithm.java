@@ -0,0 +1,50 @@
+package org.example.transactionapp.sharding;
+
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.RangeShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.StandardShardingAlgorithm;
+
+import java.util.Collection;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Маршрутизация по user_uid через {@link ConsistentHashRing}. Кольцо строится по доступным
+ * источникам данных, поэтому добавление dsN в actual-data-nodes переносит только ~1/N пользователей
+ * (перенос данных — {@link ShardRebalancer}).
+ *
+ * <pre>
+ * type: CONSISTENT_HASH
+ * props:
+ *   virtual-nodes: 160
+ * </pre>
+ */
+public class ConsistentHashShardingAlgorithm implements StandardShardingAlgorithm<Comparable<?>> {
+
+    private RingCache rings = new RingCache(ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+    @Override
+    public void init(Properties properties) {
+        this.rings = RingCache.fromProperties(properties);
+    }
+
+    @Override
+    public String doSharding(Collection<String> availableTargetNames, PreciseShardingValue<Comparable<?>> shardingValue) {
+        return rings.ringFor(availableTargetNames).nodeFor(toUuid(shardingValue.getValue()));
+    }
+
+    // Хеш не сохраняет порядок, поэтому диапазон по user_uid может лежать в любом шарде
+    @Override
+    public Collection<String> doSharding(Collection<String> availableTargetNames, RangeShardingValue<Comparable<?>> shardingValue) {
+        return availableTargetNames;
+    }
+
+    @Override
+    public String getType() {
+        return "CONSISTENT_HASH";
+    }
+
+    static UUID toUuid(Comparable<?> value) {
+        return value instanceof UUID uuid ? uuid : UUID.fromString(value.toString());
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.transactionapp.sharding;
+
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Кольцо для текущего набора источников данных. Набор меняется только при перезапуске
+ * с новой конфигурацией, поэтому кольцо строится один раз.
+ */
+final class RingCache {
+
+    private final int virtualNodes;
+
+    private volatile ConsistentHashRing ring;
+
+    RingCache(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    static RingCache fromProperties(Properties properties) {
+        String value = properties.getProperty("virtual-nodes");
+        return new RingCache(value != null && !value.isEmpty()
+                ? Integer.parseInt(value)
+                : ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    ConsistentHashRing ringFor(Collection<String> availableTargetNames) {
+        ConsistentHashRing current = ring;
+        if (current == null || !sameNodes(current.nodes(), availableTargetNames)) {
+            current = ConsistentHashRing.of(availableTargetNames, virtualNodes);
+            ring = current;
+        }
+        return current;
+    }
+
+    private static boolean sameNodes(Set<String> nodes, Collection<String> targets) {
+        if (nodes.size() != targets.size()) {
+            return false;
+        }
+        for (String target : targets) {
+            if (!nodes.contains(target)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.transactionapp.sharding;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Раскладка пользователей по базам. Данные, записанные по одной раскладке, по другой не находятся:
+ * сменить её можно только вместе с переносом строк ({@link ShardRebalanceTool}).
+ */
+public enum ShardLayout {
+
+    /**
+     * Как HASH_MOD ShardingSphere: {@code abs(hashCode) % число узлов}, узел — с этим номером в конце имени.
+     */
+    HASH_MOD,
+
+    /**
+     * Как {@link UuidModShardingAlgorithm}: остаток от младших 64 бит user_uid. Ключа из id транзакции
+     * для неё не хватает — поиск только по id идёт во все шарды.
+     */
+    UUID_MOD,
+
+    /**
+     * {@link ConsistentHashRing}: при добавлении узла переезжает ~1/N пользователей.
+     */
+    CONSISTENT_HASH;
+
+    public static ShardLayout of(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    String nodeFor(UUID userUid, Collection<String> targets, RingCache rings) {
+        if (this == UUID_MOD) {
+            return byIndex(targets, Math.floorMod(userUid.getLeastSignificantBits(), (long) targets.size()));
+        }
+        return nodeFor(TransactionIds.routingKey(userUid), targets, rings).orElseThrow();
+    }
+
+    /**
+     * Узел по ключу маршрутизации пользователя; пусто, если раскладке нужен весь user_uid.
+     */
+    Optional<String> nodeFor(int routingKey, Collection<String> targets, RingCache rings) {
+        return switch (this) {
+            case HASH_MOD -> Optional.of(byIndex(targets, moduloIndex(routingKey, targets.size())));
+            case UUID_MOD -> Optional.empty();
+            case CONSISTENT_HASH -> Optional.of(rings.ringFor(targets).nodeFor(ConsistentHashRing.position(routingKey)));
+        };
+    }
+
+    static long moduloIndex(int routingKey, int count) {
+        return Math.abs((long) routingKey) % count;
+    }
+
+    // Номер — числовой суффикс имени: ds0, ds1 или transactions_0, transactions_1
+    static String byIndex(Collection<String> targets, long index) {
+        String number = Long.toString(index);
+        for (String target : targets) {
+            if (target.endsWith(number) && !Character.isDigit(charBefore(target, number))) {
+                return target;
+            }
+        }
+        throw new IllegalStateException("Нет узла с номером %s среди %s".formatted(number, targets));
+    }
+
+    private static char charBefore(String target, String suffix) {
+        int at = target.length() - suffix.length() - 1;
+        return at < 0 ? ' ' : target.charAt(at);
+    }
+}
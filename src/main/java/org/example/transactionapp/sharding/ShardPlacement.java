@@ -0,0 +1,42 @@
+package org.example.transactionapp.sharding;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * База пользователя вне ShardingSphere — по той же {@link ShardLayout} и тем же именам источников,
+ * что в конфигурации шардирования.
+ */
+public final class ShardPlacement {
+
+    private final ShardLayout layout;
+    private final List<String> nodes;
+    private final RingCache rings;
+
+    private ShardPlacement(ShardLayout layout, List<String> nodes, RingCache rings) {
+        this.layout = layout;
+        this.nodes = nodes;
+        this.rings = rings;
+    }
+
+    public static ShardPlacement of(ShardLayout layout, Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Раскладка без узлов");
+        }
+        return new ShardPlacement(layout, List.copyOf(new TreeSet<>(nodes)), new RingCache(virtualNodes));
+    }
+
+    public String databaseFor(UUID userUid) {
+        return layout.nodeFor(userUid, nodes, rings);
+    }
+
+    public ShardLayout layout() {
+        return layout;
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.transactionapp.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Перенос данных при смене раскладки шардов, запускается отдельно от приложения.
+ * {@code --from-layout} — раскладка, по которой лежат данные и работает приложение, {@code --to-layout} — новая
+ * ({@code hash-mod}, {@code uuid-mod} или {@code consistent-hash}, по умолчанию consistent-hash).
+ * Переход с модульной раскладки на кольцо — {@code --from-layout=hash-mod --to-layout=consistent-hash},
+ * расширение кольца — другой {@code --to}:
+ * <ol>
+ *     <li>{@code --phase=follow}: полное копирование, затем докопирование изменений каждые {@code --interval},
+ *     пока процесс не остановят. Каждый проход заново берёт строки, изменённые за {@code --overlap}
+ *     (по умолчанию 1m) до прошлого прохода, — транзакции приложения коммитятся позже своего modified_at.
+ *     В это время конфигурацию приложения переключают на новую раскладку (алгоритм баз wallets, ledger_entries
+ *     и outbox, user-layout у USER_OR_ID, transaction.sharding.layout). Проводки переезжают вместе с кошельками
+ *     под новыми seq, снимок баланса на новом шарде сворачивает снапшоттер;</li>
+ *     <li>после переключения дождаться ещё одного прохода и остановить процесс;</li>
+ *     <li>{@code --phase=cleanup}: удалить перенесённые строки из старых шардов.</li>
+ * </ol>
+ * <pre>
+ * ./gradlew rebalanceShards -Prebalance.args="--node.ds0=jdbc:postgresql://... --node.ds1=... --node.ds2=...
+ *     --from=ds0,ds1 --from-layout=hash-mod --to=ds0,ds1,ds2 --user=postgres --password=postgres --phase=follow"
+ * </pre>
+ */
+@Slf4j
+public class ShardRebalanceTool {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, DataSource> dataSources = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Ожидается --key=value: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        options.forEach((key, url) -> {
+            if (key.startsWith("node.")) {
+                dataSources.put(key.substring("node.".length()),
+                        new DriverManagerDataSource(url, options.get("user"), options.get("password")));
+            }
+        });
+
+        int virtualNodes = Integer.parseInt(options.getOrDefault("virtual-nodes",
+                String.valueOf(ConsistentHashRing.DEFAULT_VIRTUAL_NODES)));
+        ShardPlacement from = ShardPlacement.of(layout(options, "from-layout"), nodes(options, "from"), virtualNodes);
+        ShardPlacement to = ShardPlacement.of(layout(options, "to-layout"), nodes(options, "to"), virtualNodes);
+        for (String node : to.nodes()) {
+            if (!dataSources.containsKey(node)) {
+                throw new IllegalArgumentException("Нет --node." + node);
+            }
+        }
+
+        ShardRebalancer rebalancer = new ShardRebalancer(dataSources, from, to,
+                Integer.parseInt(options.getOrDefault("batch-size", "1000")),
+                duration(options.getOrDefault("overlap", "1m")));
+
+        switch (options.getOrDefault("phase", "follow")) {
+            case "follow" -> {
+                Duration interval = duration(options.getOrDefault("interval", "5s"));
+                Map<String, Timestamp> watermarks = rebalancer.copy();
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(interval.toMillis());
+                    long copied = rebalancer.catchUp(watermarks);
+                    log.info("Докопировано {} изменённых строк", copied);
+                }
+            }
+            case "cleanup" -> log.info("Удалено {} строк", rebalancer.cleanup());
+            default -> throw new IllegalArgumentException("Неизвестная фаза: " + options.get("phase"));
+        }
+    }
+
+    private static ShardLayout layout(Map<String, String> options, String key) {
+        return ShardLayout.of(options.getOrDefault(key, ShardLayout.CONSISTENT_HASH.name()));
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static List<String> nodes(Map<String, String> options, String key) {
+        String value = options.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Не задан --" + key);
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).toList();
+    }
+}
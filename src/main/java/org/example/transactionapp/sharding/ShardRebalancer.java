@@ -0,0 +1,418 @@
+package org.example.transactionapp.sharding;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Переносит строки, у которых при переходе со старой раскладки на новую (HASH_MOD или UUID_MOD на кольцо,
+ * кольцо на кольцо побольше) сменился шард. Пока приложение пишет по старой раскладке, {@link #catchUp}
+ * повторно копирует изменённые строки (по modified_at, с перекрытием {@code overlap} для транзакций,
+ * закоммиченных позже своего modified_at), так что новый шард держится в актуальном состоянии до переключения.
+ * Копия не затирает более свежую строку цели. После переключения конфигурации {@link #cleanup} удаляет
+ * перенесённые строки из старых шардов.
+ * <p>
+ * Проводки ledger_entries_N получают seq из последовательности цели, источник запоминается
+ * в moved_from/moved_from_seq (V15). Снимок кошелька переносится как база без проводок: balance минус
+ * свёрнутые в него проводки, snapshot_seq = 0 — текущий баланс на цели равен базе плюс все проводки
+ * кошелька, в каком бы порядке они ни скопировались; хвост затем сворачивает снапшоттер цели.
+ * Проводки вставляются под FOR NO KEY UPDATE строк кошельков цели, как у приложения: снимок на цели
+ * не перешагнёт незакоммиченную проводку.
+ * <p>
+ * outbox не переносится: OutboxRelay читает его во всех шардах, события старого шарда просто досылаются оттуда.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardRebalancer {
+
+    private static final String MODIFIED = "coalesce(%1$smodified_at, %1$screated_at)";
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Удаление из журнала проводок разрешено только в транзакции, где это включено (V15)
+    private static final String LEDGER_MOVE_SQL = "select set_config('transaction_app.ledger_move', 'on', true)";
+
+    enum Copy {
+        /**
+         * Строку меняют после вставки: повторная копия обновляет цель, если строка источника не старше.
+         */
+        UPDATE,
+        /**
+         * Как UPDATE, но снимок баланса переводится в базу без проводок (balance минус свёрнутые проводки,
+         * snapshot_seq = 0): seq источника на цели ничего не значат.
+         */
+        WALLET,
+        /**
+         * Строка не меняется после вставки: повторная копия ничего не делает.
+         */
+        ONCE,
+        /**
+         * Проводка: новый seq из последовательности цели, повторная копия узнаётся по moved_from/moved_from_seq.
+         */
+        LEDGER
+    }
+
+    /**
+     * @param changedAt   выражение времени изменения строки, {@code %1$s} — префикс таблицы
+     * @param partitioned секционирована по месяцам created_at: секции цели создаются по мере копирования
+     */
+    record Table(String name, List<String> key, String changedAt, Copy copy, boolean partitioned) {
+
+        String changedAt(String alias) {
+            return changedAt.formatted(alias);
+        }
+
+        // Для кошелька — сумма проводок, уже свёрнутых в его снимок
+        String select() {
+            if (copy != Copy.WALLET) {
+                return "*";
+            }
+            return "*, (select coalesce(sum(e.amount), 0) from " + name.replace("wallets", "ledger_entries")
+                    + " e where e.wallet_uid = t.uid and e.seq <= t.snapshot_seq) as ledger_folded";
+        }
+
+        // Таблица кошельков того же номера, что у таблицы проводок
+        String wallets() {
+            return name.replace("ledger_entries", "wallets");
+        }
+    }
+
+    static final List<Table> TABLES = List.of(
+            new Table("wallets_0", List.of("uid"), MODIFIED, Copy.WALLET, false),
+            new Table("wallets_1", List.of("uid"), MODIFIED, Copy.WALLET, false),
+            new Table("transactions_0", List.of("uid", "created_at"), MODIFIED, Copy.UPDATE, true),
+            new Table("transactions_1", List.of("uid", "created_at"), MODIFIED, Copy.UPDATE, true),
+            new Table("ledger_entries_0", List.of("seq", "created_at"), "%1$screated_at", Copy.LEDGER, true),
+            new Table("ledger_entries_1", List.of("seq", "created_at"), "%1$screated_at", Copy.LEDGER, true),
+            // Суммы архивированных секций по владельцу транзакций: без них сверка потеряет его старые месяцы
+            new Table("archived_wallet_totals", List.of("parent_table", "user_uid", "wallet_uid"),
+                    "%1$smodified_at", Copy.UPDATE, false),
+            // Без отметок идемпотентности событие провайдера применилось бы на новом шарде повторно
+            new Table("processed_events", List.of("topic", "transaction_id"), "%1$sprocessed_at", Copy.ONCE, false));
+
+    private final Map<String, DataSource> dataSources;
+    private final ShardPlacement from;
+    private final ShardPlacement to;
+    private final int batchSize;
+    private final Duration overlap;
+
+    // Месячные секции, уже созданные на цели: target.table → месяцы
+    private final Map<String, Set<YearMonth>> partitions = new HashMap<>();
+
+    /**
+     * Полное копирование переезжающих строк.
+     *
+     * @return момент начала копирования по часам каждого исходного шарда — водяной знак для {@link #catchUp}
+     */
+    public Map<String, Timestamp> copy() throws SQLException {
+        Map<String, Timestamp> watermarks = new HashMap<>();
+        for (String source : from.nodes()) {
+            watermarks.put(source, now(source));
+            for (Table table : TABLES) {
+                long copied = scan(source, table, null, this::upsert);
+                log.info("Скопировано {} строк из {}.{}", copied, source, table.name());
+            }
+        }
+        return watermarks;
+    }
+
+    /**
+     * Докопирует строки, изменённые начиная с водяного знака минус перекрытие, и сдвигает его.
+     *
+     * @return сколько строк скопировано за проход
+     */
+    public long catchUp(Map<String, Timestamp> watermarks) throws SQLException {
+        long total = 0;
+        for (String source : from.nodes()) {
+            Timestamp next = now(source);
+            Timestamp since = new Timestamp(watermarks.get(source).getTime() - overlap.toMillis());
+            for (Table table : TABLES) {
+                total += scan(source, table, since, this::upsert);
+            }
+            watermarks.put(source, next);
+        }
+        return total;
+    }
+
+    /**
+     * Удаляет из старых шардов строки, которые по новой раскладке принадлежат другим шардам.
+     * Запускать только после того, как приложение переключено на новую раскладку.
+     */
+    public long cleanup() throws SQLException {
+        long total = 0;
+        for (String source : from.nodes()) {
+            for (Table table : TABLES) {
+                long deleted = scan(source, table, null, (target, sourceTable, batch) -> delete(source, sourceTable, batch));
+                log.info("Удалено {} перенесённых строк из {}.{}", deleted, source, table.name());
+                total += deleted;
+            }
+        }
+        return total;
+    }
+
+    // Keyset-обход таблицы по ключу, строки группируются по целевому шарду новой раскладки
+    private long scan(String source, Table table, Timestamp since, BatchHandler handler) throws SQLException {
+        String key = String.join(", ", table.key());
+        String after = "(" + key + ") > (" + String.join(", ", table.key().stream().map(column -> "?").toList()) + ")";
+        long moved = 0;
+        long strays = 0;
+        Object[] last = null;
+        try (Connection connection = dataSources.get(source).getConnection()) {
+            while (true) {
+                String sql = "select " + table.select() + " from " + table.name() + " t where true"
+                        + (last != null ? " and " + after : "")
+                        + (since != null ? " and " + table.changedAt("") + " >= ?" : "")
+                        + " order by " + key + " limit ?";
+                Map<String, Rows> byTarget = new HashMap<>();
+                int read = 0;
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    int index = 1;
+                    if (last != null) {
+                        for (Object value : last) {
+                            statement.setObject(index++, value);
+                        }
+                    }
+                    if (since != null) {
+                        statement.setTimestamp(index++, since);
+                    }
+                    statement.setInt(index, batchSize);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            read++;
+                            last = new Object[table.key().size()];
+                            for (int i = 0; i < last.length; i++) {
+                                last[i] = rs.getObject(table.key().get(i));
+                            }
+                            UUID owner = rs.getObject("user_uid", UUID.class);
+                            if (!from.databaseFor(owner).equals(source)) {
+                                strays++;
+                            }
+                            String target = to.databaseFor(owner);
+                            if (!target.equals(source)) {
+                                byTarget.computeIfAbsent(target, t -> new Rows(source, table, rs)).add(rs);
+                            }
+                        }
+                    }
+                }
+                for (Map.Entry<String, Rows> entry : byTarget.entrySet()) {
+                    handler.handle(entry.getKey(), table, entry.getValue());
+                    moved += entry.getValue().values.size();
+                }
+                if (read < batchSize) {
+                    if (strays > 0) {
+                        log.warn("{}.{}: {} строк лежат не по раскладке {} — проверьте --from-layout",
+                                source, table.name(), strays, from.layout());
+                    }
+                    return moved;
+                }
+            }
+        }
+    }
+
+    private void upsert(String target, Table table, Rows rows) throws SQLException {
+        if (table.copy() == Copy.LEDGER) {
+            insertEntries(target, table, rows);
+            return;
+        }
+        StringJoiner columns = new StringJoiner(", ");
+        StringJoiner params = new StringJoiner(", ");
+        StringJoiner updates = new StringJoiner(", ");
+        for (int i = 0; i < rows.columns.size(); i++) {
+            String column = rows.columns.get(i);
+            columns.add(column);
+            params.add("?::" + rows.types.get(i));
+            updates.add(column + " = excluded." + column);
+        }
+        // Повторная копия не откатывает строку, которую цель уже успела изменить позже
+        String sql = "insert into " + table.name() + " as t (" + columns + ") values (" + params + ")"
+                + " on conflict (" + String.join(", ", table.key()) + ")"
+                + (table.copy() == Copy.ONCE
+                ? " do nothing"
+                : " do update set " + updates
+                + " where " + table.changedAt("excluded.") + " >= " + table.changedAt("t."));
+
+        try (Connection connection = dataSources.get(target).getConnection()) {
+            ensurePartitions(connection, target, table, rows);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Object[] row : rows.values) {
+                    for (int i = 0; i < row.length; i++) {
+                        statement.setObject(i + 1, row[i]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    // Проводки цели с новым seq. Строки кошельков блокируются до вставки, как при списании и зачислении
+    private void insertEntries(String target, Table table, Rows rows) throws SQLException {
+        int createdAt = rows.columns.indexOf("created_at");
+        int owner = rows.columns.indexOf("user_uid");
+        int wallet = rows.columns.indexOf("wallet_uid");
+        int transaction = rows.columns.indexOf("transaction_uid");
+        int account = rows.columns.indexOf("account");
+        int amount = rows.columns.indexOf("amount");
+        int seq = rows.columns.indexOf("seq");
+        Set<UUID> wallets = new HashSet<>();
+        for (Object[] row : rows.values) {
+            if (row[wallet] != null) {
+                wallets.add((UUID) row[wallet]);
+            }
+        }
+
+        try (Connection connection = dataSources.get(target).getConnection()) {
+            ensurePartitions(connection, target, table, rows);
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement lock = connection.prepareStatement("select uid from " + table.wallets()
+                        + " where uid = any (?) order by uid for no key update")) {
+                    lock.setArray(1, connection.createArrayOf("uuid", wallets.toArray()));
+                    lock.executeQuery().close();
+                }
+                try (PreparedStatement statement = connection.prepareStatement("insert into " + table.name()
+                        + " (created_at, user_uid, wallet_uid, transaction_uid, account, amount, moved_from, moved_from_seq)"
+                        + " values (?, ?, ?, ?, ?, ?, ?, ?)"
+                        + " on conflict (moved_from, moved_from_seq, created_at) do nothing")) {
+                    for (Object[] row : rows.values) {
+                        statement.setObject(1, row[createdAt]);
+                        statement.setObject(2, row[owner]);
+                        statement.setObject(3, row[wallet]);
+                        statement.setObject(4, row[transaction]);
+                        statement.setObject(5, row[account]);
+                        statement.setObject(6, row[amount]);
+                        statement.setString(7, rows.source);
+                        statement.setObject(8, row[seq]);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // На новом узле секции есть только с месяца его миграции; переносимым строкам нужны и более старые
+    private void ensurePartitions(Connection connection, String target, Table table, Rows rows) throws SQLException {
+        if (!table.partitioned()) {
+            return;
+        }
+        int createdAt = rows.columns.indexOf("created_at");
+        Set<YearMonth> created = partitions.computeIfAbsent(target + "." + table.name(), key -> new HashSet<>());
+        for (Object[] row : rows.values) {
+            YearMonth month = YearMonth.from(((Timestamp) row[createdAt]).toLocalDateTime());
+            if (created.add(month)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("create table if not exists %s_p%s partition of %s for values from ('%s') to ('%s')"
+                            .formatted(table.name(), month.format(MONTH), table.name(),
+                                    month.atDay(1), month.plusMonths(1).atDay(1)));
+                }
+            }
+        }
+    }
+
+    private void delete(String source, Table table, Rows rows) throws SQLException {
+        int[] key = table.key().stream().mapToInt(rows.columns::indexOf).toArray();
+        String sql = "delete from " + table.name() + " where "
+                + String.join(" and ", table.key().stream().map(column -> column + " = ?").toList());
+        try (Connection connection = dataSources.get(source).getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (table.copy() == Copy.LEDGER) {
+                    try (Statement enable = connection.createStatement()) {
+                        enable.executeQuery(LEDGER_MOVE_SQL).close();
+                    }
+                }
+                for (Object[] row : rows.values) {
+                    for (int i = 0; i < key.length; i++) {
+                        statement.setObject(i + 1, row[key[i]]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Timestamp now(String source) throws SQLException {
+        try (Connection connection = dataSources.get(source).getConnection();
+             PreparedStatement statement = connection.prepareStatement("select localtimestamp");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchHandler {
+        void handle(String target, Table table, Rows rows) throws SQLException;
+    }
+
+    private static final class Rows {
+        private final String source;
+        private final boolean wallet;
+        private final List<String> columns = new ArrayList<>();
+        private final List<String> types = new ArrayList<>();
+        private final List<Object[]> values = new ArrayList<>();
+
+        private Rows(String source, Table table, ResultSet rs) {
+            this.source = source;
+            this.wallet = table.copy() == Copy.WALLET;
+            try {
+                ResultSetMetaData metaData = rs.getMetaData();
+                // ledger_folded — последняя колонка выборки кошельков, в цель не пишется
+                int count = metaData.getColumnCount() - (wallet ? 1 : 0);
+                for (int i = 1; i <= count; i++) {
+                    columns.add(metaData.getColumnName(i));
+                    types.add(metaData.getColumnTypeName(i));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void add(ResultSet rs) throws SQLException {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            if (wallet) {
+                int balance = columns.indexOf("balance");
+                row[balance] = ((BigDecimal) row[balance]).subtract(rs.getBigDecimal("ledger_folded"));
+                row[columns.indexOf("snapshot_seq")] = 0L;
+            }
+            values.add(row);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.transactionapp.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * База данных пользователя на стороне приложения — та же раскладка, что у wallets в конфигурации
+ * шардирования ({@code transaction.sharding.layout} меняется вместе с ней).
+ * Нужна, чтобы группировать пакетные операции по шарду до отправки в ShardingSphere.
+ * Без списка источников (подключение через ShardingSphereDriver и YAML) всё попадает в одну группу.
+ */
+@Component
+public class ShardRouter {
+
+    static final String SINGLE_GROUP = "default";
+
+    private final ShardPlacement placement;
+
+    public ShardRouter(@Value("${spring.shardingsphere.datasource.names:}") String dataSourceNames,
+                       @Value("${transaction.sharding.layout:HASH_MOD}") String layout,
+                       @Value("${transaction.sharding.virtual-nodes:" + ConsistentHashRing.DEFAULT_VIRTUAL_NODES + "}")
+                       int virtualNodes) {
+        String[] names = Arrays.stream(dataSourceNames.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toArray(String[]::new);
+        this.placement = names.length == 0
+                ? null
+                : ShardPlacement.of(ShardLayout.of(layout), Arrays.asList(names), virtualNodes);
+    }
+
+    public String databaseFor(UUID userUid) {
+        return placement == null ? SINGLE_GROUP : placement.databaseFor(userUid);
+    }
+}
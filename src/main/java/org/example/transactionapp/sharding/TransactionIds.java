@@ -0,0 +1,97 @@
+package org.example.transactionapp.sharding;
+
+import org.example.transactionapp.id.TimeOrderedUuids;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Идентификаторы транзакций с зашитым ключом маршрутизации пользователя. Раскладка как у UUIDv7
+ * (время впереди, см. {@link TimeOrderedUuids}), но версия 8, чтобы отличать их от обычных v7:
+ * <pre>
+ * старшие 64 бита: 48 бит миллисекунд | версия 8 | 12 бит счётчика
+ * младшие 64 бита: вариант 10 | 30 случайных (SecureRandom) | 32 бита ключа маршрутизации user_uid
+ * </pre>
+ * Ключ маршрутизации — {@code user_uid.hashCode()}: по нему считаются и HASH_MOD, и позиция на кольце,
+ * поэтому {@link UserOrIdShardingAlgorithm} находит шард и таблицу без user_uid при любой {@link ShardLayout},
+ * кроме UUID_MOD. Идентификаторы v7 без ключа ищутся во всех шардах.
+ * <p>
+ * created_at строки транзакции — время из id ({@link #createdAt}): первичный ключ секционированной таблицы
+ * (uid, created_at), и повторный confirm того же id должен упереться в тот же ключ, а не вставить дубль.
+ */
+public final class TransactionIds {
+
+    private static final int VERSION = 8;
+    private static final int ROUTING_KEY_BITS = 32;
+    private static final long ROUTING_KEY_MASK = (1L << ROUTING_KEY_BITS) - 1;
+    private static final long RANDOM_MASK = (1L << 30) - 1;
+
+    /**
+     * Насколько время в id может опережать часы сервиса: больше — id сгенерирован не init().
+     */
+    public static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private TransactionIds() {
+    }
+
+    public static UUID forUser(UUID userUid) {
+        if (userUid == null) {
+            return TimeOrderedUuids.next();
+        }
+        long msb = TimeOrderedUuids.nextMsb(VERSION);
+        long lsb = (1L << 63)
+                | (TimeOrderedUuids.randomBits() & RANDOM_MASK) << ROUTING_KEY_BITS
+                | routingKey(userUid) & ROUTING_KEY_MASK;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Ключ маршрутизации пользователя — тот же хеш, что берёт HASH_MOD ShardingSphere.
+     */
+    public static int routingKey(UUID userUid) {
+        return userUid.hashCode();
+    }
+
+    /**
+     * Ключ маршрутизации из id транзакции; пусто, если id выдан не {@link #forUser}.
+     */
+    public static OptionalInt transactionRoutingKey(UUID transactionId) {
+        if (transactionId.version() != VERSION || transactionId.variant() != 2) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of((int) transactionId.getLeastSignificantBits());
+    }
+
+    /**
+     * Проверяет, что id выдан init() (v7 или v8) и время в нём не из будущего.
+     *
+     * @throws IllegalArgumentException id без времени или с временем впереди часов сервиса
+     */
+    public static void requireTimeOrdered(UUID transactionId) {
+        if (transactionId.variant() != 2 || transactionId.version() != VERSION && transactionId.version() != 7) {
+            throw new IllegalArgumentException("Транзакция %s выдана не init(), повторите init".formatted(transactionId));
+        }
+        if (TimeOrderedUuids.timestamp(transactionId).isAfter(Instant.now().plus(MAX_CLOCK_SKEW))) {
+            throw new IllegalArgumentException("Время в id транзакции %s впереди часов сервиса".formatted(transactionId));
+        }
+    }
+
+    /**
+     * created_at строки транзакции — момент выдачи id, с точностью до миллисекунды.
+     */
+    public static OffsetDateTime createdAt(UUID transactionId) {
+        return TimeOrderedUuids.timestamp(transactionId).atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Выдан ли id для другого пользователя: такая транзакция попала бы не в тот шард.
+     */
+    public static boolean belongsToAnotherUser(UUID transactionId, UUID userUid) {
+        OptionalInt routingKey = transactionRoutingKey(transactionId);
+        return routingKey.isPresent() && routingKey.getAsInt() != routingKey(userUid);
+    }
+}
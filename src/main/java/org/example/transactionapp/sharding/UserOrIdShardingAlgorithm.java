@@ -0,0 +1,107 @@
+package org.example.transactionapp.sharding;
+
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingAlgorithm;
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Маршрутизация по user_uid или по id транзакции из {@link TransactionIds}: поиск по одному id
+ * попадает в одну таблицу одного шарда вместо рассылки по всем. Шард выбирается по {@code user-layout}
+ * — той же раскладке, что у кошельков (HASH_MOD для данных, записанных до кольца), таблица —
+ * остатком от ключа маршрутизации, как у HASH_MOD. Если раскладка не вычисляется по ключу из id
+ * (UUID_MOD) или id старый, поиск идёт во все шарды.
+ *
+ * <pre>
+ * complex:
+ *   sharding-columns: user_uid,uid
+ *   sharding-algorithm-name: tx-user-or-id
+ * ...
+ * type: USER_OR_ID
+ * props:
+ *   user-layout: HASH_MOD
+ *   virtual-nodes: 160
+ *   user-column: user_uid
+ *   id-column: uid
+ * </pre>
+ */
+public class UserOrIdShardingAlgorithm implements ComplexKeysShardingAlgorithm<Comparable<?>> {
+
+    private RingCache rings = new RingCache(ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    private ShardLayout userLayout = ShardLayout.CONSISTENT_HASH;
+    private String userColumn = "user_uid";
+    private String idColumn = "uid";
+
+    @Override
+    public void init(Properties properties) {
+        this.rings = RingCache.fromProperties(properties);
+        this.userLayout = ShardLayout.of(properties.getProperty("user-layout", userLayout.name()));
+        this.userColumn = properties.getProperty("user-column", userColumn);
+        this.idColumn = properties.getProperty("id-column", idColumn);
+    }
+
+    @Override
+    public Collection<String> doSharding(Collection<String> availableTargetNames,
+                                         ComplexKeysShardingValue<Comparable<?>> shardingValue) {
+        Collection<Comparable<?>> users = values(shardingValue.getColumnNameAndShardingValuesMap(), userColumn);
+        Collection<Comparable<?>> ids = values(shardingValue.getColumnNameAndShardingValuesMap(), idColumn);
+        boolean tableLevel = availableTargetNames.iterator().next()
+                .startsWith(shardingValue.getLogicTableName() + "_");
+
+        Collection<String> result = new TreeSet<>();
+        if (users != null) {
+            for (Comparable<?> user : users) {
+                UUID userUid = ConsistentHashShardingAlgorithm.toUuid(user);
+                result.add(tableLevel
+                        ? table(availableTargetNames, TransactionIds.routingKey(userUid))
+                        : userLayout.nodeFor(userUid, availableTargetNames, rings));
+            }
+            return result;
+        }
+        if (ids != null) {
+            for (Comparable<?> id : ids) {
+                OptionalInt routingKey = TransactionIds.transactionRoutingKey(ConsistentHashShardingAlgorithm.toUuid(id));
+                if (routingKey.isEmpty()) {
+                    // Старый id без ключа маршрутизации
+                    return availableTargetNames;
+                }
+                if (tableLevel) {
+                    result.add(table(availableTargetNames, routingKey.getAsInt()));
+                    continue;
+                }
+                Optional<String> node = userLayout.nodeFor(routingKey.getAsInt(), availableTargetNames, rings);
+                if (node.isEmpty()) {
+                    return availableTargetNames;
+                }
+                result.add(node.get());
+            }
+            return result;
+        }
+        return availableTargetNames;
+    }
+
+    @Override
+    public String getType() {
+        return "USER_OR_ID";
+    }
+
+    // Таблица — как у HASH_MOD по user_uid, при любой раскладке баз
+    private static String table(Collection<String> availableTargetNames, int routingKey) {
+        return ShardLayout.byIndex(availableTargetNames, ShardLayout.moduloIndex(routingKey, availableTargetNames.size()));
+    }
+
+    private static Collection<Comparable<?>> values(Map<String, Collection<Comparable<?>>> byColumn, String column) {
+        for (Map.Entry<String, Collection<Comparable<?>>> entry : byColumn.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(column)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
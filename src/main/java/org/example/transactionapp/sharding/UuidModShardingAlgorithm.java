@@ -8,6 +8,10 @@ import java.util.Collection;
 import java.util.Properties;
 import java.util.UUID;
 
+/**
+ * Остаток от деления младших бит UUID. При смене sharding-count переезжает почти всё,
+ * для новых конфигураций — {@link ConsistentHashShardingAlgorithm}.
+ */
 public class UuidModShardingAlgorithm implements StandardShardingAlgorithm<Comparable<?>> {
 
     private int shardingCount = 2;
@@ -22,9 +26,9 @@ public class UuidModShardingAlgorithm implements StandardShardingAlgorithm<Compa
 
     @Override
     public String doSharding(Collection<String> collection, PreciseShardingValue<Comparable<?>> preciseShardingValue) {
-        UUID uuid = UUID.fromString(preciseShardingValue.getValue().toString());
+        UUID uuid = ConsistentHashShardingAlgorithm.toUuid(preciseShardingValue.getValue());
         long hash = uuid.getLeastSignificantBits();
-        int shardIndex = (int) Math.abs(hash & shardingCount);
+        int shardIndex = (int) Math.floorMod(hash, (long) shardingCount);
         return "ds" + shardIndex;
     }
 
@@ -0,0 +1,52 @@
+-- transactions_N становятся секционированными по created_at, секция на месяц: transactions_N_pYYYYMM.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования, поэтому (uid, created_at).
+-- Существующие строки переносятся в секции, покрывающие их месяцы; будущие секции дальше создаёт
+-- PartitionMaintainer, он же выгружает старые секции в архив.
+--
+-- Индексы V8 и V9 строятся здесь заново намеренно: они принадлежали старой таблице и удаляются вместе
+-- с ней, а на секционированной нужны во всех секциях. CONCURRENTLY для секционированной таблицы
+-- Postgres не поддерживает. V8/V9 остаются в истории миграций без изменений, но их выигрыш теряется:
+-- индексы строятся второй раз, теперь под блокировкой.
+--
+-- ВНИМАНИЕ: миграция выполняется одной транзакцией и переписывает transactions_N целиком — перенос
+-- строк, первичный ключ, индексы — под ACCESS EXCLUSIVE. Чтение и запись транзакций стоят до её конца,
+-- время пропорционально объёму таблицы. Выполнять в окно работ.
+DO
+$$
+    DECLARE
+        parent      TEXT;
+        legacy      TEXT;
+        first_month DATE;
+        month       DATE;
+    BEGIN
+        FOREACH parent IN ARRAY ARRAY ['transactions_0', 'transactions_1']
+            LOOP
+                legacy := parent || '_legacy';
+                EXECUTE format('ALTER TABLE %I RENAME TO %I', parent, legacy);
+                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)'
+                                   || ' PARTITION BY RANGE (created_at)', parent, legacy);
+
+                EXECUTE format('SELECT date_trunc(''month'', min(created_at))::date FROM %I', legacy)
+                    INTO first_month;
+                month := least(coalesce(first_month, date_trunc('month', now())::date),
+                               date_trunc('month', now())::date);
+                WHILE month <= date_trunc('month', now())::date + INTERVAL '3 months'
+                    LOOP
+                        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                                       parent || '_p' || to_char(month, 'YYYYMM'), parent,
+                                       month, (month + INTERVAL '1 month')::date);
+                        month := (month + INTERVAL '1 month')::date;
+                    END LOOP;
+
+                EXECUTE format('INSERT INTO %I SELECT * FROM %I', parent, legacy);
+                EXECUTE format('DROP TABLE %I', legacy);
+
+                -- Ключ и индексы V8, V9 ушли вместе со старой таблицей: перестройка на родителе (см. выше)
+                EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (uid, created_at)', parent);
+                EXECUTE format('CREATE INDEX %I ON %I (wallet_uid, created_at DESC, uid DESC)'
+                                   || ' INCLUDE (user_uid, type, status, amount, fee, target_wallet_uid)',
+                               parent || '_wallet_history_idx', parent);
+                EXECUTE format('CREATE INDEX %I ON %I (created_at, uid)', parent || '_created_at_idx', parent);
+            END LOOP;
+    END
+$$;
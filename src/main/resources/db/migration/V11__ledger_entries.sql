@@ -0,0 +1,55 @@
+-- Журнал проводок ledger_entries_N: только вставки, шардируется как wallets_N (по владельцу кошелька),
+-- секционирован по месяцам как transactions_N. Проводки одной операции в сумме дают ноль:
+-- кошельковые (wallet_uid задан) и встречные счета (FEE_INCOME, DEPOSIT_CLEARING).
+-- seq — из последовательности таблицы; снимок кошелька (wallets.balance, wallets.snapshot_seq)
+-- покрывает его проводки с seq <= snapshot_seq, текущий баланс — снимок плюс проводки после него.
+ALTER TABLE wallets_0 ADD COLUMN snapshot_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE wallets_1 ADD COLUMN snapshot_seq BIGINT NOT NULL DEFAULT 0;
+
+CREATE FUNCTION ledger_entries_append_only() RETURNS TRIGGER AS
+$$
+BEGIN
+    RAISE EXCEPTION 'ledger_entries: изменение и удаление проводок запрещены';
+END
+$$ LANGUAGE plpgsql;
+
+DO
+$$
+    DECLARE
+        parent TEXT;
+        month  DATE;
+    BEGIN
+        FOREACH parent IN ARRAY ARRAY ['ledger_entries_0', 'ledger_entries_1']
+            LOOP
+                EXECUTE format('CREATE SEQUENCE %I', parent || '_seq');
+                EXECUTE format('CREATE TABLE %I ('
+                                   || ' seq             BIGINT      NOT NULL DEFAULT nextval(%L),'
+                                   || ' created_at      TIMESTAMP   NOT NULL DEFAULT now(),'
+                                   || ' user_uid        UUID        NOT NULL,'
+                                   || ' wallet_uid      UUID,'
+                                   || ' transaction_uid UUID        NOT NULL,'
+                                   || ' account         VARCHAR(32) NOT NULL,'
+                                   || ' amount          DECIMAL     NOT NULL,'
+                                   || ' PRIMARY KEY (seq, created_at)'
+                                   || ') PARTITION BY RANGE (created_at)', parent, parent || '_seq');
+                EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.seq', parent || '_seq', parent);
+
+                month := date_trunc('month', now())::date;
+                WHILE month <= date_trunc('month', now())::date + INTERVAL '3 months'
+                    LOOP
+                        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                                       parent || '_p' || to_char(month, 'YYYYMM'), parent,
+                                       month, (month + INTERVAL '1 month')::date);
+                        month := (month + INTERVAL '1 month')::date;
+                    END LOOP;
+
+                -- Хвост кошелька после снимка: диапазон по seq внутри wallet_uid, сумма из индекса
+                EXECUTE format('CREATE INDEX %I ON %I (wallet_uid, seq) INCLUDE (amount)',
+                               parent || '_wallet_tail_idx', parent);
+                EXECUTE format('CREATE INDEX %I ON %I (transaction_uid)', parent || '_transaction_idx', parent);
+                EXECUTE format('CREATE TRIGGER %I BEFORE UPDATE OR DELETE ON %I'
+                                   || ' FOR EACH STATEMENT EXECUTE FUNCTION ledger_entries_append_only()',
+                               parent || '_append_only', parent);
+            END LOOP;
+    END
+$$;
@@ -0,0 +1,11 @@
+-- Сверка балансов: входящие переводы по диапазону target_wallet_uid читаются index-only scan.
+-- Частичный индекс — только проведённые переводы (статус перевода задаётся при вставке и не меняется).
+-- Индекс на секционированной таблице строится во всех секциях и блокирует запись на время построения,
+-- как и индексы V10; новые секции PartitionMaintainer получают его автоматически.
+CREATE INDEX IF NOT EXISTS transactions_0_incoming_idx
+    ON transactions_0 (target_wallet_uid) INCLUDE (amount)
+    WHERE type = 'TRANSFER' AND status = 'COMPLETED';
+
+CREATE INDEX IF NOT EXISTS transactions_1_incoming_idx
+    ON transactions_1 (target_wallet_uid) INCLUDE (amount)
+    WHERE type = 'TRANSFER' AND status = 'COMPLETED';
@@ -0,0 +1,12 @@
+-- Где лежит архив каждой удалённой секции transactions_N_pYYYYMM: PartitionMaintainer пишет строку
+-- в одной транзакции с DROP TABLE, выгрузка читает архивы по этим путям. host — на случай, если
+-- archive-dir окажется не общим хранилищем, а локальным диском экземпляра, взявшего блокировку.
+-- Таблица своя в каждом шарде: пишется и читается напрямую через соединение шарда.
+CREATE TABLE IF NOT EXISTS transaction_archives
+(
+    partition_name VARCHAR(64)  NOT NULL PRIMARY KEY,
+    location       TEXT         NOT NULL,
+    host           VARCHAR(255) NOT NULL,
+    row_count      BIGINT       NOT NULL,
+    archived_at    TIMESTAMP    NOT NULL DEFAULT now()
+);
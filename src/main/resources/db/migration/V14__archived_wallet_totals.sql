@@ -0,0 +1,19 @@
+-- Сумма проведённых транзакций кошелька в секциях, удалённых после архивации: сверка балансов
+-- складывает её с живыми строками transactions_N, иначе у старых кошельков проводки расходятся
+-- с транзакциями. Пополняется PartitionMaintainer в одной транзакции с DROP TABLE секции.
+-- user_uid — владелец транзакций (как transactions.user_uid): строки лежат в его шарде и переезжают
+-- вместе с его транзакциями (ShardRebalancer); входящие переводы попадают к кошельку получателя.
+-- Таблица своя в каждом шарде: пишется и читается напрямую через соединение шарда.
+CREATE TABLE IF NOT EXISTS archived_wallet_totals
+(
+    parent_table VARCHAR(64) NOT NULL,
+    user_uid     UUID        NOT NULL,
+    wallet_uid   UUID        NOT NULL,
+    net          DECIMAL     NOT NULL,
+    modified_at  TIMESTAMP   NOT NULL DEFAULT now(),
+    PRIMARY KEY (parent_table, user_uid, wallet_uid)
+);
+
+-- Сверка по transactions_N читает диапазон кошельков
+CREATE INDEX IF NOT EXISTS idx_archived_wallet_totals_wallet
+    ON archived_wallet_totals (parent_table, wallet_uid) INCLUDE (net);
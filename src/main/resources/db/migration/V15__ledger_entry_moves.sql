@@ -0,0 +1,29 @@
+-- Перенос проводок между шардами (ShardRebalancer): проводка получает seq из последовательности
+-- целевой таблицы, а откуда она пришла — в moved_from (узел) и moved_from_seq. Уникальный индекс делает
+-- повторное копирование того же прохода безопасным; у обычных проводок обе колонки NULL.
+DO
+$$
+    DECLARE
+        parent TEXT;
+    BEGIN
+        FOREACH parent IN ARRAY ARRAY ['ledger_entries_0', 'ledger_entries_1']
+            LOOP
+                EXECUTE format('ALTER TABLE %I ADD COLUMN moved_from VARCHAR(64), ADD COLUMN moved_from_seq BIGINT',
+                               parent);
+                EXECUTE format('CREATE UNIQUE INDEX %I ON %I (moved_from, moved_from_seq, created_at)',
+                               parent || '_moved_idx', parent);
+            END LOOP;
+    END
+$$;
+
+-- Журнал по-прежнему только для вставок. Исключение — удаление перенесённых проводок из старого шарда
+-- после переключения раскладки: ShardRebalancer включает его в своей транзакции через set_config.
+CREATE OR REPLACE FUNCTION ledger_entries_append_only() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' AND current_setting('transaction_app.ledger_move', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    RAISE EXCEPTION 'ledger_entries: изменение и удаление проводок запрещены';
+END
+$$ LANGUAGE plpgsql;
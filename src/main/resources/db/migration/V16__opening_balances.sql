@@ -0,0 +1,37 @@
+-- Начальный баланс кошелька раньше попадал только в снимок wallets.balance, без проводки, и сверка
+-- не могла сравнить снимок с журналом. Теперь он проводится против встречного счёта OPENING_BALANCE
+-- (transaction_uid обеих проводок — id кошелька). Для существующих кошельков начальный баланс —
+-- часть снимка, не объяснённая свёрнутыми проводками: она проводится, а снимок уменьшается на неё же,
+-- так что текущий баланс (снимок плюс хвост) не меняется. Разность не зависит от того, успел ли
+-- LedgerSnapshotter свернуть хвост во время миграции: свёртка увеличивает обе части на одну сумму.
+DO
+$$
+    DECLARE
+        suffix TEXT;
+    BEGIN
+        FOREACH suffix IN ARRAY ARRAY ['0', '1']
+            LOOP
+                EXECUTE format('WITH opening AS ('
+                                   || ' SELECT w.uid, w.user_uid, w.balance - coalesce(sum(e.amount), 0) AS amount'
+                                   || '   FROM %1$I w'
+                                   || '   LEFT JOIN %2$I e ON e.wallet_uid = w.uid AND e.seq <= w.snapshot_seq'
+                                   || '  GROUP BY w.uid, w.user_uid, w.balance'
+                                   || ' HAVING w.balance <> coalesce(sum(e.amount), 0)'
+                                   || '), entries AS ('
+                                   || ' INSERT INTO %2$I (user_uid, wallet_uid, transaction_uid, account, amount)'
+                                   || ' SELECT user_uid, uid, uid, %3$L, amount FROM opening'
+                                   || ' UNION ALL'
+                                   || ' SELECT user_uid, NULL, uid, %4$L, -amount FROM opening'
+                                   || ')'
+                                   || ' UPDATE %1$I w SET balance = w.balance - o.amount, modified_at = now()'
+                                   || '   FROM opening o WHERE w.uid = o.uid',
+                               'wallets_' || suffix, 'ledger_entries_' || suffix, 'WALLET', 'OPENING_BALANCE');
+
+                -- Сверка (ShardScan) читает начальные балансы диапазоном id кошелька
+                EXECUTE format('CREATE INDEX %I ON %I (transaction_uid) INCLUDE (amount)'
+                                   || ' WHERE account = %L',
+                               'ledger_entries_' || suffix || '_opening_idx', 'ledger_entries_' || suffix,
+                               'OPENING_BALANCE');
+            END LOOP;
+    END
+$$;
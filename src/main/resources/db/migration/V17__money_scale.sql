@@ -0,0 +1,52 @@
+-- Денежные колонки были DECIMAL без масштаба, и старые строки хранят больше четырёх знаков
+-- (например, комиссия = сумма × ставка). Money читает их с масштабом хранения (Money.STORAGE_SCALE = 4)
+-- без округления, и такая строка роняла чтение статуса, истории, кошелька и ночную сверку.
+-- Значения округляются до 4 знаков (round — половина от нуля, как HALF_UP у комиссий), колонки
+-- ограничиваются NUMERIC(19, 4), и новые значения с лишними знаками округляет уже Postgres.
+--
+-- Начальные балансы V16 сходятся и после округления: снимок старого кошелька там уже равен сумме
+-- свёрнутых проводок с четырьмя знаками, а пара проводок OPENING_BALANCE округляется симметрично.
+--
+-- ВНИМАНИЕ: смена типа переписывает таблицы целиком под ACCESS EXCLUSIVE — чтение и запись в них
+-- стоят до конца миграции. Для transactions_N и ledger_entries_N это все секции; выполнять в окно работ.
+DO
+$$
+    DECLARE
+        suffix   TEXT;
+        detached TEXT;
+    BEGIN
+        FOREACH suffix IN ARRAY ARRAY ['0', '1']
+            LOOP
+                EXECUTE format('ALTER TABLE %I ALTER COLUMN balance TYPE NUMERIC(19, 4) USING round(balance, 4)',
+                               'wallets_' || suffix);
+                EXECUTE format('ALTER TABLE %I'
+                                   || ' ALTER COLUMN amount TYPE NUMERIC(19, 4) USING round(amount, 4),'
+                                   || ' ALTER COLUMN fee TYPE NUMERIC(19, 4) USING round(fee, 4)',
+                               'transactions_' || suffix);
+                EXECUTE format('ALTER TABLE %I ALTER COLUMN amount TYPE NUMERIC(19, 4) USING round(amount, 4)',
+                               'ledger_entries_' || suffix);
+            END LOOP;
+
+        -- Отсоединённые, но ещё не архивированные секции (PartitionMaintainer) смену типа у родителя
+        -- не получают, а их суммы попадут в archived_wallet_totals
+        FOR detached IN
+            SELECT c.relname
+              FROM pg_class c
+             WHERE c.relnamespace = current_schema()::regnamespace AND c.relkind = 'r' AND NOT c.relispartition
+               AND c.relname ~ '^transactions_[0-9]+_p[0-9]{6}$'
+            LOOP
+                EXECUTE format('ALTER TABLE %I'
+                                   || ' ALTER COLUMN amount TYPE NUMERIC(19, 4) USING round(amount, 4),'
+                                   || ' ALTER COLUMN fee TYPE NUMERIC(19, 4) USING round(fee, 4)',
+                               detached);
+            END LOOP;
+    END
+$$;
+
+ALTER TABLE archived_wallet_totals
+    ALTER COLUMN net TYPE NUMERIC(19, 4) USING round(net, 4);
+
+ALTER TABLE fee_rules
+    ALTER COLUMN fixed_fee TYPE NUMERIC(19, 4) USING round(fixed_fee, 4),
+    ALTER COLUMN min_fee TYPE NUMERIC(19, 4) USING round(min_fee, 4),
+    ALTER COLUMN max_fee TYPE NUMERIC(19, 4) USING round(max_fee, 4);
@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS outbox
+(
+    uid          UUID PRIMARY KEY,
+    created_at   TIMESTAMP    NOT NULL DEFAULT now(),
+    user_uid     UUID         NOT NULL,
+    aggregate_id UUID         NOT NULL,
+    topic        VARCHAR(128) NOT NULL,
+    message_key  VARCHAR(64),
+    payload_type VARCHAR(255) NOT NULL,
+    payload      TEXT         NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_created_at ON outbox (created_at);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS processed_events
+(
+    topic          VARCHAR(64) NOT NULL,
+    transaction_id UUID        NOT NULL,
+    user_uid       UUID        NOT NULL,
+    processed_at   TIMESTAMP   NOT NULL DEFAULT now(),
+    PRIMARY KEY (topic, transaction_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_processed_events_processed_at ON processed_events (processed_at);
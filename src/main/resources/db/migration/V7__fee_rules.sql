@@ -0,0 +1,30 @@
+CREATE TABLE IF NOT EXISTS fee_schedules
+(
+    version    BIGINT PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    comment    VARCHAR(256)
+);
+
+-- currency_code / tier = NULL — правило действует для любой валюты / любого тарифа
+CREATE TABLE IF NOT EXISTS fee_rules
+(
+    uid              UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    schedule_version BIGINT       NOT NULL REFERENCES fee_schedules (version),
+    payment_type     payment_type NOT NULL,
+    currency_code    VARCHAR(3),
+    tier             VARCHAR(15),
+    percent_ppm      BIGINT       NOT NULL DEFAULT 0,
+    fixed_fee        DECIMAL      NOT NULL DEFAULT 0,
+    min_fee          DECIMAL,
+    max_fee          DECIMAL,
+    UNIQUE (schedule_version, payment_type, currency_code, tier)
+);
+
+INSERT INTO fee_schedules (version, comment)
+VALUES (1, 'Базовые ставки')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO fee_rules (schedule_version, payment_type, percent_ppm)
+VALUES (1, 'DEPOSIT', 10000),
+       (1, 'WITHDRAWAL', 20000),
+       (1, 'TRANSFER', 15000);
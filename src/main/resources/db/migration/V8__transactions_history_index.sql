@@ -0,0 +1,9 @@
+-- История кошелька: поиск по (wallet_uid, created_at, uid) с конца, остальные поля страницы — в INCLUDE,
+-- чтобы страница читалась index-only scan. CONCURRENTLY — без блокировки записи, Flyway выполнит вне транзакции.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS transactions_0_wallet_history_idx
+    ON transactions_0 (wallet_uid, created_at DESC, uid DESC)
+    INCLUDE (user_uid, type, status, amount, fee, target_wallet_uid);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS transactions_1_wallet_history_idx
+    ON transactions_1 (wallet_uid, created_at DESC, uid DESC)
+    INCLUDE (user_uid, type, status, amount, fee, target_wallet_uid);
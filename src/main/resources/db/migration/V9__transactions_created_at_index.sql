@@ -0,0 +1,6 @@
+-- Выгрузка за период: курсор по (created_at, uid) отдаёт строки сразу, без сортировки всей выборки
+CREATE INDEX CONCURRENTLY IF NOT EXISTS transactions_0_created_at_idx
+    ON transactions_0 (created_at, uid);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS transactions_1_created_at_idx
+    ON transactions_1 (created_at, uid);
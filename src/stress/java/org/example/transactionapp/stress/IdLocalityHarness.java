@@ -0,0 +1,136 @@
+package org.example.transactionapp.stress;
+
+import org.example.transactionapp.id.TimeOrderedUuids;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Вставка большого числа строк с ключами UUID v4 и v7 против локального Postgres.
+ * Для каждого вида печатает скорость вставки по ходу заполнения, итоговый размер
+ * первичного индекса и долю чтений индекса, обслуженных из shared_buffers.
+ *
+ * <pre>
+ * ./gradlew idLocality -PjdbcUrl=jdbc:postgresql://localhost:5433/sharding_db -Prows=10000000
+ * </pre>
+ */
+public class IdLocalityHarness {
+
+    private static final String INSERT_SQL = "insert into %s (uid, user_uid, amount, created_at) values (?, ?, ?, now())";
+
+    enum Kind {
+        V4(UUID::randomUUID),
+        V7(TimeOrderedUuids::next);
+
+        private final Supplier<UUID> ids;
+
+        Kind(Supplier<UUID> ids) {
+            this.ids = ids;
+        }
+
+        String table() {
+            return "id_locality_" + name().toLowerCase();
+        }
+    }
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final long rows;
+    private final int batchSize;
+
+    IdLocalityHarness(Map<String, String> args) {
+        this.jdbcUrl = args.getOrDefault("jdbcUrl", "jdbc:postgresql://localhost:5433/sharding_db");
+        this.user = args.getOrDefault("user", "sharding_user");
+        this.password = args.getOrDefault("password", "SecurePass123!");
+        this.rows = Long.parseLong(args.getOrDefault("rows", "10000000"));
+        this.batchSize = Integer.parseInt(args.getOrDefault("batch", "1000"));
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (kv.length == 2 && !kv[1].isBlank()) {
+                args.put(kv[0], kv[1]);
+            }
+        }
+        List<Kind> kinds = args.containsKey("kind")
+                ? List.of(Kind.valueOf(args.get("kind").toUpperCase()))
+                : List.of(Kind.V4, Kind.V7);
+
+        IdLocalityHarness harness = new IdLocalityHarness(args);
+        System.out.printf("rows=%d batch=%d url=%s%n", harness.rows, harness.batchSize, harness.jdbcUrl);
+        for (Kind kind : kinds) {
+            harness.run(kind);
+        }
+    }
+
+    private void run(Kind kind) throws SQLException {
+        String table = kind.table();
+        try (Connection connection = connect()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("drop table if exists " + table);
+                statement.execute("create table " + table + " (uid uuid primary key, user_uid uuid not null,"
+                        + " amount decimal not null, created_at timestamp not null)");
+                statement.execute("select pg_stat_reset()");
+            }
+            connection.setAutoCommit(false);
+
+            long reportEvery = Math.max(rows / 10, batchSize);
+            long start = System.nanoTime();
+            long windowStart = start;
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL.formatted(table))) {
+                for (long i = 1; i <= rows; i++) {
+                    insert.setObject(1, kind.ids.get());
+                    insert.setObject(2, UUID.randomUUID());
+                    insert.setLong(3, i);
+                    insert.addBatch();
+                    if (i % batchSize == 0 || i == rows) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                    if (i % reportEvery == 0) {
+                        long now = System.nanoTime();
+                        System.out.printf("%s %,d rows: %,.0f rows/s%n", kind, i,
+                                reportEvery / ((now - windowStart) / 1_000_000_000.0));
+                        windowStart = now;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            connection.setAutoCommit(true);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("analyze " + table);
+                try (ResultSet rs = statement.executeQuery("""
+                        select pg_relation_size('%1$s_pkey'), pg_relation_size('%1$s'),
+                               coalesce(idx_blks_hit, 0), coalesce(idx_blks_read, 0)
+                        from pg_statio_user_tables where relname = '%1$s'""".formatted(table))) {
+                    rs.next();
+                    long hit = rs.getLong(3);
+                    long read = rs.getLong(4);
+                    System.out.printf("%s total: %,.0f rows/s in %d s, pkey %,d MB, heap %,d MB, index buffer hit %.1f%%%n",
+                            kind, rows / (elapsed / 1_000_000_000.0), TimeUnit.NANOSECONDS.toSeconds(elapsed),
+                            rs.getLong(1) >> 20, rs.getLong(2) >> 20,
+                            hit + read == 0 ? 100.0 : 100.0 * hit / (hit + read));
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true",
+                user, password);
+    }
+}
@@ -0,0 +1,241 @@
+package org.example.transactionapp.stress;
+
+import org.example.transactionapp.service.WalletLockService;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Стресс-прогон встречных переводов против локального Postgres.
+ * Сравнивает прежнюю схему блокировок (from, затем to) с упорядоченной блокировкой одним запросом
+ * и печатает пропускную способность, p50/p99 ожидания блокировок и число дедлоков.
+ *
+ * <pre>
+ * ./gradlew lockStress -PjdbcUrl=jdbc:postgresql://localhost:5433/sharding_db -Pwallets=8 -Ptransfers=20000
+ * </pre>
+ */
+public class WalletLockStressHarness {
+
+    private static final String TABLE = "lock_stress_wallets";
+    private static final String DEADLOCK_SQL_STATE = "40P01";
+
+    private static final String LOCK_ONE_SQL =
+            "select uid, balance from " + TABLE + " where uid = ? for update";
+    private static final String LOCK_ALL_SQL =
+            "select uid, balance from " + TABLE + " where uid = any (?) order by uid for update";
+    private static final String UPDATE_SQL =
+            "update " + TABLE + " set balance = ? where uid = ?";
+
+    enum Mode {NAIVE, ORDERED}
+
+    record Result(Mode mode, long completed, long deadlocks, long elapsedNanos, long[] lockWaitNanos) {
+    }
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final int walletCount;
+    private final int transfers;
+    private final int threads;
+
+    WalletLockStressHarness(Map<String, String> args) {
+        this.jdbcUrl = args.getOrDefault("jdbcUrl", "jdbc:postgresql://localhost:5433/sharding_db");
+        this.user = args.getOrDefault("user", "sharding_user");
+        this.password = args.getOrDefault("password", "SecurePass123!");
+        this.walletCount = Integer.parseInt(args.getOrDefault("wallets", "8"));
+        this.transfers = Integer.parseInt(args.getOrDefault("transfers", "10000"));
+        this.threads = Integer.parseInt(args.getOrDefault("threads", "32"));
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (kv.length == 2 && !kv[1].isBlank()) {
+                args.put(kv[0], kv[1]);
+            }
+        }
+        List<Mode> modes = args.containsKey("mode")
+                ? List.of(Mode.valueOf(args.get("mode").toUpperCase()))
+                : List.of(Mode.NAIVE, Mode.ORDERED);
+
+        WalletLockStressHarness harness = new WalletLockStressHarness(args);
+        System.out.printf("wallets=%d transfers=%d threads=%d url=%s%n",
+                harness.walletCount, harness.transfers, harness.threads, harness.jdbcUrl);
+
+        for (Mode mode : modes) {
+            List<UUID> wallets = harness.seed();
+            print(harness.run(mode, wallets));
+        }
+    }
+
+    private List<UUID> seed() throws SQLException {
+        List<UUID> ids = new ArrayList<>(walletCount);
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists " + TABLE
+                    + " (uid uuid primary key, balance decimal not null)");
+            statement.execute("truncate " + TABLE);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into " + TABLE + " (uid, balance) values (?, ?)")) {
+                for (int i = 0; i < walletCount; i++) {
+                    UUID id = UUID.randomUUID();
+                    insert.setObject(1, id);
+                    insert.setBigDecimal(2, BigDecimal.valueOf(1_000_000_000L));
+                    insert.addBatch();
+                    ids.add(id);
+                }
+                insert.executeBatch();
+            }
+        }
+        return ids;
+    }
+
+    private Result run(Mode mode, List<UUID> wallets) throws Exception {
+        AtomicLong completed = new AtomicLong();
+        AtomicLong deadlocks = new AtomicLong();
+        int perThread = transfers / threads;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>(threads);
+        long started = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> worker(mode, wallets, perThread, completed, deadlocks)));
+        }
+
+        long[] lockWaits = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] part = future.get();
+            int offset = lockWaits.length;
+            lockWaits = Arrays.copyOf(lockWaits, offset + part.length);
+            System.arraycopy(part, 0, lockWaits, offset, part.length);
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        return new Result(mode, completed.get(), deadlocks.get(), elapsed, lockWaits);
+    }
+
+    private long[] worker(Mode mode, List<UUID> wallets, int iterations,
+                          AtomicLong completed, AtomicLong deadlocks) throws SQLException {
+        long[] lockWaits = new long[iterations];
+        int samples = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < iterations; i++) {
+                // Небольшой горячий набор кошельков и случайное направление — максимум встречных переводов
+                UUID from = wallets.get(random.nextInt(wallets.size()));
+                UUID to = wallets.get(random.nextInt(wallets.size()));
+                if (from.equals(to)) {
+                    continue;
+                }
+                try {
+                    long lockStart = System.nanoTime();
+                    Map<UUID, BigDecimal> balances = mode == Mode.NAIVE
+                            ? lockOneByOne(connection, from, to)
+                            : lockAllOrdered(connection, from, to);
+                    lockWaits[samples++] = System.nanoTime() - lockStart;
+
+                    transfer(connection, balances, from, to, BigDecimal.ONE);
+                    connection.commit();
+                    completed.incrementAndGet();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    if (!DEADLOCK_SQL_STATE.equals(ex.getSQLState())) {
+                        throw ex;
+                    }
+                    deadlocks.incrementAndGet();
+                }
+            }
+        }
+        return Arrays.copyOf(lockWaits, samples);
+    }
+
+    // Прежнее поведение processTransfer: два findByIdForUpdate в порядке from → to
+    private Map<UUID, BigDecimal> lockOneByOne(Connection connection, UUID from, UUID to) throws SQLException {
+        Map<UUID, BigDecimal> balances = new HashMap<>(4);
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_ONE_SQL)) {
+            for (UUID id : List.of(from, to)) {
+                lock.setObject(1, id);
+                try (ResultSet rs = lock.executeQuery()) {
+                    rs.next();
+                    balances.put(id, rs.getBigDecimal(2));
+                }
+            }
+        }
+        return balances;
+    }
+
+    // Поведение WalletLockService: один запрос по отсортированному списку id
+    private Map<UUID, BigDecimal> lockAllOrdered(Connection connection, UUID from, UUID to) throws SQLException {
+        Map<UUID, BigDecimal> balances = new HashMap<>(4);
+        Object[] ids = List.of(from, to).stream().sorted(WalletLockService.LOCK_ORDER).toArray();
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_ALL_SQL)) {
+            Array array = connection.createArrayOf("uuid", ids);
+            lock.setArray(1, array);
+            try (ResultSet rs = lock.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2));
+                }
+            }
+        }
+        return balances;
+    }
+
+    private void transfer(Connection connection, Map<UUID, BigDecimal> balances,
+                          UUID from, UUID to, BigDecimal amount) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            update.setBigDecimal(1, balances.get(from).subtract(amount));
+            update.setObject(2, from);
+            update.addBatch();
+            update.setBigDecimal(1, balances.get(to).add(amount));
+            update.setObject(2, to);
+            update.addBatch();
+            update.executeBatch();
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+
+    private static void print(Result result) {
+        long[] waits = result.lockWaitNanos();
+        Arrays.sort(waits);
+        double seconds = result.elapsedNanos() / 1_000_000_000.0;
+        System.out.printf("mode=%-7s completed=%d deadlocks=%d throughput=%.1f tx/s lockWait p50=%.3f ms p99=%.3f ms%n",
+                result.mode(),
+                result.completed(),
+                result.deadlocks(),
+                result.completed() / seconds,
+                percentile(waits, 0.50) / 1_000_000.0,
+                percentile(waits, 0.99) / 1_000_000.0);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.transactionapp;
+
+import org.apache.shardingsphere.driver.api.yaml.YamlShardingSphereDataSourceFactory;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Два Postgres-шарда в Testcontainers для интеграционных тестов. Схема накатывается Flyway на каждый шард,
+ * {@link #dataSource()} — ShardingSphere-JDBC по test-sharding.yaml, {@link #shards()} — физические базы.
+ */
+public class ShardedPostgres implements AutoCloseable {
+
+    private static final String POSTGRES_IMAGE = "postgres:15-alpine";
+
+    private final List<PostgreSQLContainer<?>> containers = List.of(
+            new PostgreSQLContainer<>(POSTGRES_IMAGE).withDatabaseName("transaction_ds0"),
+            new PostgreSQLContainer<>(POSTGRES_IMAGE).withDatabaseName("transaction_ds1"));
+
+    private final UUID walletTypeId = UUID.randomUUID();
+
+    private DataSource dataSource;
+    private Map<String, DataSource> shards;
+
+    public void start() {
+        containers.parallelStream().forEach(PostgreSQLContainer::start);
+        shards = new LinkedHashMap<>();
+        for (int i = 0; i < containers.size(); i++) {
+            PostgreSQLContainer<?> container = containers.get(i);
+            Flyway.configure()
+                    .dataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword())
+                    .locations("classpath:db/migration")
+                    .load()
+                    .migrate();
+            shards.put("ds" + i, new DriverManagerDataSource(
+                    container.getJdbcUrl(), container.getUsername(), container.getPassword()));
+        }
+        dataSource = createShardingDataSource();
+        new JdbcTemplate(dataSource).update("""
+                insert into wallet_types (uid, name, currency_code, status, user_type)
+                values (?, 'TEST', 'RUB', 'ACTIVE', 'INDIVIDUAL')""", walletTypeId);
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public Map<String, DataSource> shards() {
+        return shards;
+    }
+
+    /**
+     * Тип кошельков {@link #createWallet}: RUB, user_type INDIVIDUAL.
+     */
+    public UUID walletTypeId() {
+        return walletTypeId;
+    }
+
+    /**
+     * Кошелёк со снимком баланса {@code balance} и без проводок.
+     */
+    public UUID createWallet(UUID ownerUid, BigDecimal balance) {
+        UUID walletId = UUID.randomUUID();
+        new JdbcTemplate(dataSource).update("""
+                        insert into wallets (uid, created_at, name, wallet_type_uid, user_uid, status, balance)
+                        values (?, now(), 'TEST', ?, ?, 'ACTIVE', ?)""",
+                walletId, walletTypeId, ownerUid, balance);
+        return walletId;
+    }
+
+    private DataSource createShardingDataSource() {
+        String template;
+        try (InputStream in = getClass().getResourceAsStream("/test-sharding.yaml")) {
+            template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String yaml = template
+                .replace("@DS0_URL@", containers.get(0).getJdbcUrl())
+                .replace("@DS1_URL@", containers.get(1).getJdbcUrl())
+                .replace("@DB_USER@", containers.get(0).getUsername())
+                .replace("@DB_PASSWORD@", containers.get(0).getPassword());
+        try {
+            return YamlShardingSphereDataSourceFactory.createDataSource(yaml.getBytes(StandardCharsets.UTF_8));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("ShardingSphere не поднялся", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        containers.forEach(PostgreSQLContainer::stop);
+    }
+}
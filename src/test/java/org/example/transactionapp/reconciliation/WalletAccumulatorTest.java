@@ -0,0 +1,44 @@
+package org.example.transactionapp.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Снимок кошелька сверяется с журналом: правка wallets.balance мимо проводок видна как BALANCE_DRIFT,
+ * даже когда проводки и транзакции сходятся.
+ */
+class WalletAccumulatorTest {
+
+    private final UUID walletId = UUID.randomUUID();
+
+    @Test
+    void consistentWalletHasNoMismatches() {
+        WalletAccumulator accumulator = openedWallet(100_0000);
+
+        assertThat(accumulator.mismatches()).isEmpty();
+    }
+
+    @Test
+    void reportsSnapshotThatDisagreesWithLedger() {
+        // Снимок на 5 больше суммы свёрнутых проводок: ручной UPDATE wallets или сбой свёртки
+        WalletAccumulator accumulator = openedWallet(105_0000);
+
+        assertThat(accumulator.mismatches())
+                .extracting(WalletMismatch::kind)
+                .containsExactly(MismatchKind.BALANCE_DRIFT);
+    }
+
+    // Начальный баланс 100 свёрнут в снимок (seq 1), перевод на 30 — в хвосте (seq 2)
+    private WalletAccumulator openedWallet(long snapshot) {
+        WalletAccumulator accumulator = new WalletAccumulator(16);
+        accumulator.wallet(walletId, snapshot, 1);
+        accumulator.entry(walletId, 1, 100_0000);
+        accumulator.entry(walletId, 2, -30_0000);
+        accumulator.transaction(walletId, 100_0000);
+        accumulator.transaction(walletId, -30_0000);
+        return accumulator;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.transactionapp.service;
+
+import org.example.transactionapp.dto.BulkConfirmItemResult;
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.ledger.WalletBalance;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.sharding.ConsistentHashRing;
+import org.example.transactionapp.sharding.ShardRouter;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Группа из двух баз блокирует кошельки в общем порядке WalletLockService.LOCK_ORDER, как одиночный
+ * перевод, а не одним запросом на базу: иначе встречный перевод между базами мог бы зависнуть навсегда.
+ */
+class BulkTransactionConfirmerTest {
+
+    private final ShardRouter shardRouter = new ShardRouter("ds0,ds1", "HASH_MOD", ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+
+    @Test
+    void locksWalletsAcrossDatabasesInLockOrder() {
+        List<UUID> wallets = new ArrayList<>(List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+        wallets.sort(WalletLockService.LOCK_ORDER);
+        UUID first = wallets.get(0);
+        UUID second = wallets.get(1);
+        UUID third = wallets.get(2);
+        // Первый и третий кошельки в ds0, второй — в ds1
+        UUID ds0Owner = userIn("ds0");
+        UUID ds1Owner = userIn("ds1");
+        Map<UUID, UUID> owners = Map.of(first, ds0Owner, second, ds1Owner, third, ds0Owner);
+
+        when(walletRepository.findOwners(anyCollection())).thenReturn(owners);
+        when(transactionRepository.findExistingIds(anyCollection())).thenReturn(Set.of());
+        when(walletRepository.lockAllForDebit(List.of(first)))
+                .thenReturn(Map.of(first, new WalletBalance(first, ds0Owner, Money.of(new BigDecimal("100")))));
+        when(walletRepository.lockAllForDebit(List.of(second)))
+                .thenReturn(Map.of(second, new WalletBalance(second, ds1Owner, Money.of(new BigDecimal("100")))));
+        when(walletRepository.lockForCredit(List.of(third))).thenReturn(Map.of(third, ds0Owner));
+
+        BulkTransactionConfirmer confirmer = new BulkTransactionConfirmer(mock(TransactionService.class),
+                transactionRepository, walletRepository, mock(TransactionStatusCache.class),
+                mock(WalletViewCache.class), shardRouter,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new BulkConfirmProperties(10));
+
+        List<BulkConfirmItemResult> results = confirmer.confirmTransfers(List.of(
+                item(ds1Owner, second, third), item(ds0Owner, first, second)))
+                .getResults();
+
+        assertThat(results).extracting(BulkConfirmItemResult::getStatus)
+                .containsExactly("COMPLETED", "COMPLETED");
+        InOrder locks = inOrder(walletRepository);
+        locks.verify(walletRepository).findOwners(anyCollection());
+        locks.verify(walletRepository).lockAllForDebit(List.of(first));
+        locks.verify(walletRepository).lockAllForDebit(List.of(second));
+        locks.verify(walletRepository).lockForCredit(List.of(third));
+        locks.verify(walletRepository).appendEntries(any());
+        locks.verifyNoMoreInteractions();
+    }
+
+    private UUID userIn(String database) {
+        while (true) {
+            UUID userUid = UUID.randomUUID();
+            if (shardRouter.databaseFor(userUid).equals(database)) {
+                return userUid;
+            }
+        }
+    }
+
+    private static TransactionConfirmRequest item(UUID userUid, UUID from, UUID to) {
+        TransactionConfirmRequest item = new TransactionConfirmRequest();
+        item.setTransactionId(TransactionIds.forUser(userUid));
+        item.setUserUid(userUid);
+        item.setWalletUid(from);
+        item.setTargetWalletUid(to);
+        item.setAmount(new BigDecimal("10"));
+        item.setFee(new BigDecimal("1"));
+        item.setFeeScheduleVersion(1L);
+        return item;
+    }
+}
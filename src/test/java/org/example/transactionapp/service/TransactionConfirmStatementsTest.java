@@ -0,0 +1,118 @@
+package org.example.transactionapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.entity.Wallet;
+import org.example.transactionapp.entity.WalletType;
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.fee.FeeScheduleService;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.outbox.OutboxWriter;
+import org.example.transactionapp.repository.OutboxRepository;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * SQL, которые Hibernate выполняет в confirm(): строка транзакции с id из init() вставляется
+ * через persist, без SELECT по id перед INSERT. Схема — из сущностей в H2.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+class TransactionConfirmStatementsTest {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class RecordingConfig {
+
+        @Bean
+        HibernatePropertiesCustomizer recordingInspector() {
+            StatementInspector inspector = sql -> {
+                STATEMENTS.add(sql.strip().toLowerCase());
+                return sql;
+            };
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private TransactionServiceImpl service;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        WalletType walletType = entityManager.persist(WalletType.builder()
+                .name("RUB").currencyCode("RUB").status(WalletTypeStatus.ACTIVE).userType("INDIVIDUAL").build());
+        wallet = entityManager.persist(Wallet.builder()
+                .name("RUB wallet").walletType(walletType).userUid(UUID.randomUUID())
+                .status(WalletTypeStatus.ACTIVE).build());
+        entityManager.flush();
+
+        UUID walletTypeId = walletType.getId();
+        WalletRepository walletRepository = mock(WalletRepository.class);
+        when(walletRepository.findWalletTypeId(any())).thenReturn(Optional.of(walletTypeId));
+        WalletTypeCatalog walletTypeCatalog = mock(WalletTypeCatalog.class);
+        when(walletTypeCatalog.byId(walletTypeId)).thenReturn(Optional.of(
+                new WalletTypeCatalog.Entry(walletTypeId, "RUB", "RUB", "INDIVIDUAL", null)));
+        FeeScheduleService feeScheduleService = mock(FeeScheduleService.class);
+        when(feeScheduleService.feeForVersion(anyLong(), any(), any(), any(), any())).thenReturn(Optional.of(Money.ZERO));
+
+        service = new TransactionServiceImpl(transactionRepository, walletRepository,
+                new OutboxWriter(outboxRepository, new ObjectMapper().findAndRegisterModules()),
+                feeScheduleService, mock(TransactionStatusCache.class), mock(WalletViewCache.class),
+                walletTypeCatalog, mock(WalletLockService.class));
+    }
+
+    @Test
+    void confirmInsertsWithoutSelectingFirst() {
+        UUID userUid = wallet.getUserUid();
+        TransactionConfirmRequest request = new TransactionConfirmRequest();
+        request.setTransactionId(TransactionIds.forUser(userUid));
+        request.setUserUid(userUid);
+        request.setWalletUid(wallet.getId());
+        request.setAmount(new BigDecimal("100"));
+        request.setFee(BigDecimal.ZERO);
+        request.setFeeScheduleVersion(1L);
+
+        STATEMENTS.clear();
+        service.confirm("deposit", request);
+        entityManager.flush();
+
+        assertThat(STATEMENTS).noneMatch(sql -> sql.startsWith("select"));
+        assertThat(STATEMENTS).satisfiesExactlyInAnyOrder(
+                sql -> assertThat(sql).startsWith("insert into transactions"),
+                sql -> assertThat(sql).startsWith("insert into outbox"));
+    }
+}
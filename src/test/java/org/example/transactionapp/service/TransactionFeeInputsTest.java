@@ -0,0 +1,121 @@
+package org.example.transactionapp.service;
+
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.dto.TransferInitRequest;
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.fee.FeeRule;
+import org.example.transactionapp.fee.FeeScheduleService;
+import org.example.transactionapp.money.FeeRoundingProperties;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.outbox.OutboxWriter;
+import org.example.transactionapp.repository.FeeRuleRepository;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Правило комиссии выбирается по валюте и тарифу типа кошелька: подменённые в запросе значения
+ * не дают дешёвого правила ни в init, ни в confirm.
+ */
+class TransactionFeeInputsTest {
+
+    private final UUID walletTypeId = UUID.randomUUID();
+    private final UUID walletId = UUID.randomUUID();
+    private final UUID userUid = UUID.randomUUID();
+
+    private TransactionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        FeeRuleRepository feeRules = new FeeRuleRepository(null) {
+            @Override
+            public Optional<Long> findLatestVersion() {
+                return Optional.of(1L);
+            }
+
+            @Override
+            public List<FeeRule> findByVersion(long version) {
+                return List.of(
+                        new FeeRule(PaymentType.TRANSFER, null, null, 15_000, Money.ZERO, null, null),
+                        new FeeRule(PaymentType.TRANSFER, "EUR", "VIP", 1_000, Money.ZERO, null, null));
+            }
+        };
+        FeeScheduleService feeScheduleService = new FeeScheduleService(feeRules,
+                new FeeRoundingProperties(2, RoundingMode.HALF_UP));
+        feeScheduleService.refresh();
+
+        WalletRepository walletRepository = mock(WalletRepository.class);
+        when(walletRepository.findWalletTypeId(walletId)).thenReturn(Optional.of(walletTypeId));
+        WalletTypeCatalog walletTypeCatalog = mock(WalletTypeCatalog.class);
+        when(walletTypeCatalog.byId(walletTypeId)).thenReturn(Optional.of(
+                new WalletTypeCatalog.Entry(walletTypeId, "RUB", "RUB", "INDIVIDUAL", WalletTypeStatus.ACTIVE)));
+
+        service = new TransactionServiceImpl(mock(TransactionRepository.class), walletRepository,
+                mock(OutboxWriter.class), feeScheduleService, mock(TransactionStatusCache.class),
+                mock(WalletViewCache.class), walletTypeCatalog, mock(WalletLockService.class));
+    }
+
+    @Test
+    void initQuotesByTheWalletType() {
+        TransferInitRequest request = initRequest(null, null);
+
+        assertThat(service.init("transfer", request).getFee()).isEqualByComparingTo("15.00");
+    }
+
+    @Test
+    void initRejectsSpoofedCurrencyAndTier() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> service.init("transfer", initRequest("EUR", "INDIVIDUAL")))
+                .withMessageContaining("Валюта EUR");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> service.init("transfer", initRequest("RUB", "VIP")))
+                .withMessageContaining("Тариф VIP");
+    }
+
+    // Комиссия посчитана по подменённому правилу EUR/VIP: confirm пересчитывает по кошельку и отказывает
+    @Test
+    void confirmRejectsFeeQuotedForSpoofedInputs() {
+        TransactionConfirmRequest request = new TransactionConfirmRequest();
+        request.setTransactionId(TransactionIds.forUser(userUid));
+        request.setUserUid(userUid);
+        request.setWalletUid(walletId);
+        request.setTargetWalletUid(UUID.randomUUID());
+        request.setAmount(new BigDecimal("1000"));
+        request.setFee(new BigDecimal("1.00"));
+        request.setFeeScheduleVersion(1L);
+        request.setCurrency("EUR");
+        request.setTier("VIP");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> service.verify("transfer", request));
+
+        request.setCurrency(null);
+        request.setTier(null);
+        assertThatIllegalArgumentException().isThrownBy(() -> service.verify("transfer", request))
+                .withMessageContaining("ожидалась 15.00");
+    }
+
+    private TransferInitRequest initRequest(String currency, String tier) {
+        TransferInitRequest request = new TransferInitRequest();
+        request.setUserUid(userUid);
+        request.setWalletUid(walletId);
+        request.setTargetWalletUid(UUID.randomUUID());
+        request.setAmount(new BigDecimal("1000"));
+        request.setCurrency(currency);
+        request.setTier(tier);
+        return request;
+    }
+}
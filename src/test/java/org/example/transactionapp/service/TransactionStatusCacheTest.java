@@ -0,0 +1,75 @@
+package org.example.transactionapp.service;
+
+import org.example.transactionapp.entity.PaymentType;
+import org.example.transactionapp.entity.Transaction;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.money.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * afterCommit из confirm() может положить PROCESSING уже после финального статуса от листенера Kafka:
+ * финальный статус остаётся в кеше, а подписчики не получают перехода назад.
+ */
+class TransactionStatusCacheTest {
+
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private final TransactionStatusCache cache = new TransactionStatusCache(
+            new StatusCacheProperties(100, Duration.ofMinutes(10), Duration.ofSeconds(2)),
+            mock(MetricsFacade.class), events);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void processingAfterTerminalKeepsTerminalStatus() {
+        UUID transactionId = UUID.randomUUID();
+
+        // confirm(): запись PROCESSING ждёт коммита
+        TransactionSynchronizationManager.initSynchronization();
+        cache.putAfterCommit(List.of(transaction(transactionId, TransactionStatus.PROCESSING)));
+        List<TransactionSynchronization> confirmCommit = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Листенер успел раньше
+        cache.putAfterCommit(List.of(transaction(transactionId, TransactionStatus.COMPLETED)));
+        confirmCommit.forEach(TransactionSynchronization::afterCommit);
+
+        TransactionStatusCache.Entry entry = cache.get(transactionId, id -> {
+            throw new AssertionError("Статус должен браться из кеша");
+        });
+        assertThat(entry.status()).isEqualTo(TransactionStatus.COMPLETED);
+        verify(events, times(1)).publishEvent(any(Object.class));
+    }
+
+    private static Transaction transaction(UUID id, TransactionStatus status) {
+        return Transaction.builder()
+                .id(id)
+                .type(PaymentType.TRANSFER)
+                .status(status)
+                .amount(Money.of(new BigDecimal("10")))
+                .fee(Money.ZERO)
+                .createdAt(OffsetDateTime.now())
+                .build();
+    }
+}
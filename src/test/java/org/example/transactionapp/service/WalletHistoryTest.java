@@ -0,0 +1,94 @@
+package org.example.transactionapp.service;
+
+import org.example.transactionapp.dto.TransactionHistoryItem;
+import org.example.transactionapp.dto.TransactionHistoryPage;
+import org.example.transactionapp.dto.WalletView;
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.repository.WalletTypeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * История кошелька включает входящие переводы из шардов отправителей: они сливаются с операциями
+ * кошелька по (created_at, uid), курсор следующей страницы годится для обеих выборок.
+ */
+class WalletHistoryTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    private final UUID walletId = UUID.randomUUID();
+    private final UUID ownerUid = UUID.randomUUID();
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+
+    private WalletServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        WalletViewCache walletViewCache = mock(WalletViewCache.class);
+        when(walletViewCache.get(eq(walletId), any())).thenReturn(Optional.of(new WalletView(walletId, ownerUid,
+                "RUB wallet", WalletTypeStatus.ACTIVE, Money.ZERO, "RUB", "RUB")));
+        service = new WalletServiceImpl(mock(MetricsFacade.class), mock(WalletRepository.class),
+                mock(WalletTypeRepository.class), walletViewCache, mock(WalletTypeCatalog.class),
+                transactionRepository);
+    }
+
+    @Test
+    void mergesIncomingTransfersIntoHistory() {
+        TransactionHistoryItem deposit = item(NOON, TransactionHistoryItem.DirectionEnum.OUTGOING);
+        TransactionHistoryItem sent = item(NOON.plusMinutes(2), TransactionHistoryItem.DirectionEnum.OUTGOING);
+        TransactionHistoryItem received = item(NOON.plusMinutes(1), TransactionHistoryItem.DirectionEnum.INCOMING);
+        when(transactionRepository.findHistory(eq(ownerUid), eq(walletId), isNull(), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(sent, deposit));
+        when(transactionRepository.findIncomingHistory(walletId, null, null, 3)).thenReturn(List.of(received));
+
+        TransactionHistoryPage page = service.getTransactionHistory(walletId, null, null, null, 2);
+
+        assertThat(page.getItems()).containsExactly(sent, received);
+        HistoryCursor next = HistoryCursor.decode(page.getNextCursor());
+        assertThat(next.createdAt()).isEqualTo(received.getCreatedAt().toLocalDateTime());
+        assertThat(next.uid()).isEqualTo(received.getTransactionId());
+    }
+
+    // Входящий перевод — проведённый TRANSFER: фильтр по другому типу или статусу его исключает
+    @Test
+    void skipsIncomingTransfersForOtherFilters() {
+        when(transactionRepository.findHistory(any(), any(), any(), any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        service.getTransactionHistory(walletId, "deposit", null, null, 10);
+        service.getTransactionHistory(walletId, null, "failed", null, 10);
+
+        verify(transactionRepository, never()).findIncomingHistory(any(), any(), any(), anyInt());
+    }
+
+    private static TransactionHistoryItem item(LocalDateTime createdAt, TransactionHistoryItem.DirectionEnum direction) {
+        TransactionHistoryItem item = new TransactionHistoryItem();
+        item.setTransactionId(UUID.randomUUID());
+        item.setCreatedAt(createdAt.atOffset(ZoneOffset.UTC));
+        item.setType(TransactionHistoryItem.TypeEnum.TRANSFER);
+        item.setStatus("COMPLETED");
+        item.setAmount(new BigDecimal("10"));
+        item.setDirection(direction);
+        return item;
+    }
+}
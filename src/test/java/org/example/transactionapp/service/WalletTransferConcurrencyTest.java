@@ -0,0 +1,207 @@
+package org.example.transactionapp.service;
+
+import org.example.transactionapp.ShardedPostgres;
+import org.example.transactionapp.dto.TransactionConfirmRequest;
+import org.example.transactionapp.entity.TransactionStatus;
+import org.example.transactionapp.entity.WalletTypeStatus;
+import org.example.transactionapp.export.ShardDataSources;
+import org.example.transactionapp.fee.FeeScheduleService;
+import org.example.transactionapp.ledger.LedgerSnapshotProperties;
+import org.example.transactionapp.ledger.LedgerSnapshotter;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.example.transactionapp.money.Money;
+import org.example.transactionapp.outbox.OutboxWriter;
+import org.example.transactionapp.repository.TransactionRepository;
+import org.example.transactionapp.repository.WalletRepository;
+import org.example.transactionapp.repository.WalletRepositoryCustomImpl;
+import org.example.transactionapp.sharding.TransactionIds;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Конкурентные переводы через confirm(): списание (FOR NO KEY UPDATE) и зачисление (FOR KEY SHARE)
+ * на двух реальных шардах, параллельно со свёрткой хвостов в снимки.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WalletTransferConcurrencyTest {
+
+    private static final ShardedPostgres postgres = new ShardedPostgres();
+
+    private WalletRepositoryCustomImpl wallets;
+    private TransactionServiceImpl service;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void start() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wallets = new WalletRepositoryCustomImpl(new JdbcTemplate(postgres.dataSource()));
+        WalletRepository walletRepository = mock(WalletRepository.class, AdditionalAnswers.delegatesTo(wallets));
+        doReturn(Optional.of(postgres.walletTypeId())).when(walletRepository).findWalletTypeId(any());
+        WalletTypeCatalog walletTypeCatalog = mock(WalletTypeCatalog.class);
+        when(walletTypeCatalog.byId(postgres.walletTypeId())).thenReturn(Optional.of(new WalletTypeCatalog.Entry(
+                postgres.walletTypeId(), "TEST", "RUB", "INDIVIDUAL", WalletTypeStatus.ACTIVE)));
+
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        FeeScheduleService feeScheduleService = mock(FeeScheduleService.class);
+        when(feeScheduleService.feeForVersion(anyLong(), any(), any(), any(), any())).thenReturn(Optional.of(Money.ZERO));
+
+        service = new TransactionServiceImpl(transactionRepository, walletRepository, mock(OutboxWriter.class),
+                feeScheduleService, mock(TransactionStatusCache.class), mock(WalletViewCache.class),
+                walletTypeCatalog, new WalletLockService(walletRepository));
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(postgres.dataSource()));
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        UUID from = postgres.createWallet(UUID.randomUUID(), new BigDecimal("100"));
+        UUID to = postgres.createWallet(UUID.randomUUID(), BigDecimal.ZERO);
+
+        List<Callable<String>> transfers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            transfers.add(() -> transfer(from, to, "10"));
+        }
+        List<String> statuses = runAll(transfers);
+
+        assertThat(statuses).filteredOn(TransactionStatus.COMPLETED.name()::equals).hasSize(10);
+        assertThat(statuses).filteredOn(TransactionStatus.FAILED.name()::equals).hasSize(30);
+        assertThat(balance(from)).isEqualByComparingTo("0");
+        assertThat(balance(to)).isEqualByComparingTo("100");
+    }
+
+    @Test
+    void crissCrossTransfersCompleteWithoutDeadlock() throws Exception {
+        UUID a = postgres.createWallet(UUID.randomUUID(), new BigDecimal("1000"));
+        UUID b = postgres.createWallet(UUID.randomUUID(), new BigDecimal("1000"));
+
+        List<Callable<String>> transfers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            boolean forward = i % 2 == 0;
+            transfers.add(() -> transfer(forward ? a : b, forward ? b : a, "1"));
+        }
+        List<String> statuses = runAll(transfers);
+
+        assertThat(statuses).containsOnly(TransactionStatus.COMPLETED.name());
+        assertThat(balance(a)).isEqualByComparingTo("1000");
+        assertThat(balance(b)).isEqualByComparingTo("1000");
+    }
+
+    // Снимок берёт FOR UPDATE и ждёт начатые списания и зачисления: ни одна проводка не теряется
+    @Test
+    void snapshotsKeepBalancesUnderConcurrentTransfers() throws Exception {
+        List<UUID> ring = List.of(
+                postgres.createWallet(UUID.randomUUID(), new BigDecimal("500")),
+                postgres.createWallet(UUID.randomUUID(), new BigDecimal("500")),
+                postgres.createWallet(UUID.randomUUID(), new BigDecimal("500")),
+                postgres.createWallet(UUID.randomUUID(), new BigDecimal("500")));
+        Map<UUID, BigDecimal> expected = new ConcurrentHashMap<>();
+        ring.forEach(wallet -> expected.put(wallet, new BigDecimal("500")));
+
+        ShardDataSources shardDataSources = mock(ShardDataSources.class);
+        when(shardDataSources.get()).thenReturn(postgres.shards());
+        LedgerSnapshotter snapshotter = new LedgerSnapshotter(shardDataSources,
+                new LedgerSnapshotProperties(true, Duration.ofSeconds(1), 1, 500), mock(MetricsFacade.class));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread compaction = Thread.ofPlatform().start(() -> {
+            while (running.get()) {
+                snapshotter.compact();
+            }
+        });
+
+        List<Callable<String>> transfers = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            UUID from = ring.get(i % ring.size());
+            UUID to = ring.get((i * 7 + 1) % ring.size());
+            if (from.equals(to)) {
+                continue;
+            }
+            BigDecimal amount = BigDecimal.valueOf(i % 13 + 1);
+            transfers.add(() -> {
+                String status = transfer(from, to, amount.toPlainString());
+                if (TransactionStatus.COMPLETED.name().equals(status)) {
+                    expected.merge(from, amount.negate(), BigDecimal::add);
+                    expected.merge(to, amount, BigDecimal::add);
+                }
+                return status;
+            });
+        }
+        try {
+            runAll(transfers);
+        } finally {
+            running.set(false);
+            compaction.join();
+        }
+        snapshotter.compact();
+
+        for (UUID wallet : ring) {
+            assertThat(balance(wallet)).as("баланс %s", wallet).isEqualByComparingTo(expected.get(wallet));
+        }
+    }
+
+    private String transfer(UUID from, UUID to, String amount) {
+        UUID userUid = UUID.randomUUID();
+        TransactionConfirmRequest request = new TransactionConfirmRequest();
+        request.setTransactionId(TransactionIds.forUser(userUid));
+        request.setUserUid(userUid);
+        request.setWalletUid(from);
+        request.setTargetWalletUid(to);
+        request.setAmount(new BigDecimal(amount));
+        request.setFee(BigDecimal.ZERO);
+        request.setFeeScheduleVersion(1L);
+        return transactionTemplate.execute(status -> service.confirm("transfer", request)).getStatus();
+    }
+
+    private BigDecimal balance(UUID walletId) {
+        UUID owner = new JdbcTemplate(postgres.dataSource())
+                .queryForObject("select user_uid from wallets where uid = ?", UUID.class, walletId);
+        return wallets.currentBalance(owner, walletId).orElseThrow().toBigDecimal();
+    }
+
+    private static List<String> runAll(List<Callable<String>> tasks) throws Exception {
+        List<String> results = new ArrayList<>(tasks.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (Future<String> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        }
+        return results;
+    }
+}
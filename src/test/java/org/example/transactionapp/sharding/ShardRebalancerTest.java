@@ -0,0 +1,135 @@
+package org.example.transactionapp.sharding;
+
+import org.example.transactionapp.ShardedPostgres;
+import org.example.transactionapp.export.ShardDataSources;
+import org.example.transactionapp.ledger.LedgerSnapshotProperties;
+import org.example.transactionapp.ledger.LedgerSnapshotter;
+import org.example.transactionapp.metrics.MetricsFacade;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Перенос пользователя с историей проводок: проводки получают seq цели, баланс на новом шарде
+ * совпадает с прежним до и после свёртки снимка, суммы архивированных секций переезжают вместе с ним.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ShardRebalancerTest {
+
+    private static final ShardedPostgres postgres = new ShardedPostgres();
+
+    private static final ShardPlacement FROM = ShardPlacement.of(ShardLayout.HASH_MOD, List.of("ds0", "ds1"),
+            ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    private static final ShardPlacement TO = ShardPlacement.of(ShardLayout.CONSISTENT_HASH, List.of("ds0", "ds1"),
+            ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+    @BeforeAll
+    static void start() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        postgres.close();
+    }
+
+    @Test
+    void movesUserWithLedgerHistory() throws Exception {
+        JdbcTemplate source = new JdbcTemplate(postgres.shards().get("ds0"));
+        JdbcTemplate target = new JdbcTemplate(postgres.shards().get("ds1"));
+        UUID owner = movingUser();
+        UUID wallet = UUID.randomUUID();
+
+        // seq цели уходит вперёд: совпадение seq источника и цели ничего бы не доказало
+        for (int i = 0; i < 3; i++) {
+            append(target, UUID.randomUUID(), null, "FEE_INCOME", "1");
+        }
+
+        source.update("""
+                insert into wallets_0 (uid, created_at, name, wallet_type_uid, user_uid, status, balance)
+                values (?, now(), 'TEST', ?, ?, 'ACTIVE', 100)""", wallet, postgres.walletTypeId(), owner);
+        append(source, owner, wallet, "WALLET", "50");
+        append(source, owner, null, "DEPOSIT_CLEARING", "-50");
+        long folded = append(source, owner, wallet, "WALLET", "-20");
+        source.update("update wallets_0 set balance = 130, snapshot_seq = ?, modified_at = now() where uid = ?",
+                folded, wallet);
+        append(source, owner, wallet, "WALLET", "5");
+        source.update("""
+                insert into archived_wallet_totals (parent_table, user_uid, wallet_uid, net)
+                values ('transactions_0', ?, ?, 30)""", owner, wallet);
+        assertThat(balance(source, wallet)).isEqualByComparingTo("135");
+
+        ShardRebalancer rebalancer = new ShardRebalancer(postgres.shards(), FROM, TO, 2, Duration.ofMinutes(1));
+        Map<String, Timestamp> watermarks = rebalancer.copy();
+        append(source, owner, wallet, "WALLET", "7");
+        rebalancer.catchUp(watermarks);
+        rebalancer.catchUp(watermarks);
+
+        assertThat(target.queryForObject("select count(*) from ledger_entries_0 where user_uid = ? and moved_from = 'ds0'",
+                Integer.class, owner)).isEqualTo(5);
+        assertThat(target.queryForObject("select snapshot_seq from wallets_0 where uid = ?", Long.class, wallet))
+                .isZero();
+        assertThat(balance(target, wallet)).isEqualByComparingTo("142");
+
+        ShardDataSources targetOnly = mock(ShardDataSources.class);
+        when(targetOnly.get()).thenReturn(Map.of("ds1", postgres.shards().get("ds1")));
+        new LedgerSnapshotter(targetOnly, new LedgerSnapshotProperties(true, Duration.ofSeconds(1), 1, 500),
+                mock(MetricsFacade.class)).compact();
+        assertThat(target.queryForObject("select snapshot_seq from wallets_0 where uid = ?", Long.class, wallet))
+                .isPositive();
+        assertThat(balance(target, wallet)).isEqualByComparingTo("142");
+
+        // Повторный проход после свёртки на цели не задваивает проводки и не портит снимок
+        rebalancer.catchUp(watermarks);
+        assertThat(balance(target, wallet)).isEqualByComparingTo("142");
+
+        rebalancer.cleanup();
+        assertThat(source.queryForObject("select count(*) from ledger_entries_0 where user_uid = ?", Integer.class, owner))
+                .isZero();
+        assertThat(source.queryForObject("select count(*) from wallets_0 where uid = ?", Integer.class, wallet))
+                .isZero();
+        assertThat(source.queryForObject("select count(*) from archived_wallet_totals where user_uid = ?",
+                Integer.class, owner)).isZero();
+        assertThat(target.queryForObject("select net from archived_wallet_totals where user_uid = ? and wallet_uid = ?",
+                BigDecimal.class, owner, wallet)).isEqualByComparingTo("30");
+    }
+
+    // Пользователь, которого смена раскладки переносит с ds0 на ds1
+    private static UUID movingUser() {
+        while (true) {
+            UUID userUid = UUID.randomUUID();
+            if (FROM.databaseFor(userUid).equals("ds0") && TO.databaseFor(userUid).equals("ds1")) {
+                return userUid;
+            }
+        }
+    }
+
+    private static long append(JdbcTemplate shard, UUID owner, UUID wallet, String account, String amount) {
+        return shard.queryForObject("""
+                        insert into ledger_entries_0 (user_uid, wallet_uid, transaction_uid, account, amount)
+                        values (?, ?, ?, ?, ?)
+                        returning seq""",
+                Long.class, owner, wallet, UUID.randomUUID(), account, new BigDecimal(amount));
+    }
+
+    private static BigDecimal balance(JdbcTemplate shard, UUID wallet) {
+        return shard.queryForObject("""
+                select w.balance + coalesce((select sum(e.amount) from ledger_entries_0 e
+                                              where e.wallet_uid = w.uid and e.seq > w.snapshot_seq), 0)
+                  from wallets_0 w
+                 where w.uid = ?""", BigDecimal.class, wallet);
+    }
+}
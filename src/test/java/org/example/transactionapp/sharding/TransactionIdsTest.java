@@ -0,0 +1,42 @@
+package org.example.transactionapp.sharding;
+
+import org.example.transactionapp.id.TimeOrderedUuids;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+/**
+ * created_at транзакции берётся из id: повторный confirm попадает в тот же ключ (uid, created_at).
+ */
+class TransactionIdsTest {
+
+    @Test
+    void createdAtIsTheIssueTimeOfTheId() {
+        UUID userUid = UUID.randomUUID();
+        Instant before = Instant.now().minusMillis(1);
+        UUID id = TransactionIds.forUser(userUid);
+
+        assertThat(TransactionIds.createdAt(id)).isEqualTo(TransactionIds.createdAt(id));
+        assertThat(TransactionIds.createdAt(id).toInstant()).isBetween(before, Instant.now());
+        assertThatNoException().isThrownBy(() -> TransactionIds.requireTimeOrdered(id));
+        assertThatNoException().isThrownBy(() -> TransactionIds.requireTimeOrdered(TimeOrderedUuids.next()));
+    }
+
+    @Test
+    void rejectsIdsWithoutTime() {
+        assertThatIllegalArgumentException().isThrownBy(() -> TransactionIds.requireTimeOrdered(UUID.randomUUID()));
+    }
+
+    @Test
+    void rejectsIdsFromTheFuture() {
+        long millis = Instant.now().plus(TransactionIds.MAX_CLOCK_SKEW).plusSeconds(60).toEpochMilli();
+        UUID id = new UUID(millis << 16 | 8L << 12, 1L << 63);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> TransactionIds.requireTimeOrdered(id));
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.transactionapp.sharding;
+
+import org.apache.shardingsphere.infra.datanode.DataNodeInfo;
+import org.apache.shardingsphere.sharding.algorithm.sharding.mod.HashModShardingAlgorithm;
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Строки, записанные через HASH_MOD до кольца, находятся USER_OR_ID с user-layout: HASH_MOD
+ * и по user_uid, и по одному id транзакции.
+ */
+class UserOrIdShardingAlgorithmTest {
+
+    private static final List<String> DATABASES = List.of("ds0", "ds1");
+    private static final List<String> TABLES = List.of("transactions_0", "transactions_1");
+
+    @Test
+    void hashModLayoutMatchesShardingSphereHashMod() {
+        UserOrIdShardingAlgorithm userOrId = userOrId("HASH_MOD");
+        HashModShardingAlgorithm hashMod = new HashModShardingAlgorithm();
+        Properties properties = new Properties();
+        properties.setProperty("sharding-count", "2");
+        hashMod.init(properties);
+
+        for (int i = 0; i < 1000; i++) {
+            UUID userUid = UUID.randomUUID();
+            String database = hashMod.doSharding(DATABASES,
+                    new PreciseShardingValue<>("transactions", "user_uid", new DataNodeInfo("ds", 1, '0'), userUid));
+            String table = hashMod.doSharding(TABLES,
+                    new PreciseShardingValue<>("transactions", "user_uid", new DataNodeInfo("transactions_", 1, '0'), userUid));
+
+            assertThat(userOrId.doSharding(DATABASES, byColumn("user_uid", userUid))).containsExactly(database);
+            assertThat(userOrId.doSharding(TABLES, byColumn("user_uid", userUid))).containsExactly(table);
+
+            UUID transactionId = TransactionIds.forUser(userUid);
+            assertThat(userOrId.doSharding(DATABASES, byColumn("uid", transactionId))).containsExactly(database);
+            assertThat(userOrId.doSharding(TABLES, byColumn("uid", transactionId))).containsExactly(table);
+        }
+    }
+
+    @Test
+    void consistentHashLayoutRoutesIdLikeOwner() {
+        UserOrIdShardingAlgorithm userOrId = userOrId("CONSISTENT_HASH");
+        ConsistentHashRing ring = ConsistentHashRing.of(DATABASES, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+        for (int i = 0; i < 1000; i++) {
+            UUID userUid = UUID.randomUUID();
+            UUID transactionId = TransactionIds.forUser(userUid);
+            assertThat(userOrId.doSharding(DATABASES, byColumn("uid", transactionId)))
+                    .containsExactly(ring.nodeFor(userUid))
+                    .isEqualTo(userOrId.doSharding(DATABASES, byColumn("user_uid", userUid)));
+        }
+    }
+
+    @Test
+    void idWithoutRoutingKeyOrUuidModLayoutGoesToAllShards() {
+        assertThat(userOrId("CONSISTENT_HASH").doSharding(DATABASES, byColumn("uid", UUID.randomUUID())))
+                .containsExactlyElementsOf(DATABASES);
+        assertThat(userOrId("UUID_MOD").doSharding(DATABASES, byColumn("uid", TransactionIds.forUser(UUID.randomUUID()))))
+                .containsExactlyElementsOf(DATABASES);
+    }
+
+    private static UserOrIdShardingAlgorithm userOrId(String layout) {
+        UserOrIdShardingAlgorithm algorithm = new UserOrIdShardingAlgorithm();
+        Properties properties = new Properties();
+        properties.setProperty("user-layout", layout);
+        algorithm.init(properties);
+        return algorithm;
+    }
+
+    private static ComplexKeysShardingValue<Comparable<?>> byColumn(String column, UUID value) {
+        return new ComplexKeysShardingValue<>("transactions", Map.of(column, List.<Comparable<?>>of(value)), Map.of());
+    }
+}